@@ -0,0 +1,143 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jpa;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.ConnectionPool;
+import com.github.thanospapapetrou.xkcd.impl.cdi.InjectionProducer;
+
+/**
+ * Benchmark of {@link JpaCache}, comparing loads with and without read optimized mode while comics are being saved. Readers load the latest comic, first by ID and then by query, which is the hottest row in the cache, while a writer keeps saving new comics. The shared cache of the persistence unit is disabled, so that every load reaches the database and only transactions and locks differ between modes.
+ * 
+ * @author thanos
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class JpaCacheBenchmark {
+	private static final long ACQUIRE_TIMEOUT = 60000L;
+	private static final int BATCH_WRITING_SIZE = 64;
+	private static final int COMICS = 1024;
+	private static final String DERBY_LOG = "target/derby.log";
+	private static final String DERBY_STREAM_ERROR_FILE = "derby.stream.error.file";
+	private static final String DROP_JDBC_URL = "jdbc:derby:memory:benchmark;drop=true";
+	private static final long IDLE_TIMEOUT = 60000L;
+	private static final String JDBC_DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+	private static final String JDBC_URL = "jdbc:derby:memory:benchmark;create=true";
+	private static final int POOL_SIZE = 8;
+	private static final int SHARED_CACHE_SIZE = 0;
+	private static final int STATEMENT_CACHE_SIZE = 8;
+	private static final String TITLE = "Title";
+
+	/**
+	 * Whether to load comics in read optimized mode, without transactions or locks.
+	 */
+	@Param({"false", "true"})
+	public boolean readOptimized;
+
+	private ConnectionPool pool;
+	private EntityManagerFactory factory;
+	private JpaCache cache;
+	private URL image;
+	private AtomicInteger latest;
+
+	/**
+	 * Set up a JPA cache in an in memory database, holding an archive of comics.
+	 * 
+	 * @throws ClassNotFoundException
+	 *             if the JDBC driver cannot be found
+	 * @throws MalformedURLException
+	 *             if the URLs of the comics are malformed
+	 * @throws XkcdException
+	 *             if any errors occur while saving the comics
+	 */
+	@Setup
+	public void setUp() throws ClassNotFoundException, MalformedURLException, XkcdException {
+		System.setProperty(DERBY_STREAM_ERROR_FILE, DERBY_LOG);
+		pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, POOL_SIZE, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, 1, STATEMENT_CACHE_SIZE);
+		factory = InjectionProducer.produceEntityManagerFactory(pool, false, SHARED_CACHE_SIZE, BATCH_WRITING_SIZE);
+		cache = new JpaCache(factory, readOptimized, false);
+		image = new URL("https://imgs.xkcd.com/comics/image.png");
+		final List<Comic> comics = new ArrayList<>(COMICS);
+		for (int id = 1; id <= COMICS; id++) {
+			comics.add(comic(id));
+		}
+		cache.saveAll(comics);
+		latest = new AtomicInteger(COMICS);
+	}
+
+	/**
+	 * Close the cache and drop its database.
+	 */
+	@TearDown
+	public void tearDown() {
+		InjectionProducer.dispose(factory);
+		pool.close();
+		try {
+			DriverManager.getConnection(DROP_JDBC_URL);
+		} catch (final SQLException e) {
+			// dropping an in memory database always throws
+		}
+	}
+
+	/**
+	 * Load the latest comic, by ID and by query, while a writer saves comics.
+	 * 
+	 * @return the latest comic loaded by query
+	 * @throws XkcdException
+	 *             if any errors occur while loading the latest comic
+	 */
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(3)
+	public Comic load() throws XkcdException {
+		cache.load(latest.get());
+		return cache.loadLatest();
+	}
+
+	/**
+	 * Save a new comic, while readers load the latest one.
+	 * 
+	 * @throws XkcdException
+	 *             if any errors occur while saving the comic
+	 */
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(1)
+	public void save() throws XkcdException {
+		cache.save(comic(latest.incrementAndGet()));
+	}
+
+	private Comic comic(final int id) {
+		return new Comic(id, new Date(), TITLE, TITLE, image, null, null, null, null);
+	}
+}
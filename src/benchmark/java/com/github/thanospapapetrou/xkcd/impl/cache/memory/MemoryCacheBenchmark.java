@@ -0,0 +1,195 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.memory;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+
+/**
+ * Benchmark of {@link MemoryCache}, comparing its throughput under contention with that of the memory cache it replaced, backed by a synchronized sorted map, as the number of threads loading and saving comics grows. Each operation loads a random comic and the latest one, while one operation in sixteen saves a random comic again.
+ * 
+ * @author thanos
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class MemoryCacheBenchmark {
+	private static final class SynchronizedMemoryCache implements Cache {
+		private final SortedMap<Integer, Comic> cache;
+
+		private SynchronizedMemoryCache() {
+			cache = Collections.synchronizedSortedMap(new TreeMap<Integer, Comic>());
+		}
+
+		@Override
+		public void save(final Comic comic) {
+			cache.put(comic.getId(), comic);
+		}
+
+		@Override
+		public void saveAll(final Collection<Comic> comics) {
+			for (final Comic comic : comics) {
+				save(comic);
+			}
+		}
+
+		@Override
+		public Comic load(final int id) {
+			return cache.get(id);
+		}
+
+		@Override
+		public List<Comic> loadAll(final int from, final int to) {
+			synchronized (cache) {
+				return new ArrayList<>(cache.subMap(from, to + 1).values());
+			}
+		}
+
+		@Override
+		public Comic loadLatest() {
+			return cache.isEmpty() ? null : cache.get(cache.lastKey());
+		}
+	}
+
+	private static final int COMICS = 2048;
+	private static final String LOCK_FREE = "lockFree";
+	private static final int SAVE_RATIO = 16;
+	private static final String SYNCHRONIZED = "synchronized";
+	private static final String TITLE = "Title";
+
+	/**
+	 * The implementation of the memory cache, either <code>synchronized</code> for the one backed by a synchronized sorted map or <code>lockFree</code> for {@link MemoryCache}.
+	 */
+	@Param({SYNCHRONIZED, LOCK_FREE})
+	public String implementation;
+
+	private Cache cache;
+	private Comic[] comics;
+
+	/**
+	 * Set up a memory cache of the implementation benchmarked, holding all comics.
+	 * 
+	 * @throws MalformedURLException
+	 *             if the URLs of the comics are malformed
+	 * @throws XkcdException
+	 *             if any errors occur while saving the comics
+	 */
+	@Setup
+	public void setUp() throws MalformedURLException, XkcdException {
+		cache = SYNCHRONIZED.equals(implementation) ? new SynchronizedMemoryCache() : new MemoryCache();
+		comics = new Comic[COMICS];
+		final URL image = new URL("https://imgs.xkcd.com/comics/image.png");
+		for (int i = 0; i < COMICS; i++) {
+			comics[i] = new Comic(i + 1, new Date(), TITLE, TITLE, image, null, null, null, null);
+			cache.save(comics[i]);
+		}
+	}
+
+	/**
+	 * Access the cache from one thread.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the comics loaded
+	 * @throws XkcdException
+	 *             if any errors occur while accessing the cache
+	 */
+	@Benchmark
+	@Threads(1)
+	public void oneThread(final Blackhole blackhole) throws XkcdException {
+		access(blackhole);
+	}
+
+	/**
+	 * Access the cache from two threads.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the comics loaded
+	 * @throws XkcdException
+	 *             if any errors occur while accessing the cache
+	 */
+	@Benchmark
+	@Threads(2)
+	public void twoThreads(final Blackhole blackhole) throws XkcdException {
+		access(blackhole);
+	}
+
+	/**
+	 * Access the cache from four threads.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the comics loaded
+	 * @throws XkcdException
+	 *             if any errors occur while accessing the cache
+	 */
+	@Benchmark
+	@Threads(4)
+	public void fourThreads(final Blackhole blackhole) throws XkcdException {
+		access(blackhole);
+	}
+
+	/**
+	 * Access the cache from eight threads.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the comics loaded
+	 * @throws XkcdException
+	 *             if any errors occur while accessing the cache
+	 */
+	@Benchmark
+	@Threads(8)
+	public void eightThreads(final Blackhole blackhole) throws XkcdException {
+		access(blackhole);
+	}
+
+	/**
+	 * Access the cache from sixteen threads.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the comics loaded
+	 * @throws XkcdException
+	 *             if any errors occur while accessing the cache
+	 */
+	@Benchmark
+	@Threads(16)
+	public void sixteenThreads(final Blackhole blackhole) throws XkcdException {
+		access(blackhole);
+	}
+
+	private void access(final Blackhole blackhole) throws XkcdException {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final Comic comic = comics[random.nextInt(COMICS)];
+		blackhole.consume(cache.load(comic.getId()));
+		blackhole.consume(cache.loadLatest());
+		if (random.nextInt(SAVE_RATIO) == 0) {
+			cache.save(comic);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.offheap;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cache.memory.MemoryCache;
+
+/**
+ * Benchmark of {@link OffHeapCache}, comparing the heap it retains with that retained by {@link MemoryCache} once both hold an archive of comics with alternate texts and transcripts. Each comic is built from strings of its own, so that whatever a cache keeps of it is retained by that cache alone. Retained heap and direct memory are measured after garbage collection and reported for the last cache filled as the secondary results <code>heapBytes</code> and <code>directBytes</code>, which is why there is a single measurement iteration, since JMH sums these results over iterations.
+ * 
+ * @author thanos
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 1, time = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1, time = 1)
+public class OffHeapCacheBenchmark {
+	/**
+	 * Class holding the memory retained by a cache.
+	 * 
+	 * @author thanos
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+		/**
+		 * The number of bytes of heap retained.
+		 */
+		public long heapBytes;
+
+		/**
+		 * The number of bytes of direct memory retained.
+		 */
+		public long directBytes;
+	}
+
+	private static final String ALTERNATE = "Alternate text of comic %1$d, shown when hovering over its image, which is usually a sentence or two long.";
+	private static final long CAPACITY = 67108864L;
+	private static final int COMICS = 2048;
+	private static final String DIRECT = "direct";
+	private static final int GARBAGE_COLLECTIONS = 4;
+	private static final String IMAGE = "https://imgs.xkcd.com/comics/comic_%1$d.png";
+	private static final String MEMORY = "memory";
+	private static final String OFF_HEAP = "offHeap";
+	private static final int SLAB_SIZE = 1048576;
+	private static final String TITLE = "Title of comic %1$d";
+	private static final String TRANSCRIPT = "[[Transcript of comic %1$d, describing each panel.]]\nPerson: Something said in the first panel.\nOther person: Something said in reply.\n[[A caption below the last panel.]]";
+
+	/**
+	 * The cache to fill, either <code>memory</code> for {@link MemoryCache} or <code>offHeap</code> for {@link OffHeapCache}.
+	 */
+	@Param({MEMORY, OFF_HEAP})
+	public String implementation;
+
+	private static long usedHeap() {
+		for (int i = 0; i < GARBAGE_COLLECTIONS; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long usedDirect() {
+		for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (DIRECT.equals(pool.getName())) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return 0L;
+	}
+
+	private static Comic comic(final int id) throws MalformedURLException {
+		return new Comic(id, new Date(), String.format(TITLE, id), String.format(TITLE, id), new URL(String.format(IMAGE, id)), String.format(ALTERNATE, id), String.format(TRANSCRIPT, id), null, null);
+	}
+
+	/**
+	 * Fill a cache with an archive of comics and measure the memory it retains.
+	 * 
+	 * @param footprint
+	 *            the memory retained by the cache filled
+	 * @return the cache filled, so that it is retained while measuring
+	 * @throws MalformedURLException
+	 *             if the URLs of the comics are malformed
+	 * @throws XkcdException
+	 *             if any errors occur while saving the comics
+	 */
+	@Benchmark
+	public Cache fill(final Footprint footprint) throws MalformedURLException, XkcdException {
+		final long heap = usedHeap();
+		final long direct = usedDirect();
+		final Cache cache = MEMORY.equals(implementation) ? new MemoryCache() : new OffHeapCache(SLAB_SIZE, CAPACITY);
+		for (int id = 1; id <= COMICS; id++) {
+			cache.save(comic(id));
+		}
+		footprint.heapBytes = usedHeap() - heap;
+		footprint.directBytes = usedDirect() - direct;
+		return cache;
+	}
+}
@@ -0,0 +1,126 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonWriterFactory;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+
+/**
+ * Benchmark of {@link JsonComicMessageBodyWriter}, comparing encoding comics through a JSON generator with encoding them through the JSON object model and with writing them from the response cache.
+ * 
+ * @author thanos
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class JsonComicMessageBodyWriterBenchmark {
+	private static final String ALTERNATE = "alternate";
+	private static final String DATE = "date";
+	private static final String ID = "id";
+	private static final String IMAGE = "image";
+	private static final String LINK = "link";
+	private static final String NEWS = "news";
+	private static final long RESPONSE_CACHE_CAPACITY = 1048576L;
+	private static final String SAFE_TITLE = "safeTitle";
+	private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.";
+	private static final String TITLE = "title";
+	private static final String TRANSCRIPT = "transcript";
+
+	private final JsonBuilderFactory jsonBuilderFactory;
+	private final JsonWriterFactory jsonWriterFactory;
+	private JsonComicMessageBodyWriter writer;
+	private Comic comic;
+	private OutputStream output;
+
+	/**
+	 * Construct a new JSON comic message body writer benchmark.
+	 */
+	public JsonComicMessageBodyWriterBenchmark() {
+		jsonBuilderFactory = Json.createBuilderFactory(null);
+		jsonWriterFactory = Json.createWriterFactory(null);
+	}
+
+	/**
+	 * Set up a writer, a comic to write and an output stream discarding whatever is written to it.
+	 * 
+	 * @throws MalformedURLException
+	 *             if the URLs of the comic are malformed
+	 */
+	@Setup
+	public void setUp() throws MalformedURLException {
+		writer = new JsonComicMessageBodyWriter(new ResponseCache(RESPONSE_CACHE_CAPACITY), -1);
+		comic = new Comic(1, new Date(), TEXT, TEXT, new URL("https://imgs.xkcd.com/comics/image.png"), TEXT, TEXT, new URL("https://xkcd.com/"), TEXT);
+		output = new OutputStream() {
+			@Override
+			public void write(final int b) {
+			}
+
+			@Override
+			public void write(final byte[] bytes, final int offset, final int length) {
+			}
+		};
+	}
+
+	/**
+	 * Encode a comic through a JSON generator, as the writer does on response cache misses.
+	 * 
+	 * @return the bytes encoded
+	 */
+	@Benchmark
+	public byte[] generator() {
+		return writer.encode(comic);
+	}
+
+	/**
+	 * Encode a comic through the JSON object model, building a JSON object before writing it, as a baseline.
+	 * 
+	 * @return the bytes encoded
+	 */
+	@Benchmark
+	public byte[] objectModel() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		jsonWriterFactory.createWriter(bytes, StandardCharsets.UTF_8).writeObject(jsonBuilderFactory.createObjectBuilder().add(ID, comic.getId()).add(DATE, comic.getDate().getTime()).add(TITLE, comic.getTitle()).add(SAFE_TITLE, comic.getSafeTitle()).add(IMAGE, comic.getImage().toString()).add(ALTERNATE, comic.getAlternate()).add(TRANSCRIPT, comic.getTranscript()).add(LINK, comic.getLink().toString()).add(NEWS, comic.getNews()).build());
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write a comic, as the writer does for each response, hitting the response cache after the first invocation.
+	 * 
+	 * @param blackhole
+	 *            the blackhole consuming the HTTP headers written
+	 * @throws IOException
+	 *             if any errors occur while writing the comic
+	 */
+	@Benchmark
+	public void writeTo(final Blackhole blackhole) throws IOException {
+		final MultivaluedHashMap<String, Object> httpHeaders = new MultivaluedHashMap<>();
+		writer.writeTo(comic, Comic.class, Comic.class, null, null, httpHeaders, output);
+		blackhole.consume(httpHeaders);
+	}
+}
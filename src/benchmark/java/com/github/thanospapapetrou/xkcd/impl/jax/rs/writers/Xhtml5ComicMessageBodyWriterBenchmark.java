@@ -0,0 +1,164 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.NavigationMetadata;
+
+/**
+ * Benchmark of {@link Xhtml5ComicMessageBodyWriter}, comparing the time to the first and to the last byte of pages written with and without streaming. Pages are never found in the response cache and are rendered by a fake JSP writing them in small chunks, as compiled JSP pages do. Allocations are compared through the GC profiler, which the benchmark profile enables.
+ * 
+ * @author thanos
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+public class Xhtml5ComicMessageBodyWriterBenchmark {
+	private static final class FirstByte extends RuntimeException {
+		private static final long serialVersionUID = 0L;
+
+		private FirstByte() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final int CHUNK_SIZE = 64;
+	private static final FirstByte FIRST_BYTE = new FirstByte();
+
+	/**
+	 * The size of the pages in characters.
+	 */
+	@Param({"4096", "65536"})
+	public int pageSize;
+
+	/**
+	 * Whether to stream pages while rendering them.
+	 */
+	@Param({"false", "true"})
+	public boolean streaming;
+
+	private Xhtml5ComicMessageBodyWriter writer;
+	private Comic comic;
+	private OutputStream discarding;
+	private OutputStream failing;
+
+	private static void inject(final Object object, final String name, final Object value) throws ReflectiveOperationException {
+		final Field field = object.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(object, value);
+	}
+
+	/**
+	 * Set up a writer rendering pages through a fake JSP, a comic to write, an output stream discarding whatever is written to it and an output stream failing on the first byte written to it.
+	 * 
+	 * @throws MalformedURLException
+	 *             if the URLs of the comic are malformed
+	 * @throws ReflectiveOperationException
+	 *             if the request or the response cannot be injected to the writer
+	 */
+	@Setup
+	public void setUp() throws MalformedURLException, ReflectiveOperationException {
+		// a response cache with no capacity never caches pages, so each page is rendered
+		writer = new Xhtml5ComicMessageBodyWriter(new NavigationMetadata(), new ResponseCache(0L), -1, streaming, true);
+		final char[] chunk = new char[CHUNK_SIZE];
+		Arrays.fill(chunk, 'x');
+		final RequestDispatcher jsp = new RequestDispatcher() {
+			@Override
+			public void forward(final ServletRequest request, final ServletResponse response) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void include(final ServletRequest request, final ServletResponse response) throws IOException {
+				for (int i = 0; i < pageSize / CHUNK_SIZE; i++) {
+					response.getWriter().write(chunk);
+				}
+			}
+		};
+		inject(writer, "request", Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {HttpServletRequest.class}, (final Object proxy, final Method method, final Object[] arguments) -> "getRequestDispatcher".equals(method.getName()) ? jsp : null));
+		inject(writer, "response", Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {HttpServletResponse.class}, (final Object proxy, final Method method, final Object[] arguments) -> null));
+		comic = new Comic(1, new Date(), "Title", "Safe Title", new URL("https://imgs.xkcd.com/comics/image.png"), null, null, null, null);
+		discarding = new OutputStream() {
+			@Override
+			public void write(final int b) {
+			}
+
+			@Override
+			public void write(final byte[] bytes, final int offset, final int length) {
+			}
+		};
+		failing = new OutputStream() {
+			@Override
+			public void write(final int b) {
+				throw FIRST_BYTE;
+			}
+
+			@Override
+			public void write(final byte[] bytes, final int offset, final int length) {
+				throw FIRST_BYTE;
+			}
+		};
+	}
+
+	/**
+	 * Write a page until its first byte reaches the client.
+	 * 
+	 * @return whether the first byte was written
+	 * @throws IOException
+	 *             if any errors occur while writing the page
+	 */
+	@Benchmark
+	public boolean firstByte() throws IOException {
+		try {
+			writer.writeTo(comic, Comic.class, Comic.class, null, null, new MultivaluedHashMap<>(), failing);
+			return false;
+		} catch (final FirstByte e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Write a page until its last byte reaches the client.
+	 * 
+	 * @return the HTTP headers written
+	 * @throws IOException
+	 *             if any errors occur while writing the page
+	 */
+	@Benchmark
+	public MultivaluedHashMap<String, Object> lastByte() throws IOException {
+		final MultivaluedHashMap<String, Object> httpHeaders = new MultivaluedHashMap<>();
+		writer.writeTo(comic, Comic.class, Comic.class, null, null, httpHeaders, discarding);
+		return httpHeaders;
+	}
+}
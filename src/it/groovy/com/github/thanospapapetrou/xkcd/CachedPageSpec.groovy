@@ -0,0 +1,37 @@
+package com.github.thanospapapetrou.xkcd
+
+import java.nio.charset.StandardCharsets
+
+import geb.ConfigurationLoader
+
+import spock.lang.Specification
+
+class CachedPageSpec extends Specification {
+  private static final String APPLICATION_XHTML_XML = 'application/xhtml+xml'
+  private static final URL BASE_URL = new URL(new ConfigurationLoader().conf.baseUrl)
+  private static final String COMIC_PATH = 'comic/1024'
+  private static final String JSESSIONID = 'jsessionid'
+
+  void 'Cached comic pages carry no session ID'() {
+    when: 'a comic page is requested twice without cookies, so that it is served from the response cache the second time'
+      String first = request()
+      String cached = request()
+    then: 'neither the page rendered nor the page cached carries a session ID'
+      !first.toLowerCase(Locale.ROOT).contains(JSESSIONID)
+      !cached.toLowerCase(Locale.ROOT).contains(JSESSIONID)
+    and: 'the base URL is the context path, not rewritten'
+      cached.contains("<base href=\"${BASE_URL.path}\"")
+  }
+
+  private static String request() {
+    HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL, COMIC_PATH).openConnection()
+    connection.setRequestProperty('Accept', APPLICATION_XHTML_XML)
+    try {
+      assert connection.responseCode == HttpURLConnection.HTTP_OK
+      assert connection.getHeaderField('Set-Cookie') == null
+      connection.inputStream.getText(StandardCharsets.UTF_8.name())
+    } finally {
+      connection.disconnect()
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.github.thanospapapetrou.xkcd
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+import java.util.logging.Logger
+
+import geb.ConfigurationLoader
+
+import spock.lang.Specification
+
+class FirstRequestSpec extends Specification {
+  private static final String APPLICATION_XHTML_XML = 'application/xhtml+xml'
+  private static final URL BASE_URL = new URL(new ConfigurationLoader().conf.baseUrl)
+  private static final String CREDENTIALS = 'tomcat:t0mc@t'
+  private static final Logger LOGGER = Logger.getLogger(FirstRequestSpec.canonicalName)
+  private static final String MANAGER = '/manager/text/%1$s?path=%2$s'
+  private static final String MISSING_PAGE_PATH = 'comic/none'
+  private static final String OK = 'OK'
+  private static final String TIMINGS = '%1$s: started in %2$d ms, time to first byte of first error page %3$d ms, of next one %4$d ms'
+  private static final String UNCOMPILED = '-uncompiled'
+
+  void 'Precompiled JSPs speed up the first page served after startup'() {
+    given: 'the context paths of the application with and without precompiled JSPs'
+      String precompiled = BASE_URL.path - ~/\/$/
+      String uncompiled = precompiled + UNCOMPILED
+    when: 'each application is restarted and serves an error page twice'
+      Map<String, Long> precompiledTimings = restartAndRequest(precompiled)
+      Map<String, Long> uncompiledTimings = restartAndRequest(uncompiled)
+    then: 'the first page is served faster with precompiled JSPs, since they are not compiled on demand'
+      precompiledTimings.first < uncompiledTimings.first
+  }
+
+  private static Map<String, Long> restartAndRequest(final String contextPath) {
+    manage('stop', contextPath)
+    Map<String, Long> timings = [startup: manage('start', contextPath)]
+    URL page = new URL(BASE_URL, "${contextPath}/${MISSING_PAGE_PATH}")
+    timings.first = timeToFirstByte(page)
+    timings.next = timeToFirstByte(page)
+    LOGGER.info(String.format(TIMINGS, contextPath, timings.startup, timings.first, timings.next))
+    timings
+  }
+
+  private static long manage(final String command, final String contextPath) {
+    HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL, String.format(MANAGER, command, contextPath)).openConnection()
+    connection.setRequestProperty('Authorization', "Basic ${CREDENTIALS.getBytes(StandardCharsets.UTF_8).encodeBase64()}")
+    long start = System.nanoTime()
+    try {
+      String result = connection.inputStream.getText(StandardCharsets.UTF_8.name())
+      assert result.startsWith(OK)
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    } finally {
+      connection.disconnect()
+    }
+  }
+
+  private static long timeToFirstByte(final URL page) {
+    HttpURLConnection connection = (HttpURLConnection) page.openConnection()
+    connection.setRequestProperty('Accept', APPLICATION_XHTML_XML)
+    long start = System.nanoTime()
+    InputStream input = (connection.responseCode < HttpURLConnection.HTTP_BAD_REQUEST) ? connection.inputStream : connection.errorStream
+    try {
+      input.read()
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    } finally {
+      input.close()
+      connection.disconnect()
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.thanospapapetrou.xkcd.api;
+
+import java.util.concurrent.CompletionStage;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+
+/**
+ * Interface representing the xkcd API with asynchronous variants of its methods, which return without waiting for comics to be retrieved.
+ * 
+ * @author thanos
+ * @see <a href="https://xkcd.com/json.html">xkcd JSON API</a>
+ */
+public interface AsyncXkcd extends Xkcd {
+	/**
+	 * Get a specific xkcd comic asynchronously.
+	 * 
+	 * @param id
+	 *            the ID of the comic to retrieve
+	 * @return a stage completed with the comic specified or <code>null</code> if it doesn't exist, or completed exceptionally with an {@link XkcdException} if any errors occur while retrieving the comic specified
+	 */
+	public abstract CompletionStage<Comic> getComicAsync(final int id);
+
+	/**
+	 * Get the current xkcd comic asynchronously.
+	 * 
+	 * @return a stage completed with the current comic, or completed exceptionally with an {@link XkcdException} if any errors occur while retrieving current comic
+	 */
+	public abstract CompletionStage<Comic> getCurrentComicAsync();
+}
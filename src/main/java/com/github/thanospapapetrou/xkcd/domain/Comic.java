@@ -26,11 +26,6 @@ import com.github.thanospapapetrou.xkcd.impl.cache.jpa.converters.TranscriptConv
 @Entity
 @Table(schema = "APP", name = "COMICS")
 public class Comic {
-	/**
-	 * Alternate maximum length.
-	 */
-	public static final int ALTERNATE_LENGTH = 1024;
-
 	/**
 	 * Image maximum length.
 	 */
@@ -56,11 +51,6 @@ public class Comic {
 	 */
 	public static final int TITLE_LENGTH = 64;
 
-	/**
-	 * Transcript maximum length.
-	 */
-	public static final int TRANSCRIPT_LENGTH = 16384;
-
 	private static final String NULL_DATE = "Date must not be null";
 	private static final String NULL_IMAGE = "Image must not be null";
 	private static final String NULL_SAFE_TITLE = "Safe title must not be null";
@@ -85,11 +75,11 @@ public class Comic {
 	@Convert(converter = ImageConverter.class)
 	private final URL image;
 
-	@Column(name = "ALTERNATE", length = ALTERNATE_LENGTH, updatable = false)
+	@Column(name = "ALTERNATE", updatable = false)
 	@Convert(converter = AlternateConverter.class)
 	private final String alternate;
 
-	@Column(name = "TRANSCRIPT", length = TRANSCRIPT_LENGTH, updatable = false)
+	@Column(name = "TRANSCRIPT", updatable = false)
 	@Convert(converter = TranscriptConverter.class)
 	private final String transcript;
 
@@ -0,0 +1,121 @@
+package com.github.thanospapapetrou.xkcd.impl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class executing blocking work, such as retrieving comics from xkcd or from a persistent cache, on behalf of asynchronous requests, so that container threads are not held while waiting for it. Work runs on virtual threads if configured to do so and supported by the JVM, or on a bounded pool of platform threads with a bounded queue otherwise, rejecting work once both are full. Stages returned are completed on the thread executing the work, so stages depending on them, including writing responses resumed by them, run on that thread too unless executed elsewhere. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class BlockingExecutor {
+	private static final Logger LOGGER = Logger.getLogger(BlockingExecutor.class.getCanonicalName());
+	private static final String NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+	private static final String NON_POSITIVE_QUEUE_SIZE = "Queue size must be positive";
+	private static final String NON_POSITIVE_THREADS = "Threads must be positive";
+	private static final String NULL_RETRIEVAL = "Retrieval must not be null";
+	private static final String PLATFORM_THREADS = "Blocking work runs on %1$d platform threads, queueing up to %2$d work items";
+	private static final String THREAD_NAME = "xkcd-blocking-%1$d";
+	private static final String VIRTUAL_THREADS = "Blocking work runs on virtual threads";
+	private static final String VIRTUAL_THREADS_NOT_SUPPORTED = "Virtual threads not supported, blocking work runs on %1$d platform threads, queueing up to %2$d work items";
+
+	private final ExecutorService executor;
+
+	/**
+	 * Construct a new blocking executor.
+	 * 
+	 * @param threads
+	 *            the number of platform threads to use, if virtual threads are not used
+	 * @param queueSize
+	 *            the maximum number of work items to queue while all platform threads are busy, if virtual threads are not used
+	 * @param virtualThreads
+	 *            whether to use virtual threads, if supported by the JVM
+	 */
+	@Inject
+	public BlockingExecutor(@Configuration(Configuration.Key.ASYNC_THREADS) final int threads, @Configuration(Configuration.Key.ASYNC_QUEUE_SIZE) final int queueSize, @Configuration(Configuration.Key.ASYNC_VIRTUAL_THREADS) final boolean virtualThreads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_THREADS);
+		}
+		if (queueSize <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_QUEUE_SIZE);
+		}
+		final ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+		if (virtual == null) {
+			final AtomicInteger count = new AtomicInteger();
+			executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), (final Runnable runnable) -> {
+				final Thread thread = new Thread(runnable, String.format(THREAD_NAME, count.incrementAndGet()));
+				thread.setDaemon(true);
+				return thread;
+			});
+			LOGGER.info(String.format(virtualThreads ? VIRTUAL_THREADS_NOT_SUPPORTED : PLATFORM_THREADS, threads, queueSize));
+		} else {
+			executor = virtual;
+			LOGGER.info(VIRTUAL_THREADS);
+		}
+	}
+
+	BlockingExecutor() {
+		// this constructor exists just to keep CDI happy
+		executor = null;
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		// virtual threads are looked up reflectively, since they are not available on the JVM this is compiled for
+		try {
+			return (ExecutorService) Executors.class.getMethod(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR).invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stop executing blocking work.
+	 */
+	@PreDestroy
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Submit a blocking retrieval for execution.
+	 * 
+	 * @param retrieval
+	 *            the retrieval to execute
+	 * @return a stage completed with the comic retrieved, or completed exceptionally with the exception thrown by the retrieval or with a {@link RejectedExecutionException} if the retrieval could not be executed, such as when both the platform threads and the queue are full
+	 */
+	public CompletionStage<Comic> submit(final Retrieval retrieval) {
+		Objects.requireNonNull(retrieval, NULL_RETRIEVAL);
+		final CompletableFuture<Comic> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(retrieval.retrieve());
+				} catch (final XkcdException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+}
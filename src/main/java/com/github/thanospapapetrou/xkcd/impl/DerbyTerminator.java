@@ -28,7 +28,8 @@ public class DerbyTerminator implements ServletContextListener {
 
 	@Override
 	public void contextDestroyed(final ServletContextEvent event) {
-		final Caching caching = ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING);
+		final Caching configuredCaching = ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING);
+		final Caching caching = (configuredCaching == Caching.TIERED) ? ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING_L2) : configuredCaching;
 		final String jdbcDriver = ConfigurationResolver.resolveString(event.getServletContext(), Configuration.Key.JDBC_DRIVER);
 		if ((caching == Caching.JDBC) || (caching == Caching.JPA)) {
 			try {
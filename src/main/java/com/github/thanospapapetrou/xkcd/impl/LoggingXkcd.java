@@ -1,13 +1,14 @@
 package com.github.thanospapapetrou.xkcd.impl;
 
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import javax.decorator.Decorator;
 import javax.decorator.Delegate;
 import javax.inject.Inject;
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd;
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd;
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
 
@@ -17,13 +18,13 @@ import com.github.thanospapapetrou.xkcd.domain.Comic;
  * @author thanos
  */
 @Decorator
-public class LoggingXkcd implements Xkcd {
+public class LoggingXkcd implements AsyncXkcd {
 	private static final String COMIC_NOT_FOUND = "Comic %1$d not found";
 	private static final String COMIC_RETRIEVED = "Comic %1$d retrieved";
 	private static final String CURRENT_COMIC_RETRIEVED = "Current comic (%1$d) retrieved";
 	private static final String NULL_XKCD = "xkcd must not be null";
 
-	private final Xkcd xkcd;
+	private final AsyncXkcd xkcd;
 	private final Logger logger;
 
 	/**
@@ -33,11 +34,11 @@ public class LoggingXkcd implements Xkcd {
 	 *            the xkcd to use for comic retrieval
 	 */
 	@Inject
-	public LoggingXkcd(@Delegate final Xkcd xkcd) {
+	public LoggingXkcd(@Delegate final AsyncXkcd xkcd) {
 		this(Objects.requireNonNull(xkcd, NULL_XKCD), Logger.getLogger(LoggingXkcd.class.getCanonicalName()));
 	}
 
-	private LoggingXkcd(final Xkcd xkcd, final Logger logger) {
+	private LoggingXkcd(final AsyncXkcd xkcd, final Logger logger) {
 		// this constructor exists just for testing
 		this.xkcd = xkcd;
 		this.logger = logger;
@@ -45,14 +46,30 @@ public class LoggingXkcd implements Xkcd {
 
 	@Override
 	public Comic getComic(final int id) throws XkcdException {
-		final Comic comic = xkcd.getComic(id);
-		logger.info(String.format((comic == null) ? COMIC_NOT_FOUND : COMIC_RETRIEVED, id));
-		return comic;
+		return logComic(id, xkcd.getComic(id));
 	}
 
 	@Override
 	public Comic getCurrentComic() throws XkcdException {
-		final Comic comic = xkcd.getCurrentComic();
+		return logCurrentComic(xkcd.getCurrentComic());
+	}
+
+	@Override
+	public CompletionStage<Comic> getComicAsync(final int id) {
+		return xkcd.getComicAsync(id).thenApply((final Comic comic) -> logComic(id, comic));
+	}
+
+	@Override
+	public CompletionStage<Comic> getCurrentComicAsync() {
+		return xkcd.getCurrentComicAsync().thenApply(this::logCurrentComic);
+	}
+
+	private Comic logComic(final int id, final Comic comic) {
+		logger.info(String.format((comic == null) ? COMIC_NOT_FOUND : COMIC_RETRIEVED, id));
+		return comic;
+	}
+
+	private Comic logCurrentComic(final Comic comic) {
 		logger.info(String.format(CURRENT_COMIC_RETRIEVED, comic.getId()));
 		return comic;
 	}
@@ -0,0 +1,21 @@
+package com.github.thanospapapetrou.xkcd.impl;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+
+/**
+ * Interface representing a blocking comic retrieval, executed either by a {@link BlockingExecutor} or by a {@link com.github.thanospapapetrou.xkcd.impl.cache.RequestCoalescer}.
+ * 
+ * @author thanos
+ */
+@FunctionalInterface
+public interface Retrieval {
+	/**
+	 * Retrieve a comic.
+	 * 
+	 * @return the comic retrieved or <code>null</code> if it doesn't exist
+	 * @throws XkcdException
+	 *             if any errors occur while retrieving the comic
+	 */
+	public Comic retrieve() throws XkcdException;
+}
@@ -1,5 +1,8 @@
 package com.github.thanospapapetrou.xkcd.impl.cache;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
 
@@ -19,6 +22,16 @@ public interface Cache {
 	 */
 	public void save(final Comic comic) throws XkcdException;
 
+	/**
+	 * Save comics to the cache in bulk.
+	 * 
+	 * @param comics
+	 *            the comics to save
+	 * @throws XkcdException
+	 *             if any errors occur while saving the comics specified
+	 */
+	public void saveAll(final Collection<Comic> comics) throws XkcdException;
+
 	/**
 	 * Load a comic from the cache.
 	 * 
@@ -30,6 +43,19 @@ public interface Cache {
 	 */
 	public Comic load(final int id) throws XkcdException;
 
+	/**
+	 * Load a range of comics from the cache in bulk.
+	 * 
+	 * @param from
+	 *            the ID of the first comic to load (inclusive)
+	 * @param to
+	 *            the ID of the last comic to load (inclusive)
+	 * @return the comics within the range specified that can be found in the cache, ordered by ID
+	 * @throws XkcdException
+	 *             if any errors occur while retrieving the comics specified
+	 */
+	public List<Comic> loadAll(final int from, final int to) throws XkcdException;
+
 	/**
 	 * Load the latest comic from the cache.
 	 * 
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,32 +17,47 @@ import javax.decorator.Decorator;
 import javax.decorator.Delegate;
 import javax.inject.Inject;
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd;
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd;
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.BlockingExecutor;
 import com.github.thanospapapetrou.xkcd.impl.cdi.ImplementationSelector;
 
 /**
- * Decorator extending an xkcd implementation with caching. Instances of this class are thread-safe, provided they are constructed with a thread-safe xkcd and cache.
+ * Decorator extending an xkcd implementation with caching. Asynchronous retrievals are answered without blocking if the comic is known not to exist, while those that may block on the cache run on a blocking executor. Instances of this class are thread-safe, provided they are constructed with a thread-safe xkcd and cache.
  * 
  * @author thanos
  */
 @Decorator
-public class CachingXkcd implements Xkcd {
+public class CachingXkcd implements AsyncXkcd {
+	private static final String COMIC_BEYOND_CURRENT = "Comic %1$d is beyond current comic";
 	private static final String COMIC_CACHED = "Comic %1$d cached";
+	private static final String COMIC_KNOWN_MISSING = "Comic %1$d known to be missing";
 	private static final String COMIC_NOT_FOUND_IN_CACHE = "Comic %1$d not found in cache";
 	private static final String COMIC_RETRIEVED_FROM_CACHE = "Comic %1$d retrieved from cache";
+	private static final String CURRENT = "current";
 	private static final String CURRENT_COMIC_RETRIEVED_FROM_CACHE = "Current comic (%1$d) retrieved from cache";
 	private static final String ERROR_CACHING_COMIC = "Error caching comic %1$d";
+	private static final String ERROR_RETRIEVING_CURRENT_COMIC = "Error retrieving current comic, serving stale comic %1$d from cache";
 	private static final TimeZone GMT = TimeZone.getTimeZone("GMT+00:00");
 	private static final Logger LOGGER = Logger.getLogger(CachingXkcd.class.getCanonicalName());
 	private static final String LATEST_COMIC_FOUND_IN_CACHE_IS_STALE = "Latest comic found in cache (%1$d) is stale";
 	private static final String NO_COMIC_FOUND_IN_CACHE = "No comic found in cache";
+	private static final String NULL_BLOCKING_EXECUTOR = "Blocking executor must not be null";
+	private static final String NULL_COALESCER = "Coalescer must not be null";
+	private static final String NULL_NAVIGATION = "Navigation must not be null";
+	private static final String NULL_NEGATIVE_CACHE = "Negative cache must not be null";
+	private static final String NULL_REFRESHER = "Refresher must not be null";
 	private static final String NULL_XKCD = "xkcd must not be null";
 	private static final List<Integer> UPDATE_DAYS = Arrays.asList(GregorianCalendar.MONDAY, GregorianCalendar.WEDNESDAY, GregorianCalendar.FRIDAY);
 
-	private final Xkcd xkcd;
+	private final AsyncXkcd xkcd;
 	private final Cache cache;
+	private final RequestCoalescer coalescer;
+	private final CurrentComicRefresher refresher;
+	private final NegativeCache negativeCache;
+	private final NavigationMetadata navigation;
+	private final BlockingExecutor blockingExecutor;
 
 	/**
 	 * Construct a new caching xkcd.
@@ -49,14 +66,36 @@ public class CachingXkcd implements Xkcd {
 	 *            the xkcd to use for comic retrieval
 	 * @param cache
 	 *            the cache to use for already retrieved comics
+	 * @param coalescer
+	 *            the request coalescer to use for retrieving comics missing from the cache
+	 * @param refresher
+	 *            the refresher to use for keeping the current comic up to date
+	 * @param negativeCache
+	 *            the negative cache to use for comics reported missing
+	 * @param navigation
+	 *            the navigation metadata to update with the current comic
+	 * @param blockingExecutor
+	 *            the executor to use for asynchronous retrievals that may block on the cache
 	 */
 	@Inject
-	public CachingXkcd(@Delegate final Xkcd xkcd, @ImplementationSelector final Cache cache) {
+	public CachingXkcd(@Delegate final AsyncXkcd xkcd, @ImplementationSelector final Cache cache, final RequestCoalescer coalescer, final CurrentComicRefresher refresher, final NegativeCache negativeCache, final NavigationMetadata navigation, final BlockingExecutor blockingExecutor) {
 		this.xkcd = Objects.requireNonNull(xkcd, NULL_XKCD);
 		this.cache = cache;
+		this.coalescer = Objects.requireNonNull(coalescer, NULL_COALESCER);
+		this.refresher = Objects.requireNonNull(refresher, NULL_REFRESHER);
+		this.negativeCache = Objects.requireNonNull(negativeCache, NULL_NEGATIVE_CACHE);
+		this.navigation = Objects.requireNonNull(navigation, NULL_NAVIGATION);
+		this.blockingExecutor = Objects.requireNonNull(blockingExecutor, NULL_BLOCKING_EXECUTOR);
 	}
 
-	private static Date nextUpdate(final Date date) {
+	/**
+	 * Get the time the comic following a comic is expected to be published.
+	 * 
+	 * @param date
+	 *            the publication date of the comic
+	 * @return the publication date of the comic expected to follow it
+	 */
+	public static Date nextUpdate(final Date date) {
 		final Calendar calendar = new GregorianCalendar(GMT, Locale.ROOT);
 		calendar.setTime(date);
 		do {
@@ -67,48 +106,123 @@ public class CachingXkcd implements Xkcd {
 
 	@Override
 	public Comic getComic(final int id) throws XkcdException {
+		if (id < 1) {
+			return null;
+		}
 		if (cache == null) {
 			return xkcd.getComic(id);
 		}
-		Comic comic = cache.load(id);
+		return isKnownMissing(id) ? null : load(id);
+	}
+
+	@Override
+	public Comic getCurrentComic() throws XkcdException {
+		final Comic current = loadCurrent();
+		navigation.update(current);
+		return current;
+	}
+
+	@Override
+	public CompletionStage<Comic> getComicAsync(final int id) {
+		if (id < 1) {
+			return CompletableFuture.completedFuture(null);
+		}
+		if (cache == null) {
+			return xkcd.getComicAsync(id);
+		}
+		return isKnownMissing(id) ? CompletableFuture.completedFuture(null) : blockingExecutor.submit(() -> load(id));
+	}
+
+	@Override
+	public CompletionStage<Comic> getCurrentComicAsync() {
+		if (cache == null) {
+			return xkcd.getCurrentComicAsync().thenApply((final Comic current) -> {
+				navigation.update(current);
+				return current;
+			});
+		}
+		return blockingExecutor.submit(this::getCurrentComic);
+	}
+
+	private boolean isKnownMissing(final int id) {
+		if (refresher.isBeyondCurrent(id)) {
+			LOGGER.fine(String.format(COMIC_BEYOND_CURRENT, id));
+			return true;
+		}
+		if (negativeCache.isMissing(id)) {
+			LOGGER.fine(String.format(COMIC_KNOWN_MISSING, id));
+			return true;
+		}
+		return false;
+	}
+
+	private Comic load(final int id) throws XkcdException {
+		final Comic comic = cache.load(id);
 		if (comic == null) {
 			LOGGER.fine(String.format(COMIC_NOT_FOUND_IN_CACHE, id));
-			comic = xkcd.getComic(id);
-			if (comic != null) {
-				try {
-					cache.save(comic);
-					LOGGER.fine(String.format(COMIC_CACHED, id));
-				} catch (final XkcdException e) {
-					LOGGER.log(Level.WARNING, String.format(ERROR_CACHING_COMIC, id), e);
-				}
-			}
-		} else {
-			LOGGER.fine(String.format(COMIC_RETRIEVED_FROM_CACHE, id));
+			return coalescer.coalesce(id, () -> retrieve(id));
 		}
+		LOGGER.fine(String.format(COMIC_RETRIEVED_FROM_CACHE, id));
 		return comic;
 	}
 
-	@Override
-	public Comic getCurrentComic() throws XkcdException {
+	private Comic loadCurrent() throws XkcdException {
 		if (cache == null) {
 			return xkcd.getCurrentComic();
 		}
-		Comic comic = cache.loadLatest();
+		final Comic current = refresher.getCurrentComic();
+		if (current != null) {
+			LOGGER.fine(String.format(CURRENT_COMIC_RETRIEVED_FROM_CACHE, current.getId()));
+			return current;
+		}
+		final Comic comic = cache.loadLatest();
 		if ((comic == null) || (nextUpdate(comic.getDate()).before(new Date()))) {
 			LOGGER.fine((comic == null) ? NO_COMIC_FOUND_IN_CACHE : String.format(LATEST_COMIC_FOUND_IN_CACHE_IS_STALE, comic.getId()));
-			final Integer cachedId = (comic == null) ? null : comic.getId();
-			comic = xkcd.getCurrentComic();
-			if ((cachedId == null) || (cachedId != comic.getId())) {
-				try {
-					cache.save(comic);
-					LOGGER.fine(String.format(COMIC_CACHED, comic.getId()));
-				} catch (final XkcdException e) {
-					LOGGER.log(Level.WARNING, String.format(ERROR_CACHING_COMIC, comic.getId()), e);
+			try {
+				final Comic retrieved = coalescer.coalesce(CURRENT, () -> retrieveCurrent((comic == null) ? null : comic.getId()));
+				refresher.update(retrieved);
+				return retrieved;
+			} catch (final XkcdException e) {
+				if ((comic == null) || !refresher.isWithinMaxStaleness(comic)) {
+					throw e;
 				}
+				LOGGER.log(Level.WARNING, String.format(ERROR_RETRIEVING_CURRENT_COMIC, comic.getId()), e);
+				return comic;
 			}
-		} else {
-			LOGGER.fine(String.format(CURRENT_COMIC_RETRIEVED_FROM_CACHE, comic.getId()));
 		}
+		LOGGER.fine(String.format(CURRENT_COMIC_RETRIEVED_FROM_CACHE, comic.getId()));
+		refresher.update(comic);
 		return comic;
 	}
+
+	private Comic retrieve(final int id) throws XkcdException {
+		// the comic may have been cached by a retrieval that was in flight when the cache was checked
+		Comic comic = cache.load(id);
+		if (comic == null) {
+			comic = xkcd.getComic(id);
+			if (comic == null) {
+				negativeCache.markMissing(id);
+			} else {
+				save(comic);
+			}
+		}
+		return comic;
+	}
+
+	private Comic retrieveCurrent(final Integer cachedId) throws XkcdException {
+		final Comic comic = xkcd.getCurrentComic();
+		if ((cachedId == null) || (cachedId != comic.getId())) {
+			save(comic);
+		}
+		return comic;
+	}
+
+	private void save(final Comic comic) {
+		try {
+			cache.save(comic);
+			LOGGER.fine(String.format(COMIC_CACHED, comic.getId()));
+		} catch (final XkcdException e) {
+			LOGGER.log(Level.WARNING, String.format(ERROR_CACHING_COMIC, comic.getId()), e);
+		}
+	}
 }
@@ -0,0 +1,211 @@
+package com.github.thanospapapetrou.xkcd.impl.cache;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+import com.github.thanospapapetrou.xkcd.impl.cdi.ImplementationSelector;
+import com.github.thanospapapetrou.xkcd.impl.jax.rs.XkcdClient;
+
+/**
+ * Class keeping the current comic up to date in the background. The current comic is polled on a fixed cadence once it is due to be updated, so that requests can always be answered from the last value retrieved (stale while revalidate), even if xkcd is unavailable (stale if error), as long as it is not older than a maximum staleness. New current comics retrieved are cached right away. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class CurrentComicRefresher {
+	private static final class Snapshot {
+		private final Comic comic;
+		private final long retrieved;
+
+		private Snapshot(final Comic comic, final long retrieved) {
+			this.comic = comic;
+			this.retrieved = retrieved;
+		}
+	}
+
+	private static final String COMIC_CACHED = "Comic %1$d cached";
+	private static final String CURRENT_COMIC_REFRESHED = "Current comic (%1$d) refreshed";
+	private static final String ERROR_CACHING_COMIC = "Error caching comic %1$d";
+	private static final String ERROR_REFRESHING_CURRENT_COMIC = "Error refreshing current comic";
+	private static final Logger LOGGER = Logger.getLogger(CurrentComicRefresher.class.getCanonicalName());
+	private static final String NEGATIVE_MAX_STALENESS = "Max staleness must not be negative";
+	private static final String NON_POSITIVE_REFRESH_INTERVAL = "Refresh interval must be positive";
+	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_NAVIGATION = "Navigation must not be null";
+	private static final String NULL_XKCD = "xkcd must not be null";
+	private static final String THREAD_NAME = "xkcd-current-comic-refresher";
+
+	private final XkcdClient xkcd;
+	private final Cache cache;
+	private final long refreshInterval;
+	private final long maxStaleness;
+	private final AtomicReference<Snapshot> snapshot;
+	private final NavigationMetadata navigation;
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Construct a new current comic refresher.
+	 * 
+	 * @param xkcd
+	 *            the xkcd client to use for retrieving the current comic
+	 * @param cache
+	 *            the cache to save new current comics to or <code>null</code> if caching is disabled
+	 * @param refreshInterval
+	 *            the interval (in milliseconds) between polls for the current comic
+	 * @param maxStaleness
+	 *            the maximum time (in milliseconds) for which the current comic may be served after it is due to be updated without having been confirmed against xkcd
+	 * @param navigation
+	 *            the navigation metadata to update with the current comic
+	 */
+	@Inject
+	public CurrentComicRefresher(final XkcdClient xkcd, @ImplementationSelector final Cache cache, @Configuration(Configuration.Key.CURRENT_COMIC_REFRESH_INTERVAL) final long refreshInterval, @Configuration(Configuration.Key.CURRENT_COMIC_MAX_STALENESS) final long maxStaleness, final NavigationMetadata navigation) {
+		if (refreshInterval <= 0L) {
+			throw new IllegalArgumentException(NON_POSITIVE_REFRESH_INTERVAL);
+		}
+		if (maxStaleness < 0L) {
+			throw new IllegalArgumentException(NEGATIVE_MAX_STALENESS);
+		}
+		this.xkcd = Objects.requireNonNull(xkcd, NULL_XKCD);
+		this.cache = cache;
+		this.refreshInterval = refreshInterval;
+		this.maxStaleness = maxStaleness;
+		snapshot = new AtomicReference<>();
+		this.navigation = Objects.requireNonNull(navigation, NULL_NAVIGATION);
+	}
+
+	CurrentComicRefresher() {
+		// this constructor exists just to keep CDI happy
+		xkcd = null;
+		cache = null;
+		refreshInterval = 0L;
+		maxStaleness = 0L;
+		snapshot = null;
+		navigation = null;
+	}
+
+	private static long staleness(final Comic comic, final long confirmed, final long now) {
+		return now - Math.max(confirmed, CachingXkcd.nextUpdate(comic.getDate()).getTime());
+	}
+
+	/**
+	 * Start polling for the current comic.
+	 */
+	@PostConstruct
+	public void start() {
+		executor = Executors.newSingleThreadScheduledExecutor((final Runnable runnable) -> {
+			final Thread thread = new Thread(runnable, THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::refresh, 0L, refreshInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop polling for the current comic.
+	 */
+	@PreDestroy
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Get the current comic.
+	 * 
+	 * @return the last current comic retrieved or <code>null</code> if no current comic has been retrieved yet or if the one retrieved has exceeded the maximum staleness
+	 */
+	public Comic getCurrentComic() {
+		final Snapshot snapshot = this.snapshot.get();
+		return ((snapshot == null) || (staleness(snapshot.comic, snapshot.retrieved, System.currentTimeMillis()) > maxStaleness)) ? null : snapshot.comic;
+	}
+
+	/**
+	 * Check whether a comic is known not to exist yet, since its ID is greater than the ID of the current comic. This is only known while the current comic is fresh, that is either not due to be updated or confirmed against xkcd within the last refresh interval.
+	 * 
+	 * @param id
+	 *            the ID of the comic to check
+	 * @return <code>true</code> if the comic is known not to exist yet, <code>false</code> otherwise
+	 */
+	public boolean isBeyondCurrent(final int id) {
+		final Snapshot snapshot = this.snapshot.get();
+		return (snapshot != null) && (id > snapshot.comic.getId()) && (staleness(snapshot.comic, snapshot.retrieved, System.currentTimeMillis()) < refreshInterval);
+	}
+
+	/**
+	 * Check whether a comic may still be served as the current comic.
+	 * 
+	 * @param comic
+	 *            the comic to check
+	 * @return <code>true</code> if the comic has not been due to be updated for longer than the maximum staleness, <code>false</code> otherwise
+	 */
+	public boolean isWithinMaxStaleness(final Comic comic) {
+		return staleness(Objects.requireNonNull(comic, NULL_COMIC), 0L, System.currentTimeMillis()) <= maxStaleness;
+	}
+
+	/**
+	 * Update the current comic with one retrieved or cached by a request.
+	 * 
+	 * @param comic
+	 *            the current comic
+	 */
+	public void update(final Comic comic) {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		final long retrieved = System.currentTimeMillis();
+		snapshot.updateAndGet((final Snapshot snapshot) -> {
+			if ((snapshot == null) || (snapshot.comic.getId() < comic.getId())) {
+				return new Snapshot(comic, retrieved);
+			}
+			if (snapshot.comic.getId() == comic.getId()) {
+				return new Snapshot(snapshot.comic, Math.max(snapshot.retrieved, retrieved));
+			}
+			return snapshot;
+		});
+		navigation.update(comic);
+	}
+
+	void refresh() {
+		// this method is package private just for testing
+		final Snapshot snapshot = this.snapshot.get();
+		if ((snapshot == null) || (staleness(snapshot.comic, snapshot.retrieved, System.currentTimeMillis()) >= 0L)) {
+			try {
+				final Comic comic = xkcd.retrieveCurrentComic();
+				if ((snapshot == null) || (snapshot.comic.getId() < comic.getId())) {
+					save(comic);
+				}
+				update(comic);
+				LOGGER.fine(String.format(CURRENT_COMIC_REFRESHED, comic.getId()));
+			} catch (final XkcdException | RuntimeException e) {
+				// errors must not propagate, since they would cancel any subsequent polls
+				LOGGER.log(Level.WARNING, ERROR_REFRESHING_CURRENT_COMIC, e);
+			}
+		}
+	}
+
+	private void save(final Comic comic) {
+		if (cache != null) {
+			try {
+				// comics retrieved by requests are cached by them, so the cache is checked first
+				if (cache.load(comic.getId()) == null) {
+					cache.save(comic);
+					LOGGER.fine(String.format(COMIC_CACHED, comic.getId()));
+				}
+			} catch (final XkcdException e) {
+				LOGGER.log(Level.WARNING, String.format(ERROR_CACHING_COMIC, comic.getId()), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.github.thanospapapetrou.xkcd.impl.cache;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+
+/**
+ * Class holding in memory the navigation metadata needed for rendering comic pages, namely the current comic. The current comic is updated whenever a newer one is learned of while retrieving, caching or refreshing it, so that it can be read without any I/O. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class NavigationMetadata {
+	private static final String NULL_COMIC = "Comic must not be null";
+
+	private final AtomicReference<Comic> current;
+
+	/**
+	 * Construct new navigation metadata.
+	 */
+	public NavigationMetadata() {
+		current = new AtomicReference<>();
+	}
+
+	/**
+	 * Get the current comic.
+	 * 
+	 * @return the newest current comic learned of or <code>null</code> if no current comic has been learned of yet
+	 */
+	public Comic getCurrentComic() {
+		return current.get();
+	}
+
+	/**
+	 * Get the ID of the current comic.
+	 * 
+	 * @param atLeast
+	 *            the ID of a comic known to exist
+	 * @return the ID of the newest current comic learned of or the ID given if it is greater
+	 */
+	public int getCurrentId(final int atLeast) {
+		final Comic current = this.current.get();
+		return (current == null) ? atLeast : Math.max(current.getId(), atLeast);
+	}
+
+	/**
+	 * Update the current comic, unless a newer one has already been learned of.
+	 * 
+	 * @param comic
+	 *            the current comic
+	 */
+	public void update(final Comic comic) {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		current.accumulateAndGet(comic, (final Comic known, final Comic learned) -> ((known == null) || (known.getId() < learned.getId())) ? learned : known);
+	}
+}
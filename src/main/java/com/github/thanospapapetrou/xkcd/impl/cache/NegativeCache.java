@@ -0,0 +1,96 @@
+package com.github.thanospapapetrou.xkcd.impl.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class remembering IDs of comics reported missing by xkcd for a limited time, so that repeated requests for them are not retrieved again. Since every comic is remembered for the same time, comics are kept in expiration order, so that expired comics are purged as new ones are remembered and the comics remembered the longest are forgotten first once a maximum number of comics is exceeded. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class NegativeCache {
+	private static final String NEGATIVE_TTL = "TTL must not be negative";
+	private static final String NON_POSITIVE_MAX_SIZE = "Max size must be positive";
+
+	private final long ttl;
+	private final int maxSize;
+	private final Map<Integer, Long> expirations;
+
+	/**
+	 * Construct a new negative cache.
+	 * 
+	 * @param ttl
+	 *            the time (in milliseconds) to remember missing comics for
+	 * @param maxSize
+	 *            the maximum number of missing comics to remember
+	 */
+	@Inject
+	public NegativeCache(@Configuration(Configuration.Key.NEGATIVE_CACHE_TTL) final long ttl, @Configuration(Configuration.Key.NEGATIVE_CACHE_MAX_SIZE) final int maxSize) {
+		if (ttl < 0L) {
+			throw new IllegalArgumentException(NEGATIVE_TTL);
+		}
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_MAX_SIZE);
+		}
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+		expirations = new LinkedHashMap<>();
+	}
+
+	NegativeCache() {
+		// this constructor exists just to keep CDI happy
+		ttl = 0L;
+		maxSize = 0;
+		expirations = null;
+	}
+
+	/**
+	 * Check whether a comic has been reported missing.
+	 * 
+	 * @param id
+	 *            the ID of the comic to check
+	 * @return <code>true</code> if the comic has been reported missing within the TTL, <code>false</code> otherwise
+	 */
+	public synchronized boolean isMissing(final int id) {
+		final long now = System.currentTimeMillis();
+		purge(now);
+		final Long expiration = expirations.get(id);
+		return (expiration != null) && (expiration >= now);
+	}
+
+	/**
+	 * Remember a comic as missing.
+	 * 
+	 * @param id
+	 *            the ID of the missing comic
+	 */
+	public synchronized void markMissing(final int id) {
+		final long now = System.currentTimeMillis();
+		// removing the comic first moves it to the end of the expiration order
+		expirations.remove(id);
+		expirations.put(id, now + ttl);
+		purge(now);
+		for (final Iterator<Integer> iterator = expirations.keySet().iterator(); (expirations.size() > maxSize) && iterator.hasNext();) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	int size() {
+		// this method is package private just for testing
+		return expirations.size();
+	}
+
+	private void purge(final long now) {
+		for (final Iterator<Long> iterator = expirations.values().iterator(); iterator.hasNext() && (iterator.next() < now);) {
+			iterator.remove();
+		}
+	}
+}
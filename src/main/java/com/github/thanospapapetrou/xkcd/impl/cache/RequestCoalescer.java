@@ -0,0 +1,87 @@
+package com.github.thanospapapetrou.xkcd.impl.cache;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.Retrieval;
+
+/**
+ * Class coalescing concurrent retrievals of the same comic, so that only one of them is in flight at any time and all others wait for its result. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class RequestCoalescer {
+	private static final String ERROR_WAITING_FOR_RETRIEVAL = "Error waiting for retrieval of %1$s";
+	private static final Logger LOGGER = Logger.getLogger(RequestCoalescer.class.getCanonicalName());
+	private static final String NULL_KEY = "Key must not be null";
+	private static final String NULL_RETRIEVAL = "Retrieval must not be null";
+	private static final String WAITING_FOR_RETRIEVAL = "Waiting for retrieval of %1$s in flight";
+
+	private final ConcurrentMap<Object, CompletableFuture<Comic>> flights;
+
+	/**
+	 * Construct a new request coalescer.
+	 */
+	public RequestCoalescer() {
+		flights = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Retrieve a comic, unless a retrieval with the same key is already in flight, in which case wait for its result instead.
+	 * 
+	 * @param key
+	 *            the key identifying the comic to retrieve
+	 * @param retrieval
+	 *            the retrieval to execute if no retrieval with the same key is in flight
+	 * @return the comic retrieved or <code>null</code> if it doesn't exist
+	 * @throws XkcdException
+	 *             if any errors occur while retrieving the comic or while waiting for the retrieval in flight
+	 */
+	public Comic coalesce(final Object key, final Retrieval retrieval) throws XkcdException {
+		Objects.requireNonNull(key, NULL_KEY);
+		Objects.requireNonNull(retrieval, NULL_RETRIEVAL);
+		final CompletableFuture<Comic> flight = new CompletableFuture<>();
+		final CompletableFuture<Comic> inFlight = flights.putIfAbsent(key, flight);
+		if (inFlight != null) {
+			LOGGER.fine(String.format(WAITING_FOR_RETRIEVAL, key));
+			return await(key, inFlight);
+		}
+		try {
+			final Comic comic = retrieval.retrieve();
+			flight.complete(comic);
+			return comic;
+		} catch (final Throwable e) {
+			// errors must complete the flight as well, otherwise callers waiting for it would wait forever
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+
+	private Comic await(final Object key, final CompletableFuture<Comic> flight) throws XkcdException {
+		try {
+			return flight.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XkcdException(String.format(ERROR_WAITING_FOR_RETRIEVAL, key), e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new XkcdException(String.format(ERROR_WAITING_FOR_RETRIEVAL, key), e.getCause());
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.backfill;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Caching;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+import com.github.thanospapapetrou.xkcd.impl.cdi.ImplementationSelector;
+import com.github.thanospapapetrou.xkcd.impl.jax.rs.XkcdClient;
+
+/**
+ * Class backfilling the cache with the archive of comics, from the first one up to the current one. Comics are retrieved in parallel by a bounded number of workers, at a limited rate, in batches of consecutive comics that are looked up in and saved to the cache in bulk, skipping comics already cached. Comics are retrieved through the xkcd client serving requests, bypassing its decorators, so that backfills and requests share its bound on concurrent connections. Progress of persistent caches is checkpointed to a file, so that an interrupted backfill resumes where it left off, while other caches are backfilled from the first comic, since they start empty. Backfills may be run on startup or on demand, but only one at a time, while the threads running them are only created once the first one is started. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class Backfill {
+	private static final String BACKFILL_ALREADY_RUNNING = "Backfill already running";
+	private static final String BACKFILL_COMPLETED = "Backfill completed: %1$s";
+	private static final String BACKFILL_INTERRUPTED = "Backfill interrupted: %1$s";
+	private static final String BACKFILL_PROGRESS = "Backfill progress: %1$s";
+	private static final String BACKFILL_STARTED = "Backfill of comics %1$d to %2$d started";
+	private static final String BACKFILL_WITHOUT_CACHE = "Backfill not started, since caching is disabled";
+	private static final int BATCH_SIZE = 25;
+	private static final int CHECKPOINT_INTERVAL = 100;
+	private static final String COORDINATOR_THREAD_NAME = "xkcd-backfill";
+	private static final String ERROR_BACKFILLING = "Error backfilling comics";
+	private static final String ERROR_BACKFILLING_COMIC = "Error backfilling comic %1$d";
+	private static final String ERROR_LOADING_COMICS = "Error loading comics %1$d to %2$d";
+	private static final String ERROR_READING_CHECKPOINT = "Error reading checkpoint %1$s";
+	private static final String ERROR_WRITING_CHECKPOINT = "Error writing checkpoint %1$s";
+	private static final String IDLE = "idle";
+	private static final Logger LOGGER = Logger.getLogger(Backfill.class.getCanonicalName());
+	private static final String NON_POSITIVE_CONCURRENCY = "Concurrency must be positive";
+	private static final String NULL_CACHING = "Caching must not be null";
+	private static final String NULL_CHECKPOINT_FILE = "Checkpoint file must not be null";
+	private static final String NULL_CLIENT = "Client must not be null";
+	private static final String PROGRESS = "%1$s, checkpoint %2$d of %3$d, %4$d retrieved, %5$d skipped, %6$d missing, %7$d failed";
+	private static final String RUNNING = "running";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final String WORKER_THREAD_NAME = "xkcd-backfill-%1$d";
+
+	private final XkcdClient client;
+	private final Cache cache;
+	private final Caching caching;
+	private final int concurrency;
+	private final TokenBucket bucket;
+	private final Path checkpointFile;
+	private final boolean onStartup;
+	private final BitSet completed;
+	private final LongAdder retrieved;
+	private final LongAdder skipped;
+	private final LongAdder missing;
+	private final LongAdder failed;
+	private ExecutorService coordinator;
+	private ExecutorService workers;
+	private boolean running;
+	private int checkpoint;
+	private int target;
+
+	/**
+	 * Construct a new backfill.
+	 * 
+	 * @param client
+	 *            the xkcd client to use for retrieving comics
+	 * @param cache
+	 *            the cache to backfill or <code>null</code> if caching is disabled
+	 * @param caching
+	 *            the caching mode of the cache to backfill
+	 * @param concurrency
+	 *            the number of comics to retrieve in parallel
+	 * @param rate
+	 *            the maximum number of comics to retrieve per second
+	 * @param checkpointFile
+	 *            the file to checkpoint progress to
+	 * @param onStartup
+	 *            whether to run a backfill on startup
+	 */
+	@Inject
+	public Backfill(final XkcdClient client, @ImplementationSelector final Cache cache, @Configuration(Configuration.Key.CACHING) final Caching caching, @Configuration(Configuration.Key.BACKFILL_CONCURRENCY) final int concurrency, @Configuration(Configuration.Key.BACKFILL_RATE) final int rate, @Configuration(Configuration.Key.BACKFILL_CHECKPOINT_FILE) final String checkpointFile, @Configuration(Configuration.Key.BACKFILL_ON_STARTUP) final boolean onStartup) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_CONCURRENCY);
+		}
+		this.client = Objects.requireNonNull(client, NULL_CLIENT);
+		this.cache = cache;
+		this.caching = Objects.requireNonNull(caching, NULL_CACHING);
+		this.concurrency = concurrency;
+		bucket = new TokenBucket(rate);
+		this.checkpointFile = Paths.get(Objects.requireNonNull(checkpointFile, NULL_CHECKPOINT_FILE));
+		this.onStartup = onStartup;
+		completed = new BitSet();
+		retrieved = new LongAdder();
+		skipped = new LongAdder();
+		missing = new LongAdder();
+		failed = new LongAdder();
+		running = false;
+		checkpoint = 0;
+		target = 0;
+	}
+
+	Backfill() {
+		// this constructor exists just to keep CDI happy
+		client = null;
+		cache = null;
+		caching = null;
+		concurrency = 0;
+		bucket = null;
+		checkpointFile = null;
+		onStartup = false;
+		completed = null;
+		retrieved = null;
+		skipped = null;
+		missing = null;
+		failed = null;
+	}
+
+	private static ThreadFactory threadFactory(final String name) {
+		final AtomicInteger threads = new AtomicInteger();
+		return (final Runnable runnable) -> {
+			final Thread thread = new Thread(runnable, String.format(name, threads.incrementAndGet()));
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Start a backfill on startup, if configured to do so.
+	 * 
+	 * @param event
+	 *            the event signaling application startup
+	 */
+	public void onStartup(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+		if (onStartup) {
+			start();
+		}
+	}
+
+	/**
+	 * Stop any backfill running.
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		if (coordinator != null) {
+			coordinator.shutdownNow();
+		}
+		if (workers != null) {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Start a backfill in the background, unless one is already running.
+	 * 
+	 * @return <code>true</code> if a backfill was started, <code>false</code> if one is already running or if caching is disabled
+	 */
+	public synchronized boolean start() {
+		if (cache == null) {
+			LOGGER.warning(BACKFILL_WITHOUT_CACHE);
+			return false;
+		}
+		if (running) {
+			LOGGER.fine(BACKFILL_ALREADY_RUNNING);
+			return false;
+		}
+		running = true;
+		if (coordinator == null) {
+			coordinator = Executors.newSingleThreadExecutor(threadFactory(COORDINATOR_THREAD_NAME));
+		}
+		coordinator.execute(this::run);
+		return true;
+	}
+
+	/**
+	 * Get the progress of the last backfill.
+	 * 
+	 * @return a description of the progress of the last backfill
+	 */
+	public synchronized String getProgress() {
+		return String.format(PROGRESS, running ? RUNNING : IDLE, checkpoint, target, retrieved.sum(), skipped.sum(), missing.sum(), failed.sum());
+	}
+
+	void run() {
+		// this method is package private just for testing
+		boolean started = false;
+		try {
+			final int checkpoint = readCheckpoint();
+			bucket.acquire();
+			final int target = client.retrieveCurrentComic().getId();
+			synchronized (this) {
+				this.checkpoint = checkpoint;
+				this.target = target;
+				completed.clear();
+				retrieved.reset();
+				skipped.reset();
+				missing.reset();
+				failed.reset();
+			}
+			started = true;
+			LOGGER.info(String.format(BACKFILL_STARTED, checkpoint + 1, target));
+			final AtomicInteger next = new AtomicInteger(checkpoint + 1);
+			final List<Callable<Void>> tasks = new ArrayList<>(concurrency);
+			for (int i = 0; i < concurrency; i++) {
+				tasks.add(() -> {
+					work(next, target);
+					return null;
+				});
+			}
+			workers().invokeAll(tasks);
+			LOGGER.info(String.format(BACKFILL_COMPLETED, getProgress()));
+		} catch (final InterruptedException e) {
+			LOGGER.info(String.format(BACKFILL_INTERRUPTED, getProgress()));
+			Thread.currentThread().interrupt();
+		} catch (final XkcdException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, ERROR_BACKFILLING, e);
+		} finally {
+			synchronized (this) {
+				// the checkpoint is only written once this backfill has started, since it holds the checkpoint of the previous one until then
+				if (started) {
+					writeCheckpoint(checkpoint);
+				}
+				running = false;
+			}
+		}
+	}
+
+	private synchronized ExecutorService workers() {
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(concurrency, threadFactory(WORKER_THREAD_NAME));
+		}
+		return workers;
+	}
+
+	private void work(final AtomicInteger next, final int target) throws InterruptedException {
+		for (int from = next.getAndAdd(BATCH_SIZE); from <= target; from = next.getAndAdd(BATCH_SIZE)) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
+			}
+			backfill(from, Math.min(from + BATCH_SIZE - 1, target));
+		}
+	}
+
+	private void backfill(final int from, final int to) throws InterruptedException {
+		final BitSet batch = loadCached(from, to);
+		skipped.add(batch.cardinality());
+		final List<Comic> comics = new ArrayList<>();
+		try {
+			for (int id = from; id <= to; id++) {
+				if (!batch.get(id - from)) {
+					bucket.acquire();
+					try {
+						final Comic comic = client.retrieveComic(id);
+						if (comic == null) {
+							missing.increment();
+							batch.set(id - from);
+						} else {
+							comics.add(comic);
+						}
+					} catch (final XkcdException | RuntimeException e) {
+						failed.increment();
+						LOGGER.log(Level.WARNING, String.format(ERROR_BACKFILLING_COMIC, id), e);
+					}
+				}
+			}
+		} finally {
+			// comics retrieved are saved even if interrupted, so that retrieving them is not wasted
+			for (final Comic comic : save(comics)) {
+				batch.set(comic.getId() - from);
+			}
+			complete(from, batch);
+		}
+	}
+
+	private BitSet loadCached(final int from, final int to) {
+		final BitSet cached = new BitSet();
+		try {
+			for (final Comic comic : cache.loadAll(from, to)) {
+				cached.set(comic.getId() - from);
+			}
+		} catch (final XkcdException | RuntimeException e) {
+			// comics not known to be cached are retrieved, while saving them handles those cached after all
+			LOGGER.log(Level.WARNING, String.format(ERROR_LOADING_COMICS, from, to), e);
+		}
+		return cached;
+	}
+
+	private List<Comic> save(final List<Comic> comics) {
+		if (comics.isEmpty()) {
+			return comics;
+		}
+		try {
+			cache.saveAll(comics);
+			retrieved.add(comics.size());
+			return comics;
+		} catch (final XkcdException | RuntimeException e) {
+			// some comics may have been cached by requests in the meantime, so comics are saved one by one instead
+			final List<Comic> saved = new ArrayList<>();
+			for (final Comic comic : comics) {
+				try {
+					save(comic);
+					saved.add(comic);
+				} catch (final XkcdException | RuntimeException f) {
+					failed.increment();
+					LOGGER.log(Level.WARNING, String.format(ERROR_BACKFILLING_COMIC, comic.getId()), f);
+				}
+			}
+			return saved;
+		}
+	}
+
+	private void save(final Comic comic) throws XkcdException {
+		try {
+			cache.save(comic);
+			retrieved.increment();
+		} catch (final XkcdException e) {
+			// the comic may have been cached by a request in the meantime
+			if (cache.load(comic.getId()) == null) {
+				throw e;
+			}
+			skipped.increment();
+		}
+	}
+
+	private synchronized void complete(final int from, final BitSet batch) {
+		// the checkpoint only advances over consecutive comics completed, so that comics failed or in flight are retried on resume
+		for (int i = batch.nextSetBit(0); i >= 0; i = batch.nextSetBit(i + 1)) {
+			completed.set(from + i);
+		}
+		final int previous = checkpoint;
+		while (completed.get(checkpoint + 1)) {
+			checkpoint++;
+		}
+		if ((checkpoint / CHECKPOINT_INTERVAL) > (previous / CHECKPOINT_INTERVAL)) {
+			writeCheckpoint(checkpoint);
+			LOGGER.info(String.format(BACKFILL_PROGRESS, getProgress()));
+		}
+	}
+
+	private int readCheckpoint() {
+		if (!caching.isPersistent()) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8).trim());
+		} catch (final NoSuchFileException e) {
+			return 0;
+		} catch (final IOException | NumberFormatException e) {
+			LOGGER.log(Level.WARNING, String.format(ERROR_READING_CHECKPOINT, checkpointFile), e);
+			return 0;
+		}
+	}
+
+	private void writeCheckpoint(final int checkpoint) {
+		if (!caching.isPersistent()) {
+			return;
+		}
+		final Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + TEMPORARY_SUFFIX);
+		try {
+			Files.write(temporary, Integer.toString(checkpoint).getBytes(StandardCharsets.UTF_8));
+			Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			LOGGER.log(Level.WARNING, String.format(ERROR_WRITING_CHECKPOINT, checkpointFile), e);
+		}
+	}
+}
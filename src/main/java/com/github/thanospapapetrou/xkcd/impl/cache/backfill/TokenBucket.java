@@ -0,0 +1,59 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.backfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of requests to xkcd. Tokens are added at a fixed rate, up to a burst of one second worth of tokens, and each request consumes one token. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+final class TokenBucket {
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+	private static final String NON_POSITIVE_RATE = "Rate must be positive";
+
+	private final int rate;
+	private double tokens;
+	private long refilled;
+
+	/**
+	 * Construct a new token bucket.
+	 * 
+	 * @param rate
+	 *            the number of tokens to add per second
+	 */
+	TokenBucket(final int rate) {
+		if (rate <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_RATE);
+		}
+		this.rate = rate;
+		tokens = rate;
+		refilled = System.nanoTime();
+	}
+
+	/**
+	 * Acquire a token, waiting until one is available.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void acquire() throws InterruptedException {
+		// the wait is computed while holding the lock, but spent without it, so that other threads may reserve tokens meanwhile
+		final long wait = reserve();
+		if (wait > 0L) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	private synchronized long reserve() {
+		// tokens may be reserved in advance, leaving the bucket in debt, so that each thread waits for its own token to be added
+		refill();
+		tokens -= 1.0;
+		return (tokens >= 0.0) ? 0L : (long) Math.ceil(-tokens * NANOS_PER_SECOND / rate);
+	}
+
+	private void refill() {
+		final long now = System.nanoTime();
+		tokens = Math.min(rate, tokens + (double) (now - refilled) * rate / NANOS_PER_SECOND);
+		refilled = now;
+	}
+}
@@ -0,0 +1,535 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jdbc;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class implementing a pool of JDBC connections. Connections are kept between a minimum and a maximum number, validated before being reused if idle for a while, and closed if idle for longer than an idle timeout. Prepared statements are cached per connection. Connections handed out are proxies, which return the underlying connection to the pool when closed. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class ConnectionPool implements DataSource {
+	private final class PooledConnection {
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements;
+		private final Set<PreparedStatement> used;
+		private long idleSince;
+
+		private PooledConnection(final Connection connection) {
+			this.connection = connection;
+			statements = new LinkedHashMap<String, PreparedStatement>(statementCacheSize, LOAD_FACTOR, true) {
+				private static final long serialVersionUID = 0L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+					if (size() > statementCacheSize) {
+						// statements in use are closed once they are no longer used
+						if (!used.contains(eldest.getValue())) {
+							close(eldest.getValue());
+						}
+						return true;
+					}
+					return false;
+				}
+			};
+			used = Collections.newSetFromMap(new IdentityHashMap<>());
+			idleSince = System.nanoTime();
+		}
+
+		private PreparedStatement prepareStatement(final String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if ((statement == null) || used.contains(statement)) {
+				statementCacheMisses.increment();
+				statement = connection.prepareStatement(sql);
+				if ((statementCacheSize > 0) && !statements.containsKey(sql)) {
+					statements.put(sql, statement);
+				}
+			} else {
+				statementCacheHits.increment();
+			}
+			used.add(statement);
+			return statement;
+		}
+
+		private void release(final String sql, final PreparedStatement statement) throws SQLException {
+			used.remove(statement);
+			if (statements.get(sql) == statement) {
+				statement.clearParameters();
+				statement.clearBatch();
+			} else {
+				statement.close();
+			}
+		}
+
+		private void reset() throws SQLException {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			connection.clearWarnings();
+		}
+
+		private void close() {
+			for (final PreparedStatement statement : statements.values()) {
+				close(statement);
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (final SQLException e) {
+				LOGGER.log(Level.WARNING, ERROR_CLOSING_CONNECTION, e);
+			}
+		}
+
+		private void close(final PreparedStatement statement) {
+			try {
+				statement.close();
+			} catch (final SQLException e) {
+				LOGGER.log(Level.WARNING, ERROR_CLOSING_STATEMENT, e);
+			}
+		}
+	}
+
+	private final class ConnectionHandler implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final Connection proxy;
+		private boolean closed;
+
+		private ConnectionHandler(final PooledConnection pooled) {
+			this.pooled = pooled;
+			proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+			closed = false;
+		}
+
+		@Override
+		public Object invoke(final Object object, final Method method, final Object[] arguments) throws Throwable {
+			switch (method.getName()) {
+			case CLOSE:
+				if (!closed) {
+					closed = true;
+					release(pooled);
+				}
+				return null;
+			case IS_CLOSED:
+				return closed;
+			default:
+				if (closed) {
+					throw new SQLException(CONNECTION_CLOSED);
+				}
+				if (method.getName().equals(PREPARE_STATEMENT) && (arguments.length == 1)) {
+					final String sql = (String) arguments[0];
+					return new StatementHandler(this, sql, pooled.prepareStatement(sql)).proxy;
+				}
+				return delegate(pooled.connection, method, arguments);
+			}
+		}
+	}
+
+	private final class StatementHandler implements InvocationHandler {
+		private final ConnectionHandler connection;
+		private final String sql;
+		private final PreparedStatement statement;
+		private final PreparedStatement proxy;
+		private boolean closed;
+
+		private StatementHandler(final ConnectionHandler connection, final String sql, final PreparedStatement statement) {
+			this.connection = connection;
+			this.sql = sql;
+			this.statement = statement;
+			proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, this);
+			closed = false;
+		}
+
+		@Override
+		public Object invoke(final Object object, final Method method, final Object[] arguments) throws Throwable {
+			switch (method.getName()) {
+			case CLOSE:
+				if (!closed) {
+					closed = true;
+					connection.pooled.release(sql, statement);
+				}
+				return null;
+			case IS_CLOSED:
+				return closed;
+			case GET_CONNECTION:
+				return connection.proxy;
+			default:
+				if (closed) {
+					throw new SQLException(STATEMENT_CLOSED);
+				}
+				return delegate(statement, method, arguments);
+			}
+		}
+	}
+
+	private static final String ACQUIRE_TIMED_OUT = "Timed out after %1$d ms acquiring a connection";
+	private static final String CLOSE = "close";
+	private static final String CONNECTION_CLOSED = "Connection is closed";
+	private static final String ERROR_CLOSING_CONNECTION = "Error closing connection";
+	private static final String ERROR_CLOSING_STATEMENT = "Error closing statement";
+	private static final String ERROR_MAINTAINING_POOL = "Error maintaining connection pool";
+	private static final String ERROR_RESETTING_CONNECTION = "Error resetting connection";
+	private static final String GET_CONNECTION = "getConnection";
+	private static final String INTERRUPTED_ACQUIRING = "Interrupted while acquiring a connection";
+	private static final String INVALID_SIZE = "Minimum size must not be negative and maximum size must be positive and not less than minimum size";
+	private static final String IS_CLOSED = "isClosed";
+	private static final float LOAD_FACTOR = 0.75F;
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getCanonicalName());
+	private static final String NEGATIVE_STATEMENT_CACHE_SIZE = "Statement cache size must not be negative";
+	private static final String NON_POSITIVE_TIMEOUT = "Timeouts must be positive";
+	private static final String NOT_A_WRAPPER = "Not a wrapper for %1$s";
+	private static final String NULL_JDBC_DRIVER = "JDBC driver must not be null";
+	private static final String NULL_JDBC_URL = "JDBC URL must not be null";
+	private static final String POOL_STATISTICS = "Connection pool statistics: %1$d connections (%2$d idle), %3$d acquired, %4$d created, %5$d timed out, %6$d statement cache hits, %7$d statement cache misses";
+	private static final String PREPARE_STATEMENT = "prepareStatement";
+	private static final String STATEMENT_CLOSED = "Statement is closed";
+	private static final String THREAD_NAME = "xkcd-connection-pool";
+	private static final long VALIDATION_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(500L);
+
+	private final String jdbcUrl;
+	private final int minSize;
+	private final long idleTimeout;
+	private final long acquireTimeout;
+	private final int validationTimeout;
+	private final int statementCacheSize;
+	private final Deque<PooledConnection> idle;
+	private final Semaphore permits;
+	private final AtomicInteger size;
+	private final LongAdder acquired;
+	private final LongAdder created;
+	private final LongAdder timedOut;
+	private final LongAdder statementCacheHits;
+	private final LongAdder statementCacheMisses;
+	private final ScheduledExecutorService maintainer;
+	private volatile boolean closed;
+
+	/**
+	 * Construct a new connection pool.
+	 * 
+	 * @param jdbcDriver
+	 *            the JDBC driver to use
+	 * @param jdbcUrl
+	 *            the JDBC URL to use
+	 * @param minSize
+	 *            the minimum number of connections to keep
+	 * @param maxSize
+	 *            the maximum number of connections to open
+	 * @param idleTimeout
+	 *            the time (in milliseconds) after which connections idle are closed, as long as there are more than the minimum number of them
+	 * @param acquireTimeout
+	 *            the time (in milliseconds) to wait for a connection when all are in use
+	 * @param validationTimeout
+	 *            the time (in seconds) to wait for a connection to be validated
+	 * @param statementCacheSize
+	 *            the number of prepared statements to cache per connection
+	 * @throws ClassNotFoundException
+	 *             if the JDBC driver cannot be found
+	 */
+	@Inject
+	public ConnectionPool(@Configuration(Configuration.Key.JDBC_DRIVER) final String jdbcDriver, @Configuration(Configuration.Key.JDBC_URL) final String jdbcUrl, @Configuration(Configuration.Key.JDBC_POOL_MIN_SIZE) final int minSize, @Configuration(Configuration.Key.JDBC_POOL_MAX_SIZE) final int maxSize, @Configuration(Configuration.Key.JDBC_POOL_IDLE_TIMEOUT) final long idleTimeout, @Configuration(Configuration.Key.JDBC_POOL_ACQUIRE_TIMEOUT) final long acquireTimeout, @Configuration(Configuration.Key.JDBC_POOL_VALIDATION_TIMEOUT) final int validationTimeout, @Configuration(Configuration.Key.JDBC_POOL_STATEMENT_CACHE_SIZE) final int statementCacheSize) throws ClassNotFoundException {
+		Objects.requireNonNull(jdbcDriver, NULL_JDBC_DRIVER);
+		if ((minSize < 0) || (maxSize <= 0) || (maxSize < minSize)) {
+			throw new IllegalArgumentException(INVALID_SIZE);
+		}
+		if ((idleTimeout <= 0L) || (acquireTimeout <= 0L) || (validationTimeout <= 0)) {
+			throw new IllegalArgumentException(NON_POSITIVE_TIMEOUT);
+		}
+		if (statementCacheSize < 0) {
+			throw new IllegalArgumentException(NEGATIVE_STATEMENT_CACHE_SIZE);
+		}
+		// loading the JDBC driver is enough for it to register itself with the driver manager
+		Class.forName(jdbcDriver);
+		this.jdbcUrl = Objects.requireNonNull(jdbcUrl, NULL_JDBC_URL);
+		this.minSize = minSize;
+		this.idleTimeout = idleTimeout;
+		this.acquireTimeout = acquireTimeout;
+		this.validationTimeout = validationTimeout;
+		this.statementCacheSize = statementCacheSize;
+		idle = new ConcurrentLinkedDeque<>();
+		permits = new Semaphore(maxSize, true);
+		size = new AtomicInteger();
+		acquired = new LongAdder();
+		created = new LongAdder();
+		timedOut = new LongAdder();
+		statementCacheHits = new LongAdder();
+		statementCacheMisses = new LongAdder();
+		maintainer = Executors.newSingleThreadScheduledExecutor((final Runnable runnable) -> {
+			final Thread thread = new Thread(runnable, THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		});
+		closed = false;
+		maintainer.scheduleWithFixedDelay(this::maintain, 0L, idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	ConnectionPool() {
+		// this constructor exists just to keep CDI happy
+		jdbcUrl = null;
+		minSize = 0;
+		idleTimeout = 0L;
+		acquireTimeout = 0L;
+		validationTimeout = 0;
+		statementCacheSize = 0;
+		idle = null;
+		permits = null;
+		size = null;
+		acquired = null;
+		created = null;
+		timedOut = null;
+		statementCacheHits = null;
+		statementCacheMisses = null;
+		maintainer = null;
+	}
+
+	private static Object delegate(final Object target, final Method method, final Object[] arguments) throws Throwable {
+		try {
+			return method.invoke(target, arguments);
+		} catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return borrow();
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() {
+		return null;
+	}
+
+	@Override
+	public void setLogWriter(final PrintWriter logWriter) {
+		// logging is done via java.util.logging
+	}
+
+	@Override
+	public int getLoginTimeout() {
+		return 0;
+	}
+
+	@Override
+	public void setLoginTimeout(final int loginTimeout) {
+		// connections are opened via the driver manager, which has its own login timeout
+	}
+
+	@Override
+	public Logger getParentLogger() {
+		return LOGGER;
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	@Override
+	public <T> T unwrap(final Class<T> iface) throws SQLException {
+		if (isWrapperFor(iface)) {
+			return iface.cast(this);
+		}
+		throw new SQLException(String.format(NOT_A_WRAPPER, iface));
+	}
+
+	/**
+	 * Get the number of connections open.
+	 * 
+	 * @return the number of connections open, either in use or idle
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Get the number of connections idle.
+	 * 
+	 * @return the number of connections open but not in use
+	 */
+	public int getIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * Get the number of connections acquired.
+	 * 
+	 * @return the number of times a connection has been acquired from this pool
+	 */
+	public long getAcquired() {
+		return acquired.sum();
+	}
+
+	/**
+	 * Get the number of connections created.
+	 * 
+	 * @return the number of connections opened by this pool
+	 */
+	public long getCreated() {
+		return created.sum();
+	}
+
+	/**
+	 * Get the number of acquisitions timed out.
+	 * 
+	 * @return the number of times no connection could be acquired within the acquire timeout
+	 */
+	public long getTimedOut() {
+		return timedOut.sum();
+	}
+
+	/**
+	 * Get the number of statement cache hits.
+	 * 
+	 * @return the number of statements prepared that were found in the statement cache
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits.sum();
+	}
+
+	/**
+	 * Get the number of statement cache misses.
+	 * 
+	 * @return the number of statements prepared that were not found in the statement cache
+	 */
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.sum();
+	}
+
+	/**
+	 * Close all connections idle and log pool statistics on destruction. Connections in use are closed once released.
+	 */
+	@PreDestroy
+	public void close() {
+		closed = true;
+		maintainer.shutdownNow();
+		for (PooledConnection pooled = idle.pollFirst(); pooled != null; pooled = idle.pollFirst()) {
+			discard(pooled);
+		}
+		LOGGER.info(String.format(POOL_STATISTICS, getSize(), getIdle(), getAcquired(), getCreated(), getTimedOut(), getStatementCacheHits(), getStatementCacheMisses()));
+	}
+
+	synchronized void maintain() {
+		// this method is package private just for testing
+		try {
+			final long now = System.nanoTime();
+			// idle connections are polled from the head and released to it, so the ones idle for longest are at the tail
+			for (PooledConnection pooled = idle.peekLast(); (pooled != null) && (size.get() > minSize) && (now - pooled.idleSince > TimeUnit.MILLISECONDS.toNanos(idleTimeout)); pooled = idle.peekLast()) {
+				if (idle.removeLastOccurrence(pooled)) {
+					discard(pooled);
+				}
+			}
+			while (!closed && (size.get() < minSize) && permits.tryAcquire()) {
+				try {
+					idle.offerLast(create());
+				} finally {
+					permits.release();
+				}
+			}
+		} catch (final SQLException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, ERROR_MAINTAINING_POOL, e);
+		}
+	}
+
+	private Connection borrow() throws SQLException {
+		try {
+			if (!permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+				timedOut.increment();
+				throw new SQLTransientConnectionException(String.format(ACQUIRE_TIMED_OUT, acquireTimeout));
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException(INTERRUPTED_ACQUIRING, e);
+		}
+		try {
+			PooledConnection pooled = idle.pollFirst();
+			while ((pooled != null) && !isValid(pooled)) {
+				discard(pooled);
+				pooled = idle.pollFirst();
+			}
+			if (pooled == null) {
+				pooled = create();
+			}
+			acquired.increment();
+			return new ConnectionHandler(pooled).proxy;
+		} catch (final SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private PooledConnection create() throws SQLException {
+		final PooledConnection pooled = new PooledConnection(DriverManager.getConnection(jdbcUrl));
+		size.incrementAndGet();
+		created.increment();
+		return pooled;
+	}
+
+	private boolean isValid(final PooledConnection pooled) {
+		// connections used recently are assumed to be valid, saving a round trip to the database
+		try {
+			return (System.nanoTime() - pooled.idleSince < VALIDATION_THRESHOLD) || pooled.connection.isValid(validationTimeout);
+		} catch (final SQLException e) {
+			return false;
+		}
+	}
+
+	private void release(final PooledConnection pooled) {
+		try {
+			pooled.reset();
+			if (closed) {
+				discard(pooled);
+			} else {
+				pooled.idleSince = System.nanoTime();
+				idle.offerFirst(pooled);
+			}
+		} catch (final SQLException e) {
+			LOGGER.log(Level.WARNING, ERROR_RESETTING_CONNECTION, e);
+			discard(pooled);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void discard(final PooledConnection pooled) {
+		pooled.close();
+		size.decrementAndGet();
+	}
+}
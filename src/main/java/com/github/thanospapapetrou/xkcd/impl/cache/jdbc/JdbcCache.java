@@ -7,12 +7,15 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.TimeZone;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
@@ -27,66 +30,113 @@ import com.github.thanospapapetrou.xkcd.impl.cache.jpa.converters.TitleConverter
 import com.github.thanospapapetrou.xkcd.impl.cache.jpa.converters.TranscriptConverter;
 
 /**
- * Class implementing a cache using JDBC. Are instances of this class thread-safe?
+ * Class implementing a cache using JDBC. Each operation borrows a connection from a connection pool and returns it when done. Loads run in auto-commit mode at the read committed isolation level Derby defaults to, so that they hold no read locks beyond each statement, which is all a read optimized mode could do without risking dirty reads of comics saved by transactions rolled back. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
-@RequestScoped
+@ApplicationScoped
 public class JdbcCache implements Cache {
 	private static final int ALTERNATE = 6;
 	private static final int DATE = 2;
 	private static final String ERROR_LOADING_COMIC = "Error loading comic %1$d";
+	private static final String ERROR_LOADING_COMICS = "Error loading comics %1$d to %2$d";
 	private static final String ERROR_LOADING_LATEST_COMIC = "Error loading latest comic";
 	private static final String ERROR_SAVING_COMIC = "Error saving comic %1$d";
+	private static final String ERROR_SAVING_COMICS = "Error saving %1$d comics";
+	private static final int FROM = 1;
 	private static final TimeZone GMT = TimeZone.getTimeZone("GMT+00:00");
 	private static final int ID = 1;
 	private static final int IMAGE = 5;
 	private static final int LINK = 8;
 	private static final String LOAD = "SELECT C.ID, C.\"DATE\", C.TITLE, C.SAFE_TITLE, C.IMAGE, C.ALTERNATE, C.TRANSCRIPT, C.LINK, C.NEWS FROM COMICS C WHERE (C.ID = ?)";
+	private static final String LOAD_ALL = "SELECT C.ID, C.\"DATE\", C.TITLE, C.SAFE_TITLE, C.IMAGE, C.ALTERNATE, C.TRANSCRIPT, C.LINK, C.NEWS FROM COMICS C WHERE (C.ID BETWEEN ? AND ?) ORDER BY C.ID";
 	private static final String LOAD_LATEST = "SELECT C.ID, C.\"DATE\", C.TITLE, C.SAFE_TITLE, C.IMAGE, C.ALTERNATE, C.TRANSCRIPT, C.LINK, C.NEWS FROM COMICS C ORDER BY C.ID DESC FETCH FIRST 1 ROW ONLY";
 	private static final int NEWS = 9;
 	private static final String NULL_COMIC = "Comic must not be null";
-	private static final String NULL_CONNECTION = "Connection must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
+	private static final String NULL_POOL = "Pool must not be null";
 	private static final int SAFE_TITLE = 4;
 	private static final int TITLE = 3;
+	private static final int TO = 2;
 	private static final String SAVE = "INSERT INTO COMICS (ID, \"DATE\", TITLE, SAFE_TITLE, IMAGE, ALTERNATE, TRANSCRIPT, LINK, NEWS) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 	private static final int TRANSCRIPT = 7;
 
-	private final Connection connection;
+	private final ConnectionPool pool;
 
 	/**
 	 * Construct a new JDBC cache.
 	 * 
-	 * @param connection
-	 *            the connection to use
+	 * @param pool
+	 *            the connection pool to borrow connections from
 	 */
 	@Inject
-	public JdbcCache(final Connection connection) {
-		this.connection = Objects.requireNonNull(connection, NULL_CONNECTION);
+	public JdbcCache(final ConnectionPool pool) {
+		this.pool = Objects.requireNonNull(pool, NULL_POOL);
 	}
 
 	JdbcCache() {
 		// this constructor exists just to keep CDI happy
-		connection = null;
+		pool = null;
+	}
+
+	private static void bind(final PreparedStatement save, final Comic comic) throws SQLException {
+		save.setInt(ID, comic.getId());
+		save.setDate(DATE, new Date(comic.getDate().getTime()), new GregorianCalendar(GMT, Locale.ROOT));
+		save.setString(TITLE, new TitleConverter().convertToDatabaseColumn(comic.getTitle()));
+		save.setString(SAFE_TITLE, new SafeTitleConverter().convertToDatabaseColumn(comic.getSafeTitle()));
+		save.setString(IMAGE, new ImageConverter().convertToDatabaseColumn(comic.getImage()));
+		save.setBytes(ALTERNATE, new AlternateConverter().convertToDatabaseColumn(comic.getAlternate()));
+		save.setBytes(TRANSCRIPT, new TranscriptConverter().convertToDatabaseColumn(comic.getTranscript()));
+		save.setString(LINK, new LinkConverter().convertToDatabaseColumn(comic.getLink()));
+		save.setString(NEWS, new NewsConverter().convertToDatabaseColumn(comic.getNews()));
+	}
+
+	private static Comic map(final ResultSet comic) throws MalformedURLException, SQLException {
+		return new Comic(comic.getInt(ID), comic.getDate(DATE), comic.getString(TITLE), comic.getString(SAFE_TITLE), new URL(comic.getString(IMAGE)), new AlternateConverter().convertToEntityAttribute(comic.getBytes(ALTERNATE)), new TranscriptConverter().convertToEntityAttribute(comic.getBytes(TRANSCRIPT)), (comic.getString(LINK) == null) ? null : new URL(comic.getString(LINK)), comic.getString(NEWS));
+	}
+
+	private static void rollback(final Connection connection, final Exception cause) {
+		try {
+			connection.rollback();
+		} catch (final SQLException e) {
+			cause.addSuppressed(e);
+		}
 	}
 
 	@Override
 	public Comic load(final int id) throws XkcdException {
-		try (final PreparedStatement load = connection.prepareStatement(LOAD)) {
+		try (final Connection connection = pool.getConnection(); final PreparedStatement load = connection.prepareStatement(LOAD)) {
 			load.setInt(1, id);
 			try (final ResultSet comic = load.executeQuery()) {
-				return comic.next() ? new Comic(comic.getInt(ID), comic.getDate(DATE), comic.getString(TITLE), comic.getString(SAFE_TITLE), new URL(comic.getString(IMAGE)), comic.getString(ALTERNATE), comic.getString(TRANSCRIPT), (comic.getString(LINK) == null) ? null : new URL(comic.getString(LINK)), comic.getString(NEWS)) : null;
+				return comic.next() ? map(comic) : null;
 			}
 		} catch (final MalformedURLException | SQLException e) {
 			throw new XkcdException(String.format(ERROR_LOADING_COMIC, id), e);
 		}
 	}
 
+	@Override
+	public List<Comic> loadAll(final int from, final int to) throws XkcdException {
+		try (final Connection connection = pool.getConnection(); final PreparedStatement loadAll = connection.prepareStatement(LOAD_ALL)) {
+			loadAll.setInt(FROM, from);
+			loadAll.setInt(TO, to);
+			try (final ResultSet comic = loadAll.executeQuery()) {
+				final List<Comic> comics = new ArrayList<>();
+				while (comic.next()) {
+					comics.add(map(comic));
+				}
+				return comics;
+			}
+		} catch (final MalformedURLException | SQLException e) {
+			throw new XkcdException(String.format(ERROR_LOADING_COMICS, from, to), e);
+		}
+	}
+
 	@Override
 	public Comic loadLatest() throws XkcdException {
-		try (final PreparedStatement loadLatest = connection.prepareStatement(LOAD_LATEST)) {
+		try (final Connection connection = pool.getConnection(); final PreparedStatement loadLatest = connection.prepareStatement(LOAD_LATEST)) {
 			try (final ResultSet comic = loadLatest.executeQuery()) {
-				return comic.next() ? new Comic(comic.getInt(ID), comic.getDate(DATE), comic.getString(TITLE), comic.getString(SAFE_TITLE), new URL(comic.getString(IMAGE)), comic.getString(ALTERNATE), comic.getString(TRANSCRIPT), (comic.getString(LINK) == null) ? null : new URL(comic.getString(LINK)), comic.getString(NEWS)) : null;
+				return comic.next() ? map(comic) : null;
 			}
 		} catch (final MalformedURLException | SQLException e) {
 			throw new XkcdException(ERROR_LOADING_LATEST_COMIC, e);
@@ -96,19 +146,35 @@ public class JdbcCache implements Cache {
 	@Override
 	public void save(final Comic comic) throws XkcdException {
 		Objects.requireNonNull(comic, NULL_COMIC);
-		try (final PreparedStatement save = connection.prepareStatement(SAVE)) {
-			save.setInt(ID, comic.getId());
-			save.setDate(DATE, new Date(comic.getDate().getTime()), new GregorianCalendar(GMT, Locale.ROOT));
-			save.setString(TITLE, new TitleConverter().convertToDatabaseColumn(comic.getTitle()));
-			save.setString(SAFE_TITLE, new SafeTitleConverter().convertToDatabaseColumn(comic.getSafeTitle()));
-			save.setString(IMAGE, new ImageConverter().convertToDatabaseColumn(comic.getImage()));
-			save.setString(ALTERNATE, new AlternateConverter().convertToDatabaseColumn(comic.getAlternate()));
-			save.setString(TRANSCRIPT, new TranscriptConverter().convertToDatabaseColumn(comic.getTranscript()));
-			save.setString(LINK, new LinkConverter().convertToDatabaseColumn(comic.getLink()));
-			save.setString(NEWS, new NewsConverter().convertToDatabaseColumn(comic.getNews()));
+		try (final Connection connection = pool.getConnection(); final PreparedStatement save = connection.prepareStatement(SAVE)) {
+			bind(save, comic);
 			save.executeUpdate();
 		} catch (final SQLException e) {
 			throw new XkcdException(String.format(ERROR_SAVING_COMIC, comic.getId()), e);
 		}
 	}
+
+	@Override
+	public void saveAll(final Collection<Comic> comics) throws XkcdException {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		try (final Connection connection = pool.getConnection()) {
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (final PreparedStatement save = connection.prepareStatement(SAVE)) {
+				for (final Comic comic : comics) {
+					bind(save, Objects.requireNonNull(comic, NULL_COMIC));
+					save.addBatch();
+				}
+				save.executeBatch();
+				connection.commit();
+			} catch (final SQLException | RuntimeException e) {
+				rollback(connection, e);
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (final SQLException e) {
+			throw new XkcdException(String.format(ERROR_SAVING_COMICS, comics.size()), e);
+		}
+	}
 }
@@ -5,6 +5,10 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -14,24 +18,86 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.jpa.converters.CompressingStringConverter;
 import com.github.thanospapapetrou.xkcd.impl.cdi.Caching;
 import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 import com.github.thanospapapetrou.xkcd.impl.cdi.ConfigurationResolver;
 
 /**
- * Servlet context listener to initialize JDBC schema on application startup. Instances of this class are thread-safe.
+ * Servlet context listener to initialize JDBC schema on application startup. Schemas created by earlier versions, which stored alternate and transcript as (truncated) text, are migrated to store them compressed. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
 @WebListener
 public class JdbcSchemaInitializer implements ServletContextListener {
+	private static final String ADD_COMPRESSED_COLUMN = "ALTER TABLE COMICS ADD COLUMN %1$s_COMPRESSED BLOB";
+	private static final String COLUMN_MIGRATED = "Column %1$s migrated to compressed storage (%2$d comics)";
+	private static final String COMICS = "COMICS";
+	private static final String[] COMPRESSED_COLUMNS = {"ALTERNATE", "TRANSCRIPT"};
 	private static final String COUNT_COMICS = "SELECT COUNT(*) FROM SYS.SYSSCHEMAS S, SYS.SYSTABLES T WHERE (S.SCHEMANAME = 'APP') AND (S.SCHEMAID = T.SCHEMAID) AND (T.TABLENAME = 'COMICS')";
-	private static final String CREATE_COMICS = "CREATE TABLE COMICS (ID INT NOT NULL PRIMARY KEY, \"DATE\" DATE NOT NULL, TITLE VARCHAR (%1$d) NOT NULL, SAFE_TITLE VARCHAR (%2$d) NOT NULL, IMAGE VARCHAR (%3$d) NOT NULL, ALTERNATE VARCHAR (%4$d), TRANSCRIPT VARCHAR (%5$d), LINK VARCHAR (%6$d), NEWS VARCHAR (%7$d))";
+	private static final String CREATE_COMICS = "CREATE TABLE COMICS (ID INT NOT NULL PRIMARY KEY, \"DATE\" DATE NOT NULL, TITLE VARCHAR (%1$d) NOT NULL, SAFE_TITLE VARCHAR (%2$d) NOT NULL, IMAGE VARCHAR (%3$d) NOT NULL, ALTERNATE BLOB, TRANSCRIPT BLOB, LINK VARCHAR (%4$d), NEWS VARCHAR (%5$d))";
+	private static final int DATA_TYPE = 5;
+	private static final String DROP_COLUMN = "ALTER TABLE COMICS DROP COLUMN %1$s";
 	private static final String ERROR_INITIALIZING_SCHEMA = "Error initializing schema";
+	private static final int ID = 1;
 	private static final Logger LOGGER = Logger.getLogger(JdbcSchemaInitializer.class.getCanonicalName());
 	private static final String NULL_EVENT = "Event must not be null";
+	private static final String RENAME_COMPRESSED_COLUMN = "RENAME COLUMN COMICS.%1$s_COMPRESSED TO %1$s";
+	private static final String SCHEMA = "APP";
 	private static final String SCHEMA_ALREADY_INITIALIZED = "Schema already initialized";
 	private static final String SCHEMA_INITIALIZED = "Schema initialized";
+	private static final String SELECT_COLUMN = "SELECT C.ID, C.%1$s FROM COMICS C WHERE (C.%1$s IS NOT NULL)";
+	private static final int TEXT = 2;
+	private static final String UPDATE_COMPRESSED_COLUMN = "UPDATE COMICS SET %1$s_COMPRESSED = ? WHERE (ID = ?)";
+	private static final int UPDATE_ID = 2;
+	private static final int UPDATE_TEXT = 1;
+
+	static void migrate(final Connection connection) throws SQLException {
+		// this method is package private just for testing
+		for (final String column : COMPRESSED_COLUMNS) {
+			if (isText(connection, column)) {
+				migrate(connection, column);
+			}
+		}
+	}
+
+	private static boolean isText(final Connection connection, final String column) throws SQLException {
+		try (final ResultSet columns = connection.getMetaData().getColumns(null, SCHEMA, COMICS, column)) {
+			return columns.next() && (columns.getInt(DATA_TYPE) == Types.VARCHAR);
+		}
+	}
+
+	private static void migrate(final Connection connection, final String column) throws SQLException {
+		final boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (final Statement statement = connection.createStatement()) {
+			final Map<Integer, String> texts = new LinkedHashMap<>();
+			try (final ResultSet comics = statement.executeQuery(String.format(SELECT_COLUMN, column))) {
+				while (comics.next()) {
+					texts.put(comics.getInt(ID), comics.getString(TEXT));
+				}
+			}
+			statement.executeUpdate(String.format(ADD_COMPRESSED_COLUMN, column));
+			try (final PreparedStatement update = connection.prepareStatement(String.format(UPDATE_COMPRESSED_COLUMN, column))) {
+				final CompressingStringConverter converter = new CompressingStringConverter();
+				for (final Map.Entry<Integer, String> text : texts.entrySet()) {
+					update.setBytes(UPDATE_TEXT, converter.convertToDatabaseColumn(text.getValue()));
+					update.setInt(UPDATE_ID, text.getKey());
+					update.addBatch();
+				}
+				update.executeBatch();
+			}
+			statement.executeUpdate(String.format(DROP_COLUMN, column));
+			statement.executeUpdate(String.format(RENAME_COMPRESSED_COLUMN, column));
+			connection.commit();
+			LOGGER.info(String.format(COLUMN_MIGRATED, column, texts.size()));
+		} catch (final SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
 
 	@Override
 	public void contextDestroyed(final ServletContextEvent event) {
@@ -41,7 +107,9 @@ public class JdbcSchemaInitializer implements ServletContextListener {
 	@Override
 	public void contextInitialized(final ServletContextEvent event) {
 		Objects.requireNonNull(event, NULL_EVENT);
-		if (ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING) == Caching.JDBC) {
+		final Caching configuredCaching = ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING);
+		final Caching caching = (configuredCaching == Caching.TIERED) ? ConfigurationResolver.resolveCaching(event.getServletContext(), Configuration.Key.CACHING_L2) : configuredCaching;
+		if ((caching == Caching.JDBC) || (caching == Caching.JPA)) {
 			try {
 				Class.forName(ConfigurationResolver.resolveString(event.getServletContext(), Configuration.Key.JDBC_DRIVER)).newInstance();
 				try (final Connection connection = DriverManager.getConnection(ConfigurationResolver.resolveString(event.getServletContext(), Configuration.Key.JDBC_URL))) {
@@ -49,11 +117,15 @@ public class JdbcSchemaInitializer implements ServletContextListener {
 						try (final ResultSet comics = countComics.executeQuery()) {
 							comics.next();
 							if (comics.getInt(1) == 0) {
-								try (final PreparedStatement createComics = connection.prepareStatement(String.format(CREATE_COMICS, Comic.TITLE_LENGTH, Comic.SAFE_TITLE_LENGTH, Comic.IMAGE_LENGTH, Comic.ALTERNATE_LENGTH, Comic.TRANSCRIPT_LENGTH, Comic.LINK_LENGTH, Comic.NEWS_LENGTH))) {
-									createComics.executeUpdate();
-									LOGGER.info(SCHEMA_INITIALIZED);
+								// JPA creates its own schema
+								if (caching == Caching.JDBC) {
+									try (final PreparedStatement createComics = connection.prepareStatement(String.format(CREATE_COMICS, Comic.TITLE_LENGTH, Comic.SAFE_TITLE_LENGTH, Comic.IMAGE_LENGTH, Comic.LINK_LENGTH, Comic.NEWS_LENGTH))) {
+										createComics.executeUpdate();
+										LOGGER.info(SCHEMA_INITIALIZED);
+									}
 								}
 							} else {
+								migrate(connection);
 								LOGGER.info(SCHEMA_ALREADY_INITIALIZED);
 							}
 						}
@@ -1,83 +1,134 @@
 package com.github.thanospapapetrou.xkcd.impl.cache.jpa;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.LockModeType;
 import javax.persistence.PersistenceException;
 
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
 import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
- * Class implementing a cache using JPA. Instances of this class are not thread-safe.
+ * Class implementing a cache using JPA. Each operation uses an entity manager of its own, created from a shared entity manager factory. In read optimized mode, loads run outside transactions and without locks; this is safe, as comics are never updated once saved. Comics found in the shared cache of the factory and cached results of the latest comic query are then served without querying the database. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
-@RequestScoped
+@ApplicationScoped
 public class JpaCache implements Cache {
+	private static final int BATCH_SIZE = 64;
 	private static final String ERROR_LOADING_COMIC = "Error loading comic %1$d";
+	private static final String ERROR_LOADING_COMICS = "Error loading comics %1$d to %2$d";
 	private static final String ERROR_LOADING_LATEST_COMIC = "Error loading latest comic";
 	private static final String ERROR_SAVING_COMIC = "Error saving comic %1$d";
-	private static final String LOAD_LATEST = "SELECT c FROM Comic c ORDER BY c.id DESC";
+	private static final String ERROR_SAVING_COMICS = "Error saving %1$d comics";
+	private static final String FROM = "from";
+	private static final String LOAD_ALL = "SELECT c FROM Comic c WHERE c.id BETWEEN :from AND :to ORDER BY c.id";
+	private static final String LOAD_LATEST = "SELECT c FROM Comic c WHERE c.id = (SELECT MAX(d.id) FROM Comic d)";
+	private static final String LOAD_LATEST_NAME = "Comic.loadLatest";
 	private static final String NULL_COMIC = "Comic must not be null";
-	private static final String NULL_MANAGER = "Manager must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
+	private static final String NULL_FACTORY = "Factory must not be null";
+	private static final String QUERY_RESULTS_CACHE = "eclipselink.query-results-cache";
+	private static final String TO = "to";
 
-	private final EntityManager manager;
+	private final EntityManagerFactory factory;
+	private final boolean readOptimized;
 
 	/**
 	 * Construct a new JPA cache.
 	 * 
-	 * @param manager
-	 *            the entity manager to use
+	 * @param factory
+	 *            the entity manager factory to use
+	 * @param readOptimized
+	 *            whether to load comics in read optimized mode
+	 * @param queryResultsCache
+	 *            whether to cache the results of the query loading the latest comic, until a comic is saved
 	 */
 	@Inject
-	public JpaCache(final EntityManager manager) {
-		this.manager = Objects.requireNonNull(manager, NULL_MANAGER);
+	public JpaCache(final EntityManagerFactory factory, @Configuration(Configuration.Key.CACHING_READ_OPTIMIZED) final boolean readOptimized, @Configuration(Configuration.Key.JPA_QUERY_RESULTS_CACHE) final boolean queryResultsCache) {
+		this.factory = Objects.requireNonNull(factory, NULL_FACTORY);
+		this.readOptimized = readOptimized;
+		// query results are cached per named query, so the query is named rather than created anew on every load
+		final EntityManager manager = factory.createEntityManager();
+		try {
+			factory.addNamedQuery(LOAD_LATEST_NAME, manager.createQuery(LOAD_LATEST, Comic.class).setHint(QUERY_RESULTS_CACHE, queryResultsCache));
+		} finally {
+			manager.close();
+		}
 	}
 
 	JpaCache() {
 		// this constructor exists just to keep CDI happy
-		manager = null;
+		factory = null;
+		readOptimized = false;
 	}
 
 	@Override
 	public Comic load(final int id) throws XkcdException {
+		final EntityManager manager = factory.createEntityManager();
 		try {
-			manager.getTransaction().begin();
-			final Comic comic = manager.find(Comic.class, id, LockModeType.PESSIMISTIC_READ);
-			manager.getTransaction().commit();
+			beginRead(manager);
+			final Comic comic = manager.find(Comic.class, id, readOptimized ? LockModeType.NONE : LockModeType.PESSIMISTIC_READ);
+			commitRead(manager);
 			return comic;
 		} catch (final PersistenceException e) {
 			if (manager.getTransaction().isActive()) {
 				manager.getTransaction().rollback();
 			}
 			throw new XkcdException(String.format(ERROR_LOADING_COMIC, id), e);
+		} finally {
+			manager.close();
+		}
+	}
+
+	@Override
+	public List<Comic> loadAll(final int from, final int to) throws XkcdException {
+		final EntityManager manager = factory.createEntityManager();
+		try {
+			beginRead(manager);
+			final List<Comic> comics = manager.createQuery(LOAD_ALL, Comic.class).setParameter(FROM, from).setParameter(TO, to).getResultList();
+			commitRead(manager);
+			return comics;
+		} catch (final PersistenceException e) {
+			if (manager.getTransaction().isActive()) {
+				manager.getTransaction().rollback();
+			}
+			throw new XkcdException(String.format(ERROR_LOADING_COMICS, from, to), e);
+		} finally {
+			manager.close();
 		}
 	}
 
 	@Override
 	public Comic loadLatest() throws XkcdException {
+		final EntityManager manager = factory.createEntityManager();
 		try {
-			manager.getTransaction().begin();
-			final List<Comic> comics = manager.createQuery(LOAD_LATEST, Comic.class).setMaxResults(1).getResultList();
-			manager.getTransaction().commit();
+			beginRead(manager);
+			final List<Comic> comics = manager.createNamedQuery(LOAD_LATEST_NAME, Comic.class).getResultList();
+			commitRead(manager);
 			return comics.isEmpty() ? null : comics.get(0);
 		} catch (final PersistenceException e) {
 			if (manager.getTransaction().isActive()) {
 				manager.getTransaction().rollback();
 			}
 			throw new XkcdException(ERROR_LOADING_LATEST_COMIC, e);
+		} finally {
+			manager.close();
 		}
 	}
 
 	@Override
 	public void save(final Comic comic) throws XkcdException {
 		Objects.requireNonNull(comic, NULL_COMIC);
+		final EntityManager manager = factory.createEntityManager();
 		try {
 			manager.getTransaction().begin();
 			manager.persist(comic);
@@ -87,6 +138,46 @@ public class JpaCache implements Cache {
 				manager.getTransaction().rollback();
 			}
 			throw new XkcdException(String.format(ERROR_SAVING_COMIC, comic.getId()), e);
+		} finally {
+			manager.close();
+		}
+	}
+
+	@Override
+	public void saveAll(final Collection<Comic> comics) throws XkcdException {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		final EntityManager manager = factory.createEntityManager();
+		try {
+			manager.getTransaction().begin();
+			int persisted = 0;
+			for (final Comic comic : comics) {
+				manager.persist(Objects.requireNonNull(comic, NULL_COMIC));
+				// flush and detach periodically, so that the persistence context does not grow with the number of comics saved
+				if ((++persisted % BATCH_SIZE) == 0) {
+					manager.flush();
+					manager.clear();
+				}
+			}
+			manager.getTransaction().commit();
+		} catch (final PersistenceException e) {
+			if (manager.getTransaction().isActive()) {
+				manager.getTransaction().rollback();
+			}
+			throw new XkcdException(String.format(ERROR_SAVING_COMICS, comics.size()), e);
+		} finally {
+			manager.close();
+		}
+	}
+
+	private void beginRead(final EntityManager manager) {
+		if (!readOptimized) {
+			manager.getTransaction().begin();
+		}
+	}
+
+	private void commitRead(final EntityManager manager) {
+		if (!readOptimized) {
+			manager.getTransaction().commit();
 		}
 	}
 }
@@ -0,0 +1,66 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jpa.converters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.persistence.AttributeConverter;
+
+/**
+ * Attribute converter for compressing strings of arbitrary length to bytes and vice versa. Strings are encoded as UTF-8 and compressed using deflate. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+public class CompressingStringConverter implements AttributeConverter<String, byte[]> {
+	private static final int BUFFER_SIZE = 1024;
+	private static final String ERROR_DECOMPRESSING_BYTES = "Error decompressing %1$d bytes";
+	private static final String TRUNCATED_BYTES = "Compressed data is truncated";
+
+	@Override
+	public byte[] convertToDatabaseColumn(final String string) {
+		if (string == null) {
+			return null;
+		}
+		final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try {
+			deflater.setInput(string.getBytes(StandardCharsets.UTF_8));
+			deflater.finish();
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			while (!deflater.finished()) {
+				bytes.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return bytes.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public String convertToEntityAttribute(final byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(bytes);
+			final ByteArrayOutputStream string = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			while (!inflater.finished()) {
+				final int inflated = inflater.inflate(buffer);
+				if ((inflated == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException(TRUNCATED_BYTES);
+				}
+				string.write(buffer, 0, inflated);
+			}
+			return new String(string.toByteArray(), StandardCharsets.UTF_8);
+		} catch (final DataFormatException | IOException e) {
+			throw new IllegalStateException(String.format(ERROR_DECOMPRESSING_BYTES, bytes.length), e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
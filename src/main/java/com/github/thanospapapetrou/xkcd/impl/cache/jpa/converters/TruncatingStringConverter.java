@@ -12,7 +12,7 @@ import javax.persistence.AttributeConverter;
 public class TruncatingStringConverter implements AttributeConverter<String, String> {
 	private static final Logger LOGGER = Logger.getLogger(TruncatingStringConverter.class.getCanonicalName());
 	private static final String NEGATIVE_LENGTH = "Length must not be negative";
-	private static final String TRUNCATING_STRING = "Truncating string %1$s from %2$d to %3$d characters long";
+	private static final String TRUNCATING_STRING = "Truncating string from %1$d to %2$d characters long";
 
 	private final int length;
 
@@ -35,7 +35,7 @@ public class TruncatingStringConverter implements AttributeConverter<String, Str
 			return null;
 		}
 		if (string.length() > length) {
-			LOGGER.warning(String.format(TRUNCATING_STRING, string, string.length(), length));
+			LOGGER.warning(String.format(TRUNCATING_STRING, string.length(), length));
 			return string.substring(0, length);
 		}
 		return string;
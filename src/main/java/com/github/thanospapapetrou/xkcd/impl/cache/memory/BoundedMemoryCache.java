@@ -0,0 +1,248 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.memory;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class implementing a cache in memory, bounded by a capacity in bytes. Comics are weighed by the size of their strings and evicted in least recently used order, while a TinyLFU admission policy keeps a scan of rarely accessed comics from flushing frequently accessed ones. The latest comic is always kept and does not count against the capacity. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class BoundedMemoryCache implements Cache {
+	private static final int AVERAGE_WEIGHT = 1024;
+	private static final String CACHE_STATISTICS = "Cache statistics: %1$d hits, %2$d misses, %3$d evictions, %4$d rejections";
+	private static final int CHARACTER_SIZE = Character.BYTES;
+	private static final String COMIC_EVICTED = "Comic %1$d evicted from cache";
+	private static final String COMIC_REJECTED = "Comic %1$d rejected by cache";
+	private static final float LOAD_FACTOR = 0.75F;
+	private static final Logger LOGGER = Logger.getLogger(BoundedMemoryCache.class.getCanonicalName());
+	private static final String NEGATIVE_CAPACITY = "Capacity must not be negative";
+	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
+	private static final int OVERHEAD = 256;
+
+	private final long capacity;
+	private final Map<Integer, Comic> cache;
+	private final FrequencySketch sketch;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+	private final LongAdder rejections;
+	private long weight;
+	private Comic latest;
+
+	/**
+	 * Construct a new bounded memory cache.
+	 * 
+	 * @param capacity
+	 *            the capacity of this cache in bytes
+	 */
+	@Inject
+	public BoundedMemoryCache(@Configuration(Configuration.Key.MEMORY_CACHE_CAPACITY) final long capacity) {
+		if (capacity < 0L) {
+			throw new IllegalArgumentException(NEGATIVE_CAPACITY);
+		}
+		this.capacity = capacity;
+		cache = new LinkedHashMap<>(Math.max((int) Math.min(capacity / AVERAGE_WEIGHT, Integer.MAX_VALUE), 1), LOAD_FACTOR, true);
+		sketch = new FrequencySketch((int) Math.min(capacity / AVERAGE_WEIGHT, Integer.MAX_VALUE));
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+		rejections = new LongAdder();
+		weight = 0L;
+		latest = null;
+	}
+
+	BoundedMemoryCache() {
+		// this constructor exists just to keep CDI happy
+		capacity = 0L;
+		cache = null;
+		sketch = null;
+		hits = null;
+		misses = null;
+		evictions = null;
+		rejections = null;
+	}
+
+	static long weigh(final Comic comic) {
+		// this method is package private just for testing
+		return OVERHEAD + CHARACTER_SIZE * ((long) length(comic.getTitle()) + length(comic.getSafeTitle()) + length(comic.getImage()) + length(comic.getAlternate()) + length(comic.getTranscript()) + length(comic.getLink()) + length(comic.getNews()));
+	}
+
+	private static int length(final String string) {
+		return (string == null) ? 0 : string.length();
+	}
+
+	private static int length(final URL url) {
+		return (url == null) ? 0 : url.toString().length();
+	}
+
+	@Override
+	public synchronized void save(final Comic comic) {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		if ((latest == null) || (comic.getId() >= latest.getId())) {
+			latest = comic;
+		}
+		// accesses are counted when loading, so that a miss followed by saving the comic retrieved counts only once
+		final long comicWeight = weigh(comic);
+		final Comic previous = cache.get(comic.getId());
+		if (previous != null) {
+			// a comic already admitted is replaced in place instead of competing for admission against itself
+			cache.put(comic.getId(), comic);
+			weight += comicWeight - weigh(previous);
+			evictOverweight();
+		} else if (admit(comic.getId(), comicWeight)) {
+			cache.put(comic.getId(), comic);
+			weight += comicWeight;
+		} else {
+			rejections.increment();
+			LOGGER.fine(String.format(COMIC_REJECTED, comic.getId()));
+		}
+	}
+
+	@Override
+	public synchronized void saveAll(final Collection<Comic> comics) {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		for (final Comic comic : comics) {
+			save(comic);
+		}
+	}
+
+	@Override
+	public synchronized Comic load(final int id) {
+		sketch.increment(id);
+		Comic comic = cache.get(id);
+		if ((comic == null) && (latest != null) && (latest.getId() == id)) {
+			comic = latest;
+		}
+		((comic == null) ? misses : hits).increment();
+		return comic;
+	}
+
+	@Override
+	public synchronized List<Comic> loadAll(final int from, final int to) {
+		// bulk loads are not accesses, so they are neither counted by the sketch and the statistics nor reorder comics for eviction
+		final List<Comic> comics = new ArrayList<>();
+		for (final Comic comic : cache.values()) {
+			if ((comic.getId() >= from) && (comic.getId() <= to)) {
+				comics.add(comic);
+			}
+		}
+		if ((latest != null) && (latest.getId() >= from) && (latest.getId() <= to) && !cache.containsKey(latest.getId())) {
+			comics.add(latest);
+		}
+		comics.sort(Comparator.comparingInt(Comic::getId));
+		return comics;
+	}
+
+	@Override
+	public synchronized Comic loadLatest() {
+		return latest;
+	}
+
+	/**
+	 * Get the number of cache hits.
+	 * 
+	 * @return the number of loads that found the comic requested in this cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of cache misses.
+	 * 
+	 * @return the number of loads that did not find the comic requested in this cache
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of cache evictions.
+	 * 
+	 * @return the number of comics evicted from this cache to make room for other comics
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Get the number of cache rejections.
+	 * 
+	 * @return the number of comics not admitted to this cache because they were accessed less frequently than the comics they would evict
+	 */
+	public long getRejections() {
+		return rejections.sum();
+	}
+
+	/**
+	 * Get the weight of this cache.
+	 * 
+	 * @return the total weight in bytes of the comics in this cache
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Log cache statistics on destruction.
+	 */
+	@PreDestroy
+	public void logStatistics() {
+		LOGGER.info(String.format(CACHE_STATISTICS, getHits(), getMisses(), getEvictions(), getRejections()));
+	}
+
+	private void evictOverweight() {
+		for (final Iterator<Map.Entry<Integer, Comic>> iterator = cache.entrySet().iterator(); (weight > capacity) && iterator.hasNext();) {
+			final Map.Entry<Integer, Comic> victim = iterator.next();
+			iterator.remove();
+			weight -= weigh(victim.getValue());
+			evictions.increment();
+			LOGGER.fine(String.format(COMIC_EVICTED, victim.getKey()));
+		}
+	}
+
+	private boolean admit(final int id, final long comicWeight) {
+		if (comicWeight > capacity) {
+			return false;
+		}
+		final List<Integer> victims = new ArrayList<>();
+		long freed = 0L;
+		int victimFrequency = 0;
+		for (final Iterator<Map.Entry<Integer, Comic>> iterator = cache.entrySet().iterator(); (weight - freed + comicWeight > capacity) && iterator.hasNext();) {
+			final Map.Entry<Integer, Comic> victim = iterator.next();
+			victims.add(victim.getKey());
+			freed += weigh(victim.getValue());
+			victimFrequency = Math.max(victimFrequency, sketch.frequency(victim.getKey()));
+		}
+		if (!victims.isEmpty() && (sketch.frequency(id) <= victimFrequency)) {
+			return false;
+		}
+		for (final int victim : victims) {
+			cache.remove(victim);
+			evictions.increment();
+			LOGGER.fine(String.format(COMIC_EVICTED, victim));
+		}
+		weight -= freed;
+		return true;
+	}
+}
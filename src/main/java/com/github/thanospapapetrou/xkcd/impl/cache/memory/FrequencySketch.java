@@ -0,0 +1,88 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.memory;
+
+/**
+ * Count-min sketch estimating the access frequency of comics, as used by TinyLFU admission. Counters saturate at {@value #MAXIMUM_FREQUENCY} and are periodically halved so that the sketch forgets old accesses. Instances of this class are not thread-safe.
+ * 
+ * @author thanos
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+final class FrequencySketch {
+	/**
+	 * Maximum frequency a counter can reach.
+	 */
+	static final int MAXIMUM_FREQUENCY = 15;
+
+	private static final int DEPTH = 4;
+	private static final int MINIMUM_WIDTH = 16;
+	private static final int SAMPLE_FACTOR = 10;
+	private static final int[] SEEDS = {0x97CB3127, 0x9E3779B9, 0xC2B2AE3D, 0x27D4EB2F};
+
+	private final byte[][] counters;
+	private final int mask;
+	private final int sampleSize;
+	private int samples;
+
+	/**
+	 * Construct a new frequency sketch.
+	 * 
+	 * @param entries
+	 *            the expected number of distinct entries to track
+	 */
+	FrequencySketch(final int entries) {
+		final int width = Math.max(MINIMUM_WIDTH, Integer.highestOneBit(Math.max(entries, 1) - 1) << 1);
+		counters = new byte[DEPTH][width];
+		mask = width - 1;
+		sampleSize = SAMPLE_FACTOR * width;
+		samples = 0;
+	}
+
+	/**
+	 * Estimate the access frequency of a comic.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @return the estimated access frequency of the comic specified
+	 */
+	int frequency(final int id) {
+		int frequency = MAXIMUM_FREQUENCY;
+		for (int i = 0; i < DEPTH; i++) {
+			frequency = Math.min(frequency, counters[i][index(id, i)]);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Record an access to a comic.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 */
+	void increment(final int id) {
+		boolean incremented = false;
+		for (int i = 0; i < DEPTH; i++) {
+			final int index = index(id, i);
+			if (counters[i][index] < MAXIMUM_FREQUENCY) {
+				counters[i][index]++;
+				incremented = true;
+			}
+		}
+		if (incremented && (++samples >= sampleSize)) {
+			reset();
+		}
+	}
+
+	private int index(final int id, final int row) {
+		int hash = id * SEEDS[row];
+		hash ^= hash >>> (Integer.SIZE / 2);
+		return hash & mask;
+	}
+
+	private void reset() {
+		for (final byte[] row : counters) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] >>>= 1;
+			}
+		}
+		samples /= 2;
+	}
+}
@@ -1,9 +1,12 @@
 package com.github.thanospapapetrou.xkcd.impl.cache.memory;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.enterprise.context.ApplicationScoped;
 
@@ -11,27 +14,46 @@ import com.github.thanospapapetrou.xkcd.domain.Comic;
 import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
 
 /**
- * Class implementing a cache in memory. Instances of this class are thread-safe.
+ * Class implementing a cache in memory. Loads never lock and the latest comic is kept in an atomic reference, so that it is loaded in constant time. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
 @ApplicationScoped
 public class MemoryCache implements Cache {
 	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
 
-	private final SortedMap<Integer, Comic> cache;
+	private final ConcurrentMap<Integer, Comic> cache;
+	private final AtomicReference<Comic> latest;
 
 	/**
 	 * Construct a new memory cache.
 	 */
 	public MemoryCache() {
-		cache = Collections.synchronizedSortedMap(new TreeMap<Integer, Comic>());
+		cache = new ConcurrentHashMap<>();
+		latest = new AtomicReference<>();
 	}
 
 	@Override
 	public void save(final Comic comic) {
 		Objects.requireNonNull(comic, NULL_COMIC);
 		cache.put(comic.getId(), comic);
+		latest.accumulateAndGet(comic, (current, saved) -> ((current == null) || (saved.getId() >= current.getId())) ? saved : current);
+	}
+
+	@Override
+	public void saveAll(final Collection<Comic> comics) {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		Comic newest = null;
+		for (final Comic comic : comics) {
+			cache.put(Objects.requireNonNull(comic, NULL_COMIC).getId(), comic);
+			if ((newest == null) || (comic.getId() >= newest.getId())) {
+				newest = comic;
+			}
+		}
+		if (newest != null) {
+			latest.accumulateAndGet(newest, (current, saved) -> ((current == null) || (saved.getId() >= current.getId())) ? saved : current);
+		}
 	}
 
 	@Override
@@ -39,8 +61,24 @@ public class MemoryCache implements Cache {
 		return cache.get(id);
 	}
 
+	@Override
+	public List<Comic> loadAll(final int from, final int to) {
+		final Comic latest = this.latest.get();
+		final List<Comic> comics = new ArrayList<>();
+		if (latest != null) {
+			// no comic is cached beyond the latest one, so there is no need to look beyond it
+			for (long id = Math.max(from, 0); id <= Math.min(to, latest.getId()); id++) {
+				final Comic comic = cache.get((int) id);
+				if (comic != null) {
+					comics.add(comic);
+				}
+			}
+		}
+		return comics;
+	}
+
 	@Override
 	public Comic loadLatest() {
-		return cache.isEmpty() ? null : cache.get(cache.lastKey());
+		return latest.get();
 	}
 }
@@ -0,0 +1,330 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.offheap;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class implementing a cache in memory outside the heap. Each comic is encoded as a compact record (its ID, its date and its strings in UTF-8) and appended to direct byte buffer slabs, allocated up to a configurable capacity. Records are indexed by comic ID in a primitive table of slab offsets and only decoded to comics when loaded, so IDs beyond 1048575 (for an index of at most 8 MiB) are not cached. Saving a comic again only appends a new record if the comic has changed, while records replaced are reclaimed by compacting the slabs into new ones once capacity is exhausted. Since loads in flight may still read the old slabs, they are not released explicitly but only once garbage collected, so direct memory used may briefly reach about twice the capacity while compacting. Comics that still do not fit are not cached. Loads never lock, while saves are serialized. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class OffHeapCache implements Cache {
+	private static final class Store {
+		private final AtomicReferenceArray<ByteBuffer> slabs;
+		private final AtomicLongArray index;
+		private int slabCount;
+		private volatile long allocated;
+
+		private Store(final int maxSlabs, final AtomicLongArray index) {
+			slabs = new AtomicReferenceArray<>(maxSlabs);
+			this.index = index;
+		}
+
+		private Store(final Store store, final AtomicLongArray index) {
+			slabs = store.slabs;
+			this.index = index;
+			slabCount = store.slabCount;
+			allocated = store.allocated;
+		}
+	}
+
+	private static final long ABSENT = 0L;
+	private static final String CAPACITY_LESS_THAN_SLAB_SIZE = "Capacity must not be less than slab size";
+	private static final String COMIC_NOT_INDEXED = "Comic %1$d not cached, since its ID is beyond %2$d";
+	private static final String COMIC_REJECTED = "Comic %1$d rejected by cache";
+	private static final String ERROR_LOADING_COMIC = "Error loading comic %1$d";
+	private static final int INITIAL_INDEX_SIZE = 4096;
+	private static final Logger LOGGER = Logger.getLogger(OffHeapCache.class.getCanonicalName());
+	private static final long MASK = 0xFFFFFFFFL;
+	private static final int MAX_ID = 1048575;
+	private static final String NEGATIVE_ID = "ID must not be negative";
+	private static final int NO_LATEST = -1;
+	private static final String NON_POSITIVE_SLAB_SIZE = "Slab size must be positive";
+	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
+	private static final int NULL_LENGTH = -1;
+	private static final int STRINGS = 7;
+
+	private final int slabSize;
+	private final long capacity;
+	private volatile Store store;
+	private volatile int latest;
+	private long replaced;
+
+	/**
+	 * Construct a new off heap cache.
+	 * 
+	 * @param slabSize
+	 *            the size in bytes of the slabs to allocate
+	 * @param capacity
+	 *            the maximum number of bytes to allocate for slabs
+	 */
+	@Inject
+	public OffHeapCache(@Configuration(Configuration.Key.OFF_HEAP_SLAB_SIZE) final int slabSize, @Configuration(Configuration.Key.OFF_HEAP_CAPACITY) final long capacity) {
+		if (slabSize <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_SLAB_SIZE);
+		}
+		if (capacity < slabSize) {
+			throw new IllegalArgumentException(CAPACITY_LESS_THAN_SLAB_SIZE);
+		}
+		this.slabSize = slabSize;
+		this.capacity = capacity;
+		store = newStore(INITIAL_INDEX_SIZE);
+		latest = NO_LATEST;
+		replaced = 0L;
+	}
+
+	OffHeapCache() {
+		// this constructor exists just to keep CDI happy
+		slabSize = 0;
+		capacity = 0L;
+	}
+
+	static byte[] encode(final Comic comic) {
+		// this method is package private just for testing
+		final byte[][] strings = {encode(comic.getTitle()), encode(comic.getSafeTitle()), encode(comic.getImage()), encode(comic.getAlternate()), encode(comic.getTranscript()), encode(comic.getLink()), encode(comic.getNews())};
+		int length = Integer.BYTES + Long.BYTES;
+		for (final byte[] string : strings) {
+			length += Integer.BYTES + ((string == null) ? 0 : string.length);
+		}
+		final ByteBuffer record = ByteBuffer.allocate(length);
+		record.putInt(comic.getId());
+		record.putLong(comic.getDate().getTime());
+		for (final byte[] string : strings) {
+			if (string == null) {
+				record.putInt(NULL_LENGTH);
+			} else {
+				record.putInt(string.length);
+				record.put(string);
+			}
+		}
+		return record.array();
+	}
+
+	private static Comic decode(final ByteBuffer record) throws MalformedURLException {
+		final int id = record.getInt();
+		final Date date = new Date(record.getLong());
+		final String title = decodeString(record);
+		final String safeTitle = decodeString(record);
+		final URL image = decodeUrl(record);
+		final String alternate = decodeString(record);
+		final String transcript = decodeString(record);
+		final URL link = decodeUrl(record);
+		final String news = decodeString(record);
+		return new Comic(id, date, title, safeTitle, image, alternate, transcript, link, news);
+	}
+
+	private static int length(final ByteBuffer record) {
+		final int start = record.position();
+		record.position(start + Integer.BYTES + Long.BYTES);
+		for (int i = 0; i < STRINGS; i++) {
+			final int length = record.getInt();
+			if (length != NULL_LENGTH) {
+				record.position(record.position() + length);
+			}
+		}
+		return record.position() - start;
+	}
+
+	private static ByteBuffer locate(final Store store, final int id) {
+		if ((id < 0) || (id >= store.index.length())) {
+			return null;
+		}
+		final long offset = store.index.get(id);
+		if (offset == ABSENT) {
+			return null;
+		}
+		// slabs are published before the offsets of their records, so a store always holds the slabs its index refers to
+		final ByteBuffer record = store.slabs.get((int) (offset >>> Integer.SIZE) - 1).duplicate();
+		record.position((int) (offset & MASK));
+		return record;
+	}
+
+	private static byte[] read(final Store store, final int id) {
+		final ByteBuffer record = locate(store, id);
+		if (record == null) {
+			return null;
+		}
+		final byte[] bytes = new byte[length(record.duplicate())];
+		record.get(bytes);
+		return bytes;
+	}
+
+	private static byte[] encode(final String string) {
+		return (string == null) ? null : string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] encode(final URL url) {
+		return (url == null) ? null : encode(url.toString());
+	}
+
+	private static String decodeString(final ByteBuffer record) {
+		final int length = record.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		final byte[] string = new byte[length];
+		record.get(string);
+		return new String(string, StandardCharsets.UTF_8);
+	}
+
+	private static URL decodeUrl(final ByteBuffer record) throws MalformedURLException {
+		final String url = decodeString(record);
+		return (url == null) ? null : new URL(url);
+	}
+
+	@Override
+	public synchronized void save(final Comic comic) {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		if (comic.getId() < 0) {
+			throw new IllegalArgumentException(NEGATIVE_ID);
+		}
+		if (comic.getId() > MAX_ID) {
+			LOGGER.fine(String.format(COMIC_NOT_INDEXED, comic.getId(), MAX_ID));
+			return;
+		}
+		final byte[] record = encode(comic);
+		final byte[] previous = read(this.store, comic.getId());
+		if (Arrays.equals(record, previous)) {
+			// saving an unchanged comic again would only waste a slot
+			return;
+		}
+		if (previous != null) {
+			replaced += previous.length;
+		}
+		if ((!hasRoom(this.store, record.length)) && (replaced > 0L)) {
+			// compaction drops the record replaced, so the comic is not cached at all if its new record still does not fit
+			compact(comic.getId());
+		}
+		final Store store = append(this.store, comic.getId(), record);
+		if (store != null) {
+			// the store is published after the offset, since a store holding a grown index only contains the record once its offset is written
+			this.store = store;
+			if (comic.getId() > latest) {
+				latest = comic.getId();
+			}
+		} else {
+			LOGGER.fine(String.format(COMIC_REJECTED, comic.getId()));
+		}
+	}
+
+	@Override
+	public synchronized void saveAll(final Collection<Comic> comics) {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		for (final Comic comic : comics) {
+			save(comic);
+		}
+	}
+
+	@Override
+	public Comic load(final int id) throws XkcdException {
+		final ByteBuffer record = locate(store, id);
+		if (record == null) {
+			return null;
+		}
+		try {
+			return decode(record);
+		} catch (final MalformedURLException e) {
+			throw new XkcdException(String.format(ERROR_LOADING_COMIC, id), e);
+		}
+	}
+
+	@Override
+	public List<Comic> loadAll(final int from, final int to) throws XkcdException {
+		final int length = store.index.length();
+		final List<Comic> comics = new ArrayList<>();
+		for (long id = Math.max(from, 0); id <= Math.min(to, length - 1); id++) {
+			final Comic comic = load((int) id);
+			if (comic != null) {
+				comics.add(comic);
+			}
+		}
+		return comics;
+	}
+
+	@Override
+	public Comic loadLatest() throws XkcdException {
+		final int latest = this.latest;
+		return (latest == NO_LATEST) ? null : load(latest);
+	}
+
+	/**
+	 * Get the number of bytes allocated outside the heap.
+	 * 
+	 * @return the total capacity of the slabs allocated by this cache
+	 */
+	public long getAllocated() {
+		return store.allocated;
+	}
+
+	private Store newStore(final int indexSize) {
+		// slabs are never smaller than the slab size, so their number is bounded by the capacity
+		return new Store((int) Math.min(capacity / slabSize, Integer.MAX_VALUE), new AtomicLongArray(indexSize));
+	}
+
+	private boolean hasRoom(final Store store, final int length) {
+		final ByteBuffer slab = (store.slabCount == 0) ? null : store.slabs.get(store.slabCount - 1);
+		return ((slab != null) && (slab.remaining() >= length)) || (store.allocated + Math.max(slabSize, length) <= capacity);
+	}
+
+	private Store append(final Store store, final int id, final byte[] record) {
+		if (!hasRoom(store, record.length)) {
+			return null;
+		}
+		ByteBuffer slab = (store.slabCount == 0) ? null : store.slabs.get(store.slabCount - 1);
+		if ((slab == null) || (slab.remaining() < record.length)) {
+			slab = ByteBuffer.allocateDirect(Math.max(slabSize, record.length));
+			store.slabs.set(store.slabCount++, slab);
+			store.allocated += slab.capacity();
+		}
+		final int offset = slab.position();
+		slab.put(record);
+		Store target = store;
+		if (id >= store.index.length()) {
+			final AtomicLongArray index = new AtomicLongArray(Math.min(Math.max(id + 1, store.index.length() * 2), MAX_ID + 1));
+			for (int i = 0; i < store.index.length(); i++) {
+				index.set(i, store.index.get(i));
+			}
+			target = new Store(store, index);
+		}
+		// writing the offset publishes the record, since it happens after the record is put in its slab
+		target.index.set(id, ((long) target.slabCount << Integer.SIZE) | offset);
+		return target;
+	}
+
+	private void compact(final int excluded) {
+		// records are copied to new slabs, while loads in flight keep reading the old ones, which are only released once garbage collected
+		final Store store = this.store;
+		final Store compacted = newStore(store.index.length());
+		int latest = NO_LATEST;
+		for (int id = 0; id < store.index.length(); id++) {
+			final byte[] record = (id == excluded) ? null : read(store, id);
+			if ((record != null) && (append(compacted, id, record) != null)) {
+				latest = id;
+			}
+		}
+		this.store = compacted;
+		this.latest = latest;
+		replaced = 0L;
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.tiered;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Caching;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class implementing a cache in two tiers, a memory tier (L1) in front of a persistent tier (L2). Loads check L1 first and promote L2 hits to L1, while saves go to both tiers. Instances of this class are thread-safe, provided they are constructed with thread-safe tiers.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class TieredCache implements Cache {
+	private static final String COMIC_PROMOTED = "Comic %1$d promoted to L1";
+	private static final String COMICS_PROMOTED = "%1$d comics promoted to L1";
+	private static final String ERROR_PROMOTING_COMIC = "Error promoting comic %1$d to L1";
+	private static final String ERROR_PROMOTING_COMICS = "Error promoting %1$d comics to L1";
+	private static final String INVALID_L1 = "L1 must be one of %1$s";
+	private static final String INVALID_L2 = "L2 must be one of %1$s";
+	private static final Set<Caching> L1_TIERS = EnumSet.of(Caching.MEMORY, Caching.MEMORY_BOUNDED, Caching.OFF_HEAP);
+	private static final Set<Caching> L2_TIERS = EnumSet.of(Caching.JDBC, Caching.JPA);
+	private static final Logger LOGGER = Logger.getLogger(TieredCache.class.getCanonicalName());
+	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_CACHES = "Caches must not be null";
+	private static final String NULL_COMICS = "Comics must not be null";
+	private static final String NULL_L1 = "L1 must not be null";
+	private static final String NULL_L2 = "L2 must not be null";
+
+	private final Cache l1;
+	private final Cache l2;
+	private volatile boolean latestPromoted;
+
+	/**
+	 * Construct a new tiered cache.
+	 * 
+	 * @param l1
+	 *            the caching mode to use for the first tier
+	 * @param l2
+	 *            the caching mode to use for the second tier
+	 * @param caches
+	 *            the caches to select the tiers from
+	 */
+	@Inject
+	public TieredCache(@Configuration(Configuration.Key.CACHING_L1) final Caching l1, @Configuration(Configuration.Key.CACHING_L2) final Caching l2, final Instance<Cache> caches) {
+		requireValidTier(Objects.requireNonNull(l1, NULL_L1), L1_TIERS, INVALID_L1);
+		requireValidTier(Objects.requireNonNull(l2, NULL_L2), L2_TIERS, INVALID_L2);
+		Objects.requireNonNull(caches, NULL_CACHES);
+		this.l1 = caches.select(l1.getImplementation()).get();
+		this.l2 = caches.select(l2.getImplementation()).get();
+		latestPromoted = false;
+	}
+
+	TieredCache() {
+		// this constructor exists just to keep CDI happy
+		l1 = null;
+		l2 = null;
+	}
+
+	private TieredCache(final Cache l1, final Cache l2) {
+		// this constructor exists just for testing
+		this.l1 = l1;
+		this.l2 = l2;
+		latestPromoted = false;
+	}
+
+	private static void requireValidTier(final Caching caching, final Set<Caching> tiers, final String message) {
+		if (!tiers.contains(caching)) {
+			throw new IllegalArgumentException(String.format(message, tiers));
+		}
+	}
+
+	@Override
+	public void save(final Comic comic) throws XkcdException {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		l1.save(comic);
+		l2.save(comic);
+	}
+
+	@Override
+	public void saveAll(final Collection<Comic> comics) throws XkcdException {
+		Objects.requireNonNull(comics, NULL_COMICS);
+		l1.saveAll(comics);
+		l2.saveAll(comics);
+	}
+
+	@Override
+	public Comic load(final int id) throws XkcdException {
+		final Comic comic = l1.load(id);
+		return (comic == null) ? promote(l2.load(id)) : comic;
+	}
+
+	@Override
+	public List<Comic> loadAll(final int from, final int to) throws XkcdException {
+		final List<Comic> comics = l1.loadAll(from, to);
+		if ((long) comics.size() == (long) to - from + 1L) {
+			return comics;
+		}
+		// L1 misses some comics in the range, which are loaded from L2 in bulk and promoted
+		final SortedMap<Integer, Comic> all = new TreeMap<>();
+		for (final Comic comic : comics) {
+			all.put(comic.getId(), comic);
+		}
+		final List<Comic> missing = new ArrayList<>();
+		for (final Comic comic : l2.loadAll(from, to)) {
+			if (all.putIfAbsent(comic.getId(), comic) == null) {
+				missing.add(comic);
+			}
+		}
+		if (!missing.isEmpty()) {
+			try {
+				l1.saveAll(missing);
+				LOGGER.fine(String.format(COMICS_PROMOTED, missing.size()));
+			} catch (final XkcdException e) {
+				LOGGER.log(Level.WARNING, String.format(ERROR_PROMOTING_COMICS, missing.size()), e);
+			}
+		}
+		return new ArrayList<>(all.values());
+	}
+
+	@Override
+	public Comic loadLatest() throws XkcdException {
+		if (!latestPromoted) {
+			// L1 only knows about the latest comic once it has been promoted from L2, since L1 may start empty or lose comics on eviction
+			final Comic comic = promote(l2.loadLatest());
+			latestPromoted = true;
+			return comic;
+		}
+		return l1.loadLatest();
+	}
+
+	private Comic promote(final Comic comic) {
+		if (comic != null) {
+			try {
+				l1.save(comic);
+				LOGGER.fine(String.format(COMIC_PROMOTED, comic.getId()));
+			} catch (final XkcdException e) {
+				LOGGER.log(Level.WARNING, String.format(ERROR_PROMOTING_COMIC, comic.getId()), e);
+			}
+		}
+		return comic;
+	}
+}
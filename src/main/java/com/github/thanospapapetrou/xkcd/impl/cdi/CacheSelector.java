@@ -0,0 +1,63 @@
+package com.github.thanospapapetrou.xkcd.impl.cdi;
+
+import java.util.Objects;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+
+/**
+ * Class selecting the cache corresponding to the configured caching mode once on startup, rather than on every injection. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class CacheSelector {
+	private static final String NULL_CACHES = "Caches must not be null";
+	private static final String NULL_CACHING = "Caching must not be null";
+
+	private final Cache cache;
+
+	/**
+	 * Construct a new cache selector.
+	 * 
+	 * @param caching
+	 *            the caching mode to select the cache for
+	 * @param caches
+	 *            the caches to select the cache from
+	 */
+	@Inject
+	public CacheSelector(@Configuration(Configuration.Key.CACHING) final Caching caching, final Instance<Cache> caches) {
+		Objects.requireNonNull(caching, NULL_CACHING);
+		Objects.requireNonNull(caches, NULL_CACHES);
+		cache = (caching.getImplementation() == null) ? null : caches.select(caching.getImplementation()).get();
+	}
+
+	CacheSelector() {
+		// this constructor exists just to keep CDI happy
+		cache = null;
+	}
+
+	/**
+	 * Select the cache on startup.
+	 * 
+	 * @param event
+	 *            the event signaling application startup
+	 */
+	public void onStartup(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+		// observing startup is enough for this selector to be created, and thus for the cache to be selected, before any request
+	}
+
+	/**
+	 * Get the cache selected.
+	 * 
+	 * @return the cache corresponding to the configured caching mode or <code>null</code> if caching is disabled
+	 */
+	public Cache getCache() {
+		return cache;
+	}
+}
@@ -3,7 +3,10 @@ package com.github.thanospapapetrou.xkcd.impl.cdi;
 import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
 import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.JdbcCache;
 import com.github.thanospapapetrou.xkcd.impl.cache.jpa.JpaCache;
+import com.github.thanospapapetrou.xkcd.impl.cache.memory.BoundedMemoryCache;
 import com.github.thanospapapetrou.xkcd.impl.cache.memory.MemoryCache;
+import com.github.thanospapapetrou.xkcd.impl.cache.offheap.OffHeapCache;
+import com.github.thanospapapetrou.xkcd.impl.cache.tiered.TieredCache;
 
 /**
  * Enumeration representing the the possible caching modes.
@@ -14,27 +17,44 @@ public enum Caching {
 	/**
 	 * Caching using JDBC.
 	 */
-	JDBC(JdbcCache.class),
+	JDBC(JdbcCache.class, true),
 
 	/**
 	 * Caching using JPA.
 	 */
-	JPA(JpaCache.class),
+	JPA(JpaCache.class, true),
 
 	/**
 	 * Caching in memory.
 	 */
-	MEMORY(MemoryCache.class),
+	MEMORY(MemoryCache.class, false),
+
+	/**
+	 * Caching in memory, bounded by a configurable capacity.
+	 */
+	MEMORY_BOUNDED(BoundedMemoryCache.class, false),
+
+	/**
+	 * Caching in memory, outside the heap.
+	 */
+	OFF_HEAP(OffHeapCache.class, false),
+
+	/**
+	 * Caching in a memory tier in front of a persistent tier.
+	 */
+	TIERED(TieredCache.class, true),
 
 	/**
 	 * No caching.
 	 */
-	NONE(null);
+	NONE(null, false);
 
 	private final Class<? extends Cache> implementation;
+	private final boolean persistent;
 
-	private Caching(final Class<? extends Cache> implementation) {
+	private Caching(final Class<? extends Cache> implementation, final boolean persistent) {
 		this.implementation = implementation;
+		this.persistent = persistent;
 	}
 
 	/**
@@ -45,4 +65,13 @@ public enum Caching {
 	public Class<? extends Cache> getImplementation() {
 		return implementation;
 	}
+
+	/**
+	 * Check whether the cache corresponding to this caching mode survives restarts.
+	 * 
+	 * @return <code>true</code> if the cache corresponding to this caching mode is persistent, <code>false</code> otherwise
+	 */
+	public boolean isPersistent() {
+		return persistent;
+	}
 }
@@ -23,6 +23,51 @@ public @interface Configuration {
 	 * @author thanos
 	 */
 	public enum Key {
+		/**
+		 * Maximum number of blocking work items of asynchronous requests to queue while all platform threads are busy, if virtual threads are not used.
+		 */
+		ASYNC_QUEUE_SIZE("xkcd.async.queue.size"),
+
+		/**
+		 * Number of platform threads to use for blocking work of asynchronous requests, if virtual threads are not used.
+		 */
+		ASYNC_THREADS("xkcd.async.threads"),
+
+		/**
+		 * Maximum time (in milliseconds) to suspend asynchronous requests for, or zero to suspend them indefinitely.
+		 */
+		ASYNC_TIMEOUT("xkcd.async.timeout"),
+
+		/**
+		 * Whether to use virtual threads for blocking work of asynchronous requests, if supported by the JVM.
+		 */
+		ASYNC_VIRTUAL_THREADS("xkcd.async.virtual.threads"),
+
+		/**
+		 * Backfill checkpoint file to use.
+		 */
+		BACKFILL_CHECKPOINT_FILE("xkcd.backfill.checkpoint.file"),
+
+		/**
+		 * Number of comics to retrieve in parallel while backfilling.
+		 */
+		BACKFILL_CONCURRENCY("xkcd.backfill.concurrency"),
+
+		/**
+		 * Whether to allow starting backfills on demand via the API.
+		 */
+		BACKFILL_ON_DEMAND("xkcd.backfill.on.demand"),
+
+		/**
+		 * Whether to backfill on startup.
+		 */
+		BACKFILL_ON_STARTUP("xkcd.backfill.on.startup"),
+
+		/**
+		 * Maximum number of comics to retrieve per second while backfilling.
+		 */
+		BACKFILL_RATE("xkcd.backfill.rate"),
+
 		/**
 		 * xkcd base URL to use.
 		 */
@@ -33,11 +78,56 @@ public @interface Configuration {
 		 */
 		CACHING("xkcd.caching"),
 
+		/**
+		 * Caching implementation to use for the memory tier (if caching is tiered).
+		 */
+		CACHING_L1("xkcd.caching.l1"),
+
+		/**
+		 * Caching implementation to use for the persistent tier (if caching is tiered).
+		 */
+		CACHING_L2("xkcd.caching.l2"),
+
+		/**
+		 * Whether the JPA cache reads without transactions or locks, which is safe as cached comics never change.
+		 */
+		CACHING_READ_OPTIMIZED("xkcd.caching.read.optimized"),
+
+		/**
+		 * Maximum time (in milliseconds) to wait for a connection to xkcd to be established, or zero to wait indefinitely.
+		 */
+		CLIENT_CONNECT_TIMEOUT("xkcd.client.connect.timeout"),
+
+		/**
+		 * Maximum number of concurrent connections to xkcd, shared by requests and backfills, which should not exceed the number of connections kept alive per host (the <code>http.maxConnections</code> system property).
+		 */
+		CLIENT_MAX_CONNECTIONS("xkcd.client.max.connections"),
+
+		/**
+		 * Maximum time (in milliseconds) to wait for data from xkcd once connected, or zero to wait indefinitely.
+		 */
+		CLIENT_READ_TIMEOUT("xkcd.client.read.timeout"),
+
+		/**
+		 * Minimum size (in bytes) of comic representations to compress, or negative to disable compression.
+		 */
+		COMPRESSION_THRESHOLD("xkcd.compression.threshold"),
+
 		/**
 		 * Configuration file to use.
 		 */
 		CONFIGURATION_FILE("xkcd.configuration.file"),
 
+		/**
+		 * Maximum time (in milliseconds) to keep serving the current comic after it is due to be updated, if it cannot be refreshed.
+		 */
+		CURRENT_COMIC_MAX_STALENESS("xkcd.current.comic.max.staleness"),
+
+		/**
+		 * Interval (in milliseconds) between background refreshes of the current comic.
+		 */
+		CURRENT_COMIC_REFRESH_INTERVAL("xkcd.current.comic.refresh.interval"),
+
 		/**
 		 * Default empty value.
 		 */
@@ -48,10 +138,100 @@ public @interface Configuration {
 		 */
 		JDBC_DRIVER("xkcd.jdbc.driver"),
 
+		/**
+		 * Time (in milliseconds) to wait for a pooled JDBC connection when all are in use.
+		 */
+		JDBC_POOL_ACQUIRE_TIMEOUT("xkcd.jdbc.pool.acquire.timeout"),
+
+		/**
+		 * Time (in milliseconds) after which idle pooled JDBC connections are closed.
+		 */
+		JDBC_POOL_IDLE_TIMEOUT("xkcd.jdbc.pool.idle.timeout"),
+
+		/**
+		 * Maximum number of pooled JDBC connections.
+		 */
+		JDBC_POOL_MAX_SIZE("xkcd.jdbc.pool.max.size"),
+
+		/**
+		 * Minimum number of pooled JDBC connections.
+		 */
+		JDBC_POOL_MIN_SIZE("xkcd.jdbc.pool.min.size"),
+
+		/**
+		 * Number of prepared statements to cache per pooled JDBC connection.
+		 */
+		JDBC_POOL_STATEMENT_CACHE_SIZE("xkcd.jdbc.pool.statement.cache.size"),
+
+		/**
+		 * Time (in seconds) to wait for a pooled JDBC connection to be validated.
+		 */
+		JDBC_POOL_VALIDATION_TIMEOUT("xkcd.jdbc.pool.validation.timeout"),
+
 		/**
 		 * JDBC URL to use.
 		 */
-		JDBC_URL("xkcd.jdbc.url");
+		JDBC_URL("xkcd.jdbc.url"),
+
+		/**
+		 * Number of statements to batch when writing via JPA (less than 2 to disable batch writing).
+		 */
+		JPA_BATCH_WRITING_SIZE("xkcd.jpa.batch.writing.size"),
+
+		/**
+		 * Whether to cache the results of the query loading the latest comic via JPA.
+		 */
+		JPA_QUERY_RESULTS_CACHE("xkcd.jpa.query.results.cache"),
+
+		/**
+		 * Whether to cache comics loaded via JPA in the shared (second level) cache.
+		 */
+		JPA_SHARED_CACHE("xkcd.jpa.shared.cache"),
+
+		/**
+		 * Number of comics to keep strongly referenced in the shared (second level) JPA cache.
+		 */
+		JPA_SHARED_CACHE_SIZE("xkcd.jpa.shared.cache.size"),
+
+		/**
+		 * Memory cache capacity (in bytes) to use.
+		 */
+		MEMORY_CACHE_CAPACITY("xkcd.memory.cache.capacity"),
+
+		/**
+		 * Maximum number of comics reported missing by xkcd to remember.
+		 */
+		NEGATIVE_CACHE_MAX_SIZE("xkcd.negative.cache.max.size"),
+
+		/**
+		 * Time (in milliseconds) to remember comics reported missing by xkcd.
+		 */
+		NEGATIVE_CACHE_TTL("xkcd.negative.cache.ttl"),
+
+		/**
+		 * Off heap cache capacity (in bytes) to use. Direct memory used may briefly reach about twice this capacity while compacting.
+		 */
+		OFF_HEAP_CAPACITY("xkcd.off.heap.capacity"),
+
+		/**
+		 * Off heap cache slab size (in bytes) to use.
+		 */
+		OFF_HEAP_SLAB_SIZE("xkcd.off.heap.slab.size"),
+
+		/**
+		 * Response cache capacity (in bytes) to use for caching encoded comic representations.
+		 */
+		RESPONSE_CACHE_CAPACITY("xkcd.response.cache.capacity"),
+
+		/**
+		 * Whether to render immutable XHTML comic representations, linking to the current, the next and a random comic via redirects.
+		 */
+		XHTML_IMMUTABLE("xkcd.xhtml.immutable"),
+
+		/**
+		 * Whether to stream XHTML comic representations while rendering them.
+		 */
+		XHTML_STREAMING("xkcd.xhtml.streaming");
 
 		private final String key;
 
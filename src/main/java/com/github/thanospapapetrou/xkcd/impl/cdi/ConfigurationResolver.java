@@ -20,7 +20,7 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
 /**
- * Class defining CDI producer methods for parameters annotated with the {@link Configuration} qualifier. Values for these parameters are resolved against system properties or servlet context initialization parameters. Instances of this class are thread-safe.
+ * Class defining CDI producer methods for parameters annotated with the {@link Configuration} qualifier. Values for these parameters are resolved against system properties or servlet context initialization parameters, which are loaded once, either on servlet context initialization or on demand if CDI startup events are observed before then. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
@@ -28,6 +28,7 @@ import javax.servlet.annotation.WebListener;
 @WebListener
 public class ConfigurationResolver implements ServletContextListener {
 	private static final String ERROR_LOADING_CONFIGURATION_FILE = "Error loading configuration file %1$s";
+	private static final String LOADED = ConfigurationResolver.class.getCanonicalName() + ".loaded";
 	private static final String LOADED_CONFIGURATION_FILE = "Loaded configuration file %1$s";
 	private static final Logger LOGGER = Logger.getLogger(ConfigurationResolver.class.getCanonicalName());
 	private static final String NULL_EVENT = "Event must not be null";
@@ -36,6 +37,38 @@ public class ConfigurationResolver implements ServletContextListener {
 	private static final String NULL_SERVLET_CONTEXT = "Servlet context must not be null";
 	private static final String SET_TO = "%1$s set to %2$s";
 
+	private static volatile ServletContext initializedServletContext;
+
+	/**
+	 * Resolve a {@link Boolean} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param injectionPoint
+	 *            the injection point where the configuration parameter value is to be injected
+	 * @return the configuration parameter value
+	 */
+	@Configuration
+	@Produces
+	public static Boolean resolveBoolean(final ServletContext servletContext, final InjectionPoint injectionPoint) {
+		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
+		return resolveBoolean(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+	}
+
+	/**
+	 * Resolve a {@link Boolean} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param key
+	 *            the key of the configuration parameter
+	 * @return the configuration parameter value
+	 */
+	public static Boolean resolveBoolean(final ServletContext servletContext, final Configuration.Key key) {
+		final String value = resolveString(servletContext, key);
+		return (value == null) ? null : Boolean.valueOf(value);
+	}
+
 	/**
 	 * Resolve a {@link Caching} configuration parameter value.
 	 * 
@@ -49,7 +82,7 @@ public class ConfigurationResolver implements ServletContextListener {
 	@Produces
 	public static Caching resolveCaching(final ServletContext servletContext, final InjectionPoint injectionPoint) {
 		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
-		return resolveCaching(servletContext, injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+		return resolveCaching(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
 	}
 
 	/**
@@ -66,6 +99,66 @@ public class ConfigurationResolver implements ServletContextListener {
 		return (value == null) ? null : Caching.valueOf(value);
 	}
 
+	/**
+	 * Resolve an {@link Integer} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param injectionPoint
+	 *            the injection point where the configuration parameter value is to be injected
+	 * @return the configuration parameter value
+	 */
+	@Configuration
+	@Produces
+	public static Integer resolveInteger(final ServletContext servletContext, final InjectionPoint injectionPoint) {
+		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
+		return resolveInteger(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+	}
+
+	/**
+	 * Resolve an {@link Integer} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param key
+	 *            the key of the configuration parameter
+	 * @return the configuration parameter value
+	 */
+	public static Integer resolveInteger(final ServletContext servletContext, final Configuration.Key key) {
+		final String value = resolveString(servletContext, key);
+		return (value == null) ? null : Integer.valueOf(value);
+	}
+
+	/**
+	 * Resolve a {@link Long} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param injectionPoint
+	 *            the injection point where the configuration parameter value is to be injected
+	 * @return the configuration parameter value
+	 */
+	@Configuration
+	@Produces
+	public static Long resolveLong(final ServletContext servletContext, final InjectionPoint injectionPoint) {
+		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
+		return resolveLong(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+	}
+
+	/**
+	 * Resolve a {@link Long} configuration parameter value.
+	 * 
+	 * @param servletContext
+	 *            the servlet context to use for resolving configuration parameter value
+	 * @param key
+	 *            the key of the configuration parameter
+	 * @return the configuration parameter value
+	 */
+	public static Long resolveLong(final ServletContext servletContext, final Configuration.Key key) {
+		final String value = resolveString(servletContext, key);
+		return (value == null) ? null : Long.valueOf(value);
+	}
+
 	/**
 	 * Resolve a {@link String} configuration parameter value.
 	 * 
@@ -79,7 +172,7 @@ public class ConfigurationResolver implements ServletContextListener {
 	@Produces
 	public static String resolveString(final ServletContext servletContext, final InjectionPoint injectionPoint) {
 		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
-		return resolveString(servletContext, injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+		return resolveString(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
 	}
 
 	/**
@@ -113,18 +206,24 @@ public class ConfigurationResolver implements ServletContextListener {
 	@Produces
 	public static URL resolveUrl(final ServletContext servletContext, final InjectionPoint injectionPoint) throws MalformedURLException {
 		Objects.requireNonNull(injectionPoint, NULL_INJECTION_POINT);
-		final String value = resolveString(servletContext, injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
+		final String value = resolveString(servletContext(servletContext), injectionPoint.getAnnotated().getAnnotation(Configuration.class).value());
 		return (value == null) ? null : new URL(value);
 	}
 
-	@Override
-	public void contextDestroyed(final ServletContextEvent event) {
-		// nothing to do on context destruction
+	private static ServletContext servletContext(final ServletContext servletContext) {
+		// the servlet context injected is request scoped, so it only serves CDI startup events observed before the servlet context is initialized, while the one initialized serves afterwards, even outside requests, such as while JAX-RS providers are initialized
+		final ServletContext initializedServletContext = ConfigurationResolver.initializedServletContext;
+		if (initializedServletContext != null) {
+			return initializedServletContext;
+		}
+		load(servletContext);
+		return servletContext;
 	}
 
-	@Override
-	public void contextInitialized(final ServletContextEvent event) {
-		Objects.requireNonNull(event, NULL_EVENT);
+	private static synchronized void load(final ServletContext servletContext) {
+		if (servletContext.getAttribute(LOADED) != null) {
+			return;
+		}
 		final Properties configuration = new Properties();
 		final String configurationFile = System.getProperty(Configuration.Key.CONFIGURATION_FILE.toString());
 		if (configurationFile != null) {
@@ -135,11 +234,23 @@ public class ConfigurationResolver implements ServletContextListener {
 				LOGGER.log(Level.WARNING, String.format(ERROR_LOADING_CONFIGURATION_FILE, configurationFile), e);
 			}
 		}
-		final ServletContext servletContext = event.getServletContext();
 		for (final String name : Collections.list(servletContext.getInitParameterNames())) {
 			final String value = System.getProperty(name, configuration.getProperty(name, servletContext.getInitParameter(name)));
 			servletContext.setAttribute(name, value);
 			LOGGER.config(String.format(SET_TO, name, value));
 		}
+		servletContext.setAttribute(LOADED, Boolean.TRUE);
+	}
+
+	@Override
+	public void contextDestroyed(final ServletContextEvent event) {
+		initializedServletContext = null;
+	}
+
+	@Override
+	public void contextInitialized(final ServletContextEvent event) {
+		Objects.requireNonNull(event, NULL_EVENT);
+		load(event.getServletContext());
+		initializedServletContext = event.getServletContext();
 	}
 }
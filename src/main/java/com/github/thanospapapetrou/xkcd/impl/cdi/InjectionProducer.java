@@ -1,22 +1,25 @@
 package com.github.thanospapapetrou.xkcd.impl.cdi;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
-import javax.enterprise.inject.spi.CDI;
-import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.message.GZipEncoder;
 
 import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
+import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.ConnectionPool;
+import com.github.thanospapapetrou.xkcd.impl.jax.rs.ComicMessageBodyReader;
 
 /**
  * Class defining static CDI producer and disposer methods.
@@ -24,45 +27,33 @@ import com.github.thanospapapetrou.xkcd.impl.cache.Cache;
  * @author thanos
  */
 public final class InjectionProducer {
-	private static final String JAVAX_PERSISTENCE_JDBC_DRIVER = "javax.persistence.jdbc.driver";
-	private static final String JAVAX_PERSISTENCE_JDBC_URL = "javax.persistence.jdbc.url";
-	private static final String NULL_CACHING = "Caching must not be null";
-	private static final String NULL_CONNECTION = "Connection must not be null";
-	private static final String NULL_ENTITY_MANAGER = "Entity manager must not be null";
+	private static final String ECLIPSELINK_CACHE_SHARED_DEFAULT = "eclipselink.cache.shared.default";
+	private static final String ECLIPSELINK_CACHE_SIZE_DEFAULT = "eclipselink.cache.size.default";
+	private static final String ECLIPSELINK_JDBC_BATCH_WRITING = "eclipselink.jdbc.batch-writing";
+	private static final String ECLIPSELINK_JDBC_BATCH_WRITING_SIZE = "eclipselink.jdbc.batch-writing.size";
+	private static final String JAVAX_PERSISTENCE_NON_JTA_DATA_SOURCE = "javax.persistence.nonJtaDataSource";
+	private static final String JDBC = "JDBC";
+	private static final String NEGATIVE_CONNECT_TIMEOUT = "Connect timeout must not be negative";
+	private static final String NEGATIVE_READ_TIMEOUT = "Read timeout must not be negative";
+	private static final String NULL_BASE_URL = "Base URL must not be null";
+	private static final String NULL_CLIENT = "Client must not be null";
 	private static final String NULL_ENTITY_MANAGER_FACTORY = "Entity manager factory must not be null";
-	private static final String NULL_JDBC_DRIVER = "JDBC driver must not be null";
-	private static final String NULL_JDBC_URL = "JDBC URL must not be null";
+	private static final String NULL_POOL = "Connection pool must not be null";
+	private static final String NULL_SELECTOR = "Selector must not be null";
 	private static final String PERSISTENCE_UNIT = "xkcd";
 
 	private InjectionProducer() {
 	}
 
 	/**
-	 * Dispose a connection by closing it.
-	 * 
-	 * @param connection
-	 *            the connection to dispose
-	 * @throws SQLException
-	 *             if any errors occur
-	 */
-	public static void dispose(@Disposes final Connection connection) throws SQLException {
-		Objects.requireNonNull(connection, NULL_CONNECTION);
-		if (!connection.isClosed()) {
-			connection.close();
-		}
-	}
-
-	/**
-	 * Dispose an entity manager by closing it.
+	 * Dispose a JAX-RS client by closing it.
 	 * 
-	 * @param entityManager
-	 *            the entity manager to dispose
+	 * @param client
+	 *            the JAX-RS client to dispose
 	 */
-	public static void dispose(@Disposes final EntityManager entityManager) {
-		Objects.requireNonNull(entityManager, NULL_ENTITY_MANAGER);
-		if (entityManager.isOpen()) {
-			entityManager.close();
-		}
+	public static void dispose(@Disposes final Client client) {
+		Objects.requireNonNull(client, NULL_CLIENT);
+		client.close();
 	}
 
 	/**
@@ -81,75 +72,66 @@ public final class InjectionProducer {
 	/**
 	 * Produce a cache.
 	 * 
-	 * @param caching
-	 *            the caching mode to use for producing the cache
-	 * @return a cache
+	 * @param selector
+	 *            the selector holding the cache to produce
+	 * @return the cache selected by the configured caching mode or <code>null</code> if caching is disabled
 	 */
 	@Produces
 	@ImplementationSelector
-	public static Cache produceCache(@Configuration(Configuration.Key.CACHING) final Caching caching) {
-		Objects.requireNonNull(caching, NULL_CACHING);
-		return (caching.getImplementation() == null) ? null : CDI.current().select(caching.getImplementation()).get();
+	public static Cache produceCache(final CacheSelector selector) {
+		Objects.requireNonNull(selector, NULL_SELECTOR);
+		return selector.getCache();
 	}
 
 	/**
-	 * Produce a connection.
+	 * Produce a JAX-RS client for retrieving comics from xkcd. The client is shared by all requests, so that its providers are registered only once and its connections are kept alive and reused between requests.
 	 * 
-	 * @param jdbcDriver
-	 *            the JDBC driver to use to produce the connection
-	 * @param jdbcUrl
-	 *            the JDBC URL to use to produce the connection
-	 * @return a connection
-	 * @throws ClassNotFoundException
-	 *             if any errors occur while loading the JDBC driver
-	 * @throws InstantiationException
-	 *             if any errors occur while loading the JDBC driver
-	 * @throws IllegalAccessException
-	 *             if any errors occur while loading the JDBC driver
-	 * @throws SQLException
-	 *             if any errors occur while producing the connection
+	 * @param baseUrl
+	 *            the base URL to use for resolving relative link URLs in comic JSON
+	 * @param connectTimeout
+	 *            the maximum time (in milliseconds) to wait for a connection to be established, or zero to wait indefinitely
+	 * @param readTimeout
+	 *            the maximum time (in milliseconds) to wait for data once connected, or zero to wait indefinitely
+	 * @return a JAX-RS client accepting gzip compressed responses
 	 */
 	@Produces
-	public static Connection produceConnection(@Configuration(Configuration.Key.JDBC_DRIVER) final String jdbcDriver, @Configuration(Configuration.Key.JDBC_URL) final String jdbcUrl) throws ClassNotFoundException, IllegalAccessException, InstantiationException, SQLException {
-		Objects.requireNonNull(jdbcDriver, NULL_JDBC_DRIVER);
-		Objects.requireNonNull(jdbcUrl, NULL_JDBC_URL);
-		Class.forName(jdbcDriver).newInstance();
-		return DriverManager.getConnection(jdbcUrl);
-	}
-
-	/**
-	 * Produce an entity manager.
-	 * 
-	 * @param entityManagerFactory
-	 *            the entity manager factory to use to produce the entity manager
-	 * @return an entity manager
-	 */
-	@Produces
-	@RequestScoped
-	public static EntityManager produceEntityManager(final EntityManagerFactory entityManagerFactory) {
-		Objects.requireNonNull(entityManagerFactory, NULL_ENTITY_MANAGER_FACTORY);
-		synchronized (entityManagerFactory) {
-			return entityManagerFactory.createEntityManager();
+	@ApplicationScoped
+	public static Client produceClient(@Configuration(Configuration.Key.BASE_URL) final URL baseUrl, @Configuration(Configuration.Key.CLIENT_CONNECT_TIMEOUT) final int connectTimeout, @Configuration(Configuration.Key.CLIENT_READ_TIMEOUT) final int readTimeout) {
+		Objects.requireNonNull(baseUrl, NULL_BASE_URL);
+		if (connectTimeout < 0) {
+			throw new IllegalArgumentException(NEGATIVE_CONNECT_TIMEOUT);
 		}
+		if (readTimeout < 0) {
+			throw new IllegalArgumentException(NEGATIVE_READ_TIMEOUT);
+		}
+		return ClientBuilder.newBuilder().property(ClientProperties.CONNECT_TIMEOUT, connectTimeout).property(ClientProperties.READ_TIMEOUT, readTimeout).register(new ComicMessageBodyReader(baseUrl)).register(EncodingFilter.class).register(GZipEncoder.class).build();
 	}
 
 	/**
 	 * Produce an entity manager factory.
 	 * 
-	 * @param jdbcDriver
-	 *            the JDBC driver to use
-	 * @param jdbcUrl
-	 *            the JDBC URL to use
+	 * @param pool
+	 *            the connection pool to use (which also caches prepared statements)
+	 * @param sharedCache
+	 *            whether to enable the shared (second level) cache
+	 * @param sharedCacheSize
+	 *            the number of entities to keep strongly referenced in the shared cache
+	 * @param batchWritingSize
+	 *            the number of statements to batch when writing (less than 2 to disable batch writing)
 	 * @return an entity manager factory
 	 */
 	@Produces
 	@ApplicationScoped
-	public static EntityManagerFactory produceEntityManagerFactory(@Configuration(Configuration.Key.JDBC_DRIVER) final String jdbcDriver, @Configuration(Configuration.Key.JDBC_URL) final String jdbcUrl) {
-		Objects.requireNonNull(jdbcDriver, NULL_JDBC_DRIVER);
-		Objects.requireNonNull(jdbcUrl, NULL_JDBC_URL);
-		final Map<String, String> properties = new HashMap<String, String>();
-		properties.put(JAVAX_PERSISTENCE_JDBC_DRIVER, jdbcDriver);
-		properties.put(JAVAX_PERSISTENCE_JDBC_URL, jdbcUrl);
+	public static EntityManagerFactory produceEntityManagerFactory(final ConnectionPool pool, @Configuration(Configuration.Key.JPA_SHARED_CACHE) final boolean sharedCache, @Configuration(Configuration.Key.JPA_SHARED_CACHE_SIZE) final int sharedCacheSize, @Configuration(Configuration.Key.JPA_BATCH_WRITING_SIZE) final int batchWritingSize) {
+		Objects.requireNonNull(pool, NULL_POOL);
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put(JAVAX_PERSISTENCE_NON_JTA_DATA_SOURCE, pool);
+		properties.put(ECLIPSELINK_CACHE_SHARED_DEFAULT, Boolean.toString(sharedCache));
+		properties.put(ECLIPSELINK_CACHE_SIZE_DEFAULT, Integer.toString(sharedCacheSize));
+		if (batchWritingSize > 1) {
+			properties.put(ECLIPSELINK_JDBC_BATCH_WRITING, JDBC);
+			properties.put(ECLIPSELINK_JDBC_BATCH_WRITING_SIZE, Integer.toString(batchWritingSize));
+		}
 		return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, properties);
 	}
 }
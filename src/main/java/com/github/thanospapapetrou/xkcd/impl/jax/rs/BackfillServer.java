@@ -0,0 +1,71 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs;
+
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.github.thanospapapetrou.xkcd.impl.cache.backfill.Backfill;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class exposing the cache backfill using JAX-RS, so that backfills can be started on demand, if configured to allow it, and their progress can be monitored. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@Path("/backfill")
+public class BackfillServer {
+	private static final String NULL_BACKFILL = "Backfill must not be null";
+
+	private final Backfill backfill;
+	private final boolean onDemand;
+
+	/**
+	 * Construct a new backfill server.
+	 * 
+	 * @param backfill
+	 *            the backfill to expose
+	 * @param onDemand
+	 *            whether to allow starting backfills on demand
+	 */
+	@Inject
+	public BackfillServer(final Backfill backfill, @Configuration(Configuration.Key.BACKFILL_ON_DEMAND) final boolean onDemand) {
+		this.backfill = Objects.requireNonNull(backfill, NULL_BACKFILL);
+		this.onDemand = onDemand;
+	}
+
+	BackfillServer() {
+		// this constructor exists just to keep CDI happy
+		backfill = null;
+		onDemand = false;
+	}
+
+	/**
+	 * Get the progress of the last backfill.
+	 * 
+	 * @return a description of the progress of the last backfill
+	 */
+	@GET
+	@Produces(MediaType.TEXT_PLAIN)
+	public String getProgress() {
+		return backfill.getProgress();
+	}
+
+	/**
+	 * Start a backfill.
+	 * 
+	 * @return a response with status 202 (accepted) if a backfill was started, 403 (forbidden) if starting backfills on demand is not allowed or 409 (conflict) if one is already running or caching is disabled
+	 */
+	@POST
+	public Response start() {
+		if (!onDemand) {
+			return Response.status(Response.Status.FORBIDDEN).build();
+		}
+		return (backfill.start() ? Response.accepted() : Response.status(Response.Status.CONFLICT)).build();
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.CachingXkcd;
+import com.github.thanospapapetrou.xkcd.impl.cache.NavigationMetadata;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Container response filter adding validators and caching directives to comic responses and answering conditional requests for comics not modified with status 304 (not modified). Representations may be compressed using any content coding the client accepts, so entity tags are weak. Numbered comics never change, so their JSON and text representations are cacheable forever, while representations of the current comic are cacheable until the next comic is expected to be published. XHTML representations of numbered comics are cacheable forever too if they are immutable, otherwise they embed the current comic and are cacheable until the next comic is expected to be published. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@Provider
+public class ComicCacheControlFilter implements ContainerResponseFilter {
+	private static final String ENTITY_TAG = "%1$d-%2$s";
+	private static final String ID = "id";
+	private static final String IMMUTABLE = "immutable";
+	private static final int MAX_AGE = (int) TimeUnit.DAYS.toSeconds(365L);
+	private static final String NULL_NAVIGATION = "Navigation must not be null";
+	private static final String NULL_REQUEST_CONTEXT = "Request context must not be null";
+	private static final String NULL_RESPONSE_CONTEXT = "Response context must not be null";
+	private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+	private static final String XHTML_ENTITY_TAG = "%1$d-%2$d-%3$s";
+
+	private final NavigationMetadata navigation;
+	private final boolean immutablePages;
+
+	/**
+	 * Construct a new comic cache control filter.
+	 * 
+	 * @param navigation
+	 *            the navigation metadata to use for retrieving the current comic
+	 * @param immutablePages
+	 *            whether XHTML representations are immutable
+	 */
+	@Inject
+	public ComicCacheControlFilter(final NavigationMetadata navigation, @Configuration(Configuration.Key.XHTML_IMMUTABLE) final boolean immutablePages) {
+		this.navigation = Objects.requireNonNull(navigation, NULL_NAVIGATION);
+		this.immutablePages = immutablePages;
+	}
+
+	ComicCacheControlFilter() {
+		// this constructor exists just to keep CDI happy
+		navigation = null;
+		immutablePages = false;
+	}
+
+	static int getMaxAge(final Date date, final Date now) {
+		// this method is package private just for testing
+		return (int) Math.max(TimeUnit.MILLISECONDS.toSeconds(CachingXkcd.nextUpdate(date).getTime() - now.getTime()), 0L);
+	}
+
+	static CacheControl forever() {
+		// this method is package private just for reuse by redirects
+		final CacheControl cacheControl = new CacheControl();
+		cacheControl.setMaxAge(MAX_AGE);
+		cacheControl.getCacheExtension().put(IMMUTABLE, null);
+		return cacheControl;
+	}
+
+	static CacheControl untilNextUpdate(final Date date) {
+		// this method is package private just for reuse by redirects
+		final CacheControl cacheControl = new CacheControl();
+		cacheControl.setMaxAge(getMaxAge(date, new Date()));
+		return cacheControl;
+	}
+
+	@Override
+	public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+		Objects.requireNonNull(requestContext, NULL_REQUEST_CONTEXT);
+		Objects.requireNonNull(responseContext, NULL_RESPONSE_CONTEXT);
+		if ((responseContext.getStatus() != Response.Status.OK.getStatusCode()) || !(responseContext.getEntity() instanceof Comic)) {
+			return;
+		}
+		final Comic comic = (Comic) responseContext.getEntity();
+		final MediaType mediaType = responseContext.getMediaType();
+		final boolean numbered = requestContext.getUriInfo().getPathParameters().containsKey(ID);
+		final EntityTag entityTag;
+		final Date lastModified;
+		final CacheControl cacheControl;
+		if (MediaType.APPLICATION_XHTML_XML_TYPE.isCompatible(mediaType) && !immutablePages) {
+			// pages change whenever a new comic is published
+			final Comic current = numbered ? getCurrentComic(comic) : comic;
+			entityTag = new EntityTag(String.format(XHTML_ENTITY_TAG, comic.getId(), current.getId(), mediaType.getSubtype()), true);
+			lastModified = current.getDate();
+			cacheControl = untilNextUpdate(current.getDate());
+		} else {
+			entityTag = new EntityTag(String.format(ENTITY_TAG, comic.getId(), mediaType.getSubtype()), true);
+			lastModified = comic.getDate();
+			cacheControl = numbered ? forever() : untilNextUpdate(comic.getDate());
+		}
+		final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+		headers.putSingle(HttpHeaders.ETAG, entityTag);
+		headers.putSingle(HttpHeaders.LAST_MODIFIED, lastModified);
+		headers.putSingle(HttpHeaders.CACHE_CONTROL, cacheControl);
+		headers.putSingle(HttpHeaders.VARY, VARY);
+		if (requestContext.getRequest().evaluatePreconditions(lastModified, entityTag) != null) {
+			responseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+			responseContext.setEntity(null);
+			headers.remove(HttpHeaders.CONTENT_TYPE);
+		}
+	}
+
+	private Comic getCurrentComic(final Comic comic) {
+		// if no current comic has been learned of yet, the comic is the newest one known
+		final Comic current = navigation.getCurrentComic();
+		return ((current == null) || (current.getId() < comic.getId())) ? comic : current;
+	}
+}
@@ -7,17 +7,17 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TimeZone;
 
 import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReaderFactory;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -27,7 +27,7 @@ import javax.ws.rs.ext.Provider;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
 
 /**
- * Message body reader for parsing an xkcd comic from its JSON representation.
+ * Message body reader for parsing an xkcd comic from its JSON representation. Comics are parsed in a single pass using a streaming JSON parser, pulling only the fields needed, without building an intermediate JSON object.
  * 
  * @author thanos
  */
@@ -36,10 +36,10 @@ import com.github.thanospapapetrou.xkcd.domain.Comic;
 public class ComicMessageBodyReader implements MessageBodyReader<Comic> {
 	private static final String ALTERNATE = "alt";
 	private static final String DAY = "day";
-	private static final TimeZone GMT = TimeZone.getTimeZone("GMT+00:00");
 	private static final String ID = "num";
 	private static final String IMAGE = "img";
 	private static final String LINK = "link";
+	private static final String MISSING_FIELD = "Missing field %1$s";
 	private static final String MONTH = "month";
 	private static final String NEWS = "news";
 	private static final String NULL_BASE_URL = "Base URL must not be null";
@@ -48,11 +48,11 @@ public class ComicMessageBodyReader implements MessageBodyReader<Comic> {
 	private static final String SAFE_TITLE = "safe_title";
 	private static final String TITLE = "title";
 	private static final String TRANSCRIPT = "transcript";
+	private static final String UNEXPECTED_EVENT = "Unexpected %1$s, expected %2$s";
 	private static final String YEAR = "year";
 
 	private final URL baseUrl;
-	private final JsonReaderFactory jsonReaderFactory;
-	private final ThreadLocal<Calendar> calendar;
+	private final JsonParserFactory jsonParserFactory;
 
 	/**
 	 * Construct a new comic message body reader. Instances of this class are thread-safe.
@@ -61,19 +61,59 @@ public class ComicMessageBodyReader implements MessageBodyReader<Comic> {
 	 *            the base URL to use for resolving relative link URLs in comic JSON
 	 */
 	public ComicMessageBodyReader(final URL baseUrl) {
-		this(Objects.requireNonNull(baseUrl, NULL_BASE_URL), Json.createReaderFactory(null), new ThreadLocal<Calendar>() {
-			@Override
-			protected Calendar initialValue() {
-				return new GregorianCalendar(GMT, Locale.ROOT);
-			}
-		});
+		this(Objects.requireNonNull(baseUrl, NULL_BASE_URL), Json.createParserFactory(null));
 	}
 
-	ComicMessageBodyReader(final URL baseUrl, final JsonReaderFactory jsonReaderFactory, final ThreadLocal<Calendar> calendar) {
+	ComicMessageBodyReader(final URL baseUrl, final JsonParserFactory jsonParserFactory) {
 		// this constructor exists and is package private just for testing
 		this.baseUrl = baseUrl;
-		this.jsonReaderFactory = jsonReaderFactory;
-		this.calendar = calendar;
+		this.jsonParserFactory = jsonParserFactory;
+	}
+
+	private static void expect(final JsonParser parser, final JsonParser.Event event, final JsonParser.Event expected) {
+		if (event != expected) {
+			throw new JsonParsingException(String.format(UNEXPECTED_EVENT, event, expected), parser.getLocation());
+		}
+	}
+
+	private static String readValue(final JsonParser parser) {
+		final JsonParser.Event event = parser.next();
+		switch (event) {
+		case VALUE_STRING:
+		case VALUE_NUMBER:
+			return parser.getString();
+		case START_ARRAY:
+		case START_OBJECT:
+			skip(parser);
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	private static void skip(final JsonParser parser) {
+		int depth = 1;
+		while (depth > 0) {
+			switch (parser.next()) {
+			case START_ARRAY:
+			case START_OBJECT:
+				depth++;
+				break;
+			case END_ARRAY:
+			case END_OBJECT:
+				depth--;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private static <T> T require(final T value, final String field) {
+		if (value == null) {
+			throw new JsonException(String.format(MISSING_FIELD, field));
+		}
+		return value;
 	}
 
 	@Override
@@ -84,18 +124,9 @@ public class ComicMessageBodyReader implements MessageBodyReader<Comic> {
 	@Override
 	public Comic readFrom(final Class<Comic> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, String> httpHeaders, final InputStream input) throws MalformedURLException {
 		Objects.requireNonNull(input, NULL_INPUT);
-		final JsonObject json = jsonReaderFactory.createReader(input, getCharset(mediaType)).readObject();
-		final Calendar calendar = this.calendar.get();
-		calendar.set(Calendar.ERA, GregorianCalendar.AD);
-		calendar.set(Calendar.YEAR, Integer.parseInt(json.getString(YEAR)));
-		calendar.set(Calendar.MONTH, Integer.parseInt(json.getString(MONTH)) - 1);
-		calendar.set(Calendar.DATE, Integer.parseInt(json.getString(DAY)));
-		calendar.set(Calendar.HOUR_OF_DAY, 0);
-		calendar.set(Calendar.MINUTE, 0);
-		calendar.set(Calendar.SECOND, 0);
-		calendar.set(Calendar.MILLISECOND, 0);
-		final String link = json.getString(LINK);
-		return new Comic(json.getInt(ID), new Date(calendar.getTimeInMillis()), json.getString(TITLE), json.getString(SAFE_TITLE), new URL(json.getString(IMAGE)), json.getString(ALTERNATE), json.getString(TRANSCRIPT), link.isEmpty() ? null : new URL(baseUrl, link), json.getString(NEWS));
+		final JsonParser parser = jsonParserFactory.createParser(input, getCharset(mediaType));
+		expect(parser, parser.next(), JsonParser.Event.START_OBJECT);
+		return read(parser);
 	}
 
 	Charset getCharset(final MediaType mediaType) {
@@ -109,13 +140,61 @@ public class ComicMessageBodyReader implements MessageBodyReader<Comic> {
 		return StandardCharsets.ISO_8859_1;
 	}
 
-	JsonReaderFactory getJsonReaderFactory() {
-		// this method exists and is package private just for testing
-		return jsonReaderFactory;
-	}
-
-	ThreadLocal<Calendar> getCalendar() {
-		// this method exists and is package private just for testing
-		return calendar;
+	private Comic read(final JsonParser parser) throws MalformedURLException {
+		String id = null;
+		String year = null;
+		String month = null;
+		String day = null;
+		String title = null;
+		String safeTitle = null;
+		String image = null;
+		String alternate = null;
+		String transcript = null;
+		String link = null;
+		String news = null;
+		for (JsonParser.Event event = parser.next(); event != JsonParser.Event.END_OBJECT; event = parser.next()) {
+			expect(parser, event, JsonParser.Event.KEY_NAME);
+			final String key = parser.getString();
+			final String value = readValue(parser);
+			switch (key) {
+			case ID:
+				id = value;
+				break;
+			case YEAR:
+				year = value;
+				break;
+			case MONTH:
+				month = value;
+				break;
+			case DAY:
+				day = value;
+				break;
+			case TITLE:
+				title = value;
+				break;
+			case SAFE_TITLE:
+				safeTitle = value;
+				break;
+			case IMAGE:
+				image = value;
+				break;
+			case ALTERNATE:
+				alternate = value;
+				break;
+			case TRANSCRIPT:
+				transcript = value;
+				break;
+			case LINK:
+				link = value;
+				break;
+			case NEWS:
+				news = value;
+				break;
+			default:
+				break;
+			}
+		}
+		final Date date = Date.from(LocalDate.of(Integer.parseInt(require(year, YEAR)), Integer.parseInt(require(month, MONTH)), Integer.parseInt(require(day, DAY))).atStartOfDay(ZoneOffset.UTC).toInstant());
+		return new Comic(Integer.parseInt(require(id, ID)), date, require(title, TITLE), require(safeTitle, SAFE_TITLE), new URL(require(image, IMAGE)), alternate, transcript, ((link == null) || link.isEmpty()) ? null : new URL(baseUrl, link), news);
 	}
 }
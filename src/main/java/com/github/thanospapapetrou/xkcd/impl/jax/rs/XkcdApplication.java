@@ -19,7 +19,7 @@ import com.github.thanospapapetrou.xkcd.impl.jax.rs.writers.Xhtml5ComicMessageBo
  */
 @ApplicationPath("/comic")
 public class XkcdApplication extends Application {
-	private static final Set<Class<?>> CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(XkcdServer.class, Xhtml5ComicMessageBodyWriter.class, JsonComicMessageBodyWriter.class, TextComicMessageBodyWriter.class)));
+	private static final Set<Class<?>> CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(XkcdServer.class, BackfillServer.class, ComicCacheControlFilter.class, Xhtml5ComicMessageBodyWriter.class, JsonComicMessageBodyWriter.class, TextComicMessageBodyWriter.class)));
 
 	@Override
 	public Set<Class<?>> getClasses() {
@@ -2,31 +2,36 @@ package com.github.thanospapapetrou.xkcd.impl.jax.rs;
 
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 
-import javax.annotation.PreDestroy;
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.json.JsonException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd;
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd;
 import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.BlockingExecutor;
 import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
- * Class implementing an xkcd client using JAX-RS. Instances of this class are not thread-safe.
+ * Class implementing an xkcd client using JAX-RS. The underlying JAX-RS client is shared, so that its connections are kept alive and reused, while the number of concurrent connections opened is bounded. Since this client is application scoped, the bound applies to all retrievals, whether serving requests or backfilling. Since the underlying connector keeps at most <code>http.maxConnections</code> connections alive per host, connections beyond that are closed rather than reused. Since the underlying connector blocks, asynchronous retrievals run on a blocking executor. Background work may retrieve comics directly, bypassing any decorators of this client. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
-@RequestScoped
-public class XkcdClient implements AutoCloseable, Xkcd {
+@ApplicationScoped
+public class XkcdClient implements AsyncXkcd {
 	private static final String APPLICATION_JSON_CHARSET_UTF_8 = MediaType.APPLICATION_JSON_TYPE.withCharset(StandardCharsets.UTF_8.name()).toString();
 	private static final String COMIC_NOT_FOUND = "Comic %1$d not found at %2$s";
 	private static final String COMIC_RETRIEVED_FROM = "Comic %1$d retrieved from %2$s";
@@ -36,70 +41,130 @@ public class XkcdClient implements AutoCloseable, Xkcd {
 	private static final String GET_COMIC = "/{id}/info.0.json";
 	private static final String GET_CURRENT_COMIC = "/info.0.json";
 	private static final String ID = "id";
+	private static final String INTERRUPTED_WAITING_FOR_CONNECTION = "Interrupted while waiting for a connection to %1$s";
+	private static final String NON_POSITIVE_MAX_CONNECTIONS = "Max connections must be positive";
 	private static final String NULL_BASE_URL = "Base URL must not be null";
+	private static final String NULL_CLIENT = "Client must not be null";
+	private static final String NULL_EXECUTOR = "Executor must not be null";
 
-	private final Client client;
 	private final WebTarget target;
+	private final Semaphore connections;
+	private final BlockingExecutor executor;
 	private final Logger logger;
 
 	/**
 	 * Construct a new xkcd client.
 	 * 
+	 * @param client
+	 *            the shared JAX-RS client to use for retrieving comics
 	 * @param baseUrl
 	 *            the base URL to use for retrieving comics
+	 * @param maxConnections
+	 *            the maximum number of concurrent connections to open for all retrievals
+	 * @param executor
+	 *            the executor to use for asynchronous retrievals
 	 */
 	@Inject
-	public XkcdClient(@Configuration(Configuration.Key.BASE_URL) final URL baseUrl) {
-		client = ClientBuilder.newBuilder().register(new ComicMessageBodyReader(Objects.requireNonNull(baseUrl, NULL_BASE_URL))).build();
-		target = client.target(baseUrl.toString());
+	public XkcdClient(final Client client, @Configuration(Configuration.Key.BASE_URL) final URL baseUrl, @Configuration(Configuration.Key.CLIENT_MAX_CONNECTIONS) final int maxConnections, final BlockingExecutor executor) {
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException(NON_POSITIVE_MAX_CONNECTIONS);
+		}
+		target = Objects.requireNonNull(client, NULL_CLIENT).target(Objects.requireNonNull(baseUrl, NULL_BASE_URL).toString());
+		connections = new Semaphore(maxConnections, true);
+		this.executor = Objects.requireNonNull(executor, NULL_EXECUTOR);
 		logger = Logger.getLogger(XkcdClient.class.getCanonicalName());
 	}
 
 	XkcdClient() {
 		// this constructor exists just to keep CDI happy
-		client = null;
 		target = null;
+		connections = null;
+		executor = null;
 		logger = null;
 	}
 
 	@SuppressWarnings("unused")
-	private XkcdClient(final Client client, final WebTarget target, final Logger logger) {
+	private XkcdClient(final WebTarget target, final Semaphore connections, final BlockingExecutor executor, final Logger logger) {
 		// this constructor exists just for testing
-		this.client = client;
 		this.target = target;
+		this.connections = connections;
+		this.executor = executor;
 		this.logger = logger;
 	}
 
 	@Override
-	@PreDestroy
-	public void close() {
-		client.close();
+	public Comic getComic(final int id) throws XkcdException {
+		return retrieveComic(id);
 	}
 
 	@Override
-	public Comic getComic(final int id) throws XkcdException {
+	public Comic getCurrentComic() throws XkcdException {
+		return retrieveCurrentComic();
+	}
+
+	@Override
+	public CompletionStage<Comic> getComicAsync(final int id) {
+		return executor.submit(() -> getComic(id));
+	}
+
+	@Override
+	public CompletionStage<Comic> getCurrentComicAsync() {
+		return executor.submit(this::getCurrentComic);
+	}
+
+	/**
+	 * Retrieve a specific xkcd comic from xkcd. Unlike {@link #getComic(int)}, this method is not decorated, so it always retrieves the comic from xkcd.
+	 * 
+	 * @param id
+	 *            the ID of the comic to retrieve
+	 * @return the comic specified or <code>null</code> if it doesn't exist
+	 * @throws XkcdException
+	 *             if any errors occur while retrieving the comic specified
+	 */
+	public Comic retrieveComic(final int id) throws XkcdException {
 		final WebTarget target = this.target.path(GET_COMIC).resolveTemplate(ID, id);
 		try {
-			final Comic comic = target.request(APPLICATION_JSON_CHARSET_UTF_8).buildGet().invoke(Comic.class);
+			final Comic comic = invoke(target.request(APPLICATION_JSON_CHARSET_UTF_8).buildGet(), target);
 			logger.fine(String.format(COMIC_RETRIEVED_FROM, id, target.getUri()));
 			return comic;
 		} catch (final NotFoundException e) {
 			logger.fine(String.format(COMIC_NOT_FOUND, id, target.getUri()));
 			return null;
-		} catch (final WebApplicationException e) {
+		} catch (final WebApplicationException | ProcessingException | JsonException | DateTimeException | NumberFormatException e) {
+			// malformed comic JSON fails with the exceptions thrown by the reader, rather than with a processing exception
 			throw new XkcdException(String.format(ERROR_RETRIEVING_COMIC, id, target.getUri()), e);
 		}
 	}
 
-	@Override
-	public Comic getCurrentComic() throws XkcdException {
+	/**
+	 * Retrieve the current xkcd comic from xkcd. Unlike {@link #getCurrentComic()}, this method is not decorated, so it always retrieves the current comic from xkcd.
+	 * 
+	 * @return the current comic
+	 * @throws XkcdException
+	 *             if any errors occur while retrieving current comic
+	 */
+	public Comic retrieveCurrentComic() throws XkcdException {
 		final WebTarget target = this.target.path(GET_CURRENT_COMIC);
 		try {
-			final Comic comic = target.request(APPLICATION_JSON_CHARSET_UTF_8).buildGet().invoke(Comic.class);
+			final Comic comic = invoke(target.request(APPLICATION_JSON_CHARSET_UTF_8).buildGet(), target);
 			logger.fine(String.format(CURRENT_COMIC_RETRIEVED_FROM, comic.getId(), target.getUri()));
 			return comic;
-		} catch (final WebApplicationException e) {
+		} catch (final WebApplicationException | ProcessingException | JsonException | DateTimeException | NumberFormatException e) {
 			throw new XkcdException(String.format(ERROR_RETRIEVING_CURRENT_COMIC, target.getUri()), e);
 		}
 	}
+
+	private Comic invoke(final Invocation invocation, final WebTarget target) throws XkcdException {
+		try {
+			connections.acquire();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XkcdException(String.format(INTERRUPTED_WAITING_FOR_CONNECTION, target.getUri()), e);
+		}
+		try {
+			return invocation.invoke(Comic.class);
+		} finally {
+			connections.release();
+		}
+	}
 }
@@ -1,6 +1,12 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs;
 
+import java.net.URI;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
@@ -9,57 +15,146 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd;
-import com.github.thanospapapetrou.xkcd.api.XkcdException;
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
- * Class implementing an xkcd server using JAX-RS. Instances of this class are thread safe, provided they are constructed with a thread-safe xkcd.
+ * Class implementing an xkcd server using JAX-RS. Besides comics, it serves redirects to the current, the next and a random comic, so that immutable comic pages can link to them. Requests are suspended while comics are retrieved asynchronously, so that container threads are not held while waiting for xkcd, and are resumed with 503 Service Unavailable if they time out or if retrieving comics is rejected because the blocking executor is saturated. Responses are resumed, and therefore rendered, compressed and written, on the thread completing the retrieval, which is usually a blocking executor thread, so its threads must be sized for writing responses as well. Instances of this class are thread safe, provided they are constructed with a thread-safe xkcd.
  * 
  * @author thanos
  */
 @Alternative
 @Path("/")
-public class XkcdServer implements Xkcd {
+public class XkcdServer {
 	private static final String NULL_XKCD = "xkcd must not be null";
 
-	private final Xkcd xkcd;
+	private final AsyncXkcd xkcd;
+	private final long timeout;
 
 	/**
 	 * Construct a new xkcd server.
 	 * 
 	 * @param xkcd
 	 *            the xkcd to use for retrieving comics
+	 * @param timeout
+	 *            the maximum time (in milliseconds) to suspend requests for, or zero to suspend them indefinitely
 	 */
 	@Inject
-	public XkcdServer(final Xkcd xkcd) {
+	public XkcdServer(final AsyncXkcd xkcd, @Configuration(Configuration.Key.ASYNC_TIMEOUT) final long timeout) {
 		this.xkcd = Objects.requireNonNull(xkcd, NULL_XKCD);
+		this.timeout = timeout;
 	}
 
 	XkcdServer() {
 		// this constructor exists just to keep CDI happy
 		xkcd = null;
+		timeout = 0L;
 	}
 
+	private static Response redirect(final int id, final CacheControl cacheControl) {
+		// relative locations are resolved against the base URI of the application
+		return Response.seeOther(URI.create(Integer.toString(id))).cacheControl(cacheControl).build();
+	}
+
+	/**
+	 * Get a specific comic.
+	 * 
+	 * @param id
+	 *            the ID of the comic to retrieve
+	 * @param response
+	 *            the response to resume with the comic specified, with a not found exception if it doesn't exist or with an xkcd exception if any errors occur while retrieving it
+	 */
 	@GET
-	@Override
 	@Path("/{id}")
 	@Produces({MediaType.APPLICATION_XHTML_XML, MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
-	public Comic getComic(@PathParam("id") final int id) throws XkcdException {
-		final Comic comic = xkcd.getComic(id);
-		if (comic == null) {
-			throw new NotFoundException();
-		}
-		return comic;
+	public void getComic(@PathParam("id") final int id, @Suspended final AsyncResponse response) {
+		resume(response, xkcd.getComicAsync(id).thenApply((final Comic comic) -> {
+			if (comic == null) {
+				throw new NotFoundException();
+			}
+			return comic;
+		}));
 	}
 
+	/**
+	 * Get the current comic.
+	 * 
+	 * @param response
+	 *            the response to resume with the current comic or with an xkcd exception if any errors occur while retrieving it
+	 */
 	@GET
-	@Override
 	@Path("/current")
 	@Produces({MediaType.APPLICATION_XHTML_XML, MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
-	public Comic getCurrentComic() throws XkcdException {
-		return xkcd.getCurrentComic();
+	public void getCurrentComic(@Suspended final AsyncResponse response) {
+		resume(response, xkcd.getCurrentComicAsync());
+	}
+
+	/**
+	 * Redirect to the current comic.
+	 * 
+	 * @param response
+	 *            the response to resume with a redirect to the current comic, cacheable until the next comic is expected to be published, or with an xkcd exception if any errors occur while retrieving the current comic
+	 */
+	@GET
+	@Path("/last")
+	public void getLastComic(@Suspended final AsyncResponse response) {
+		resume(response, xkcd.getCurrentComicAsync().thenApply((final Comic current) -> redirect(current.getId(), ComicCacheControlFilter.untilNextUpdate(current.getDate()))));
+	}
+
+	/**
+	 * Redirect to the comic following a comic.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @param response
+	 *            the response to resume with a redirect to the comic following the comic, cacheable forever, or to the comic itself if it is the current one, cacheable until the next comic is expected to be published, or with an xkcd exception if any errors occur while retrieving the current comic
+	 */
+	@GET
+	@Path("/{id}/next")
+	public void getNextComic(@PathParam("id") final int id, @Suspended final AsyncResponse response) {
+		resume(response, xkcd.getCurrentComicAsync().thenApply((final Comic current) -> {
+			if ((id < 1) || (id > current.getId())) {
+				throw new NotFoundException();
+			}
+			return (id < current.getId()) ? redirect(id + 1, ComicCacheControlFilter.forever()) : redirect(id, ComicCacheControlFilter.untilNextUpdate(current.getDate()));
+		}));
+	}
+
+	/**
+	 * Redirect to a random comic.
+	 * 
+	 * @param response
+	 *            the response to resume with a redirect to a random comic, not cacheable, or with an xkcd exception if any errors occur while retrieving the current comic
+	 */
+	@GET
+	@Path("/random")
+	public void getRandomComic(@Suspended final AsyncResponse response) {
+		resume(response, xkcd.getCurrentComicAsync().thenApply((final Comic current) -> {
+			final CacheControl cacheControl = new CacheControl();
+			cacheControl.setNoStore(true);
+			return redirect(ThreadLocalRandom.current().nextInt(current.getId()) + 1, cacheControl);
+		}));
+	}
+
+	private void resume(final AsyncResponse response, final CompletionStage<?> stage) {
+		// without a timeout handler, responses timing out are resumed with 503 Service Unavailable
+		response.setTimeout(timeout, TimeUnit.MILLISECONDS);
+		stage.whenComplete((final Object result, final Throwable failure) -> {
+			if (failure == null) {
+				response.resume(result);
+			} else {
+				// failures of dependent stages are wrapped, while the exception mappers expect the original
+				final Throwable cause = ((failure instanceof CompletionException) && (failure.getCause() != null)) ? failure.getCause() : failure;
+				response.resume((cause instanceof RejectedExecutionException) ? new ServiceUnavailableException() : cause);
+			}
+		});
 	}
 }
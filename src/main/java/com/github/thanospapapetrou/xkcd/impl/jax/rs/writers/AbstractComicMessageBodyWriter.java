@@ -1,10 +1,16 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Objects;
 
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
@@ -12,14 +18,86 @@ import javax.ws.rs.ext.MessageBodyWriter;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
 
 /**
- * Abstract class defining common implementation for all comic message body writers.
+ * Abstract class defining common implementation for all comic message body writers. Comics are encoded to bytes in full before being written, so that their length is known in advance, and, if a response cache is used, their encoded representations are cached and reused. Representations not smaller than a threshold are compressed using the content coding negotiated with the client, and compressed representations are cached too. Alternatively, representations not cached may be streamed, in which case they are written, and compressed if the client accepts it, while being encoded, without knowing their length in advance, and, if a response cache is used, are cached once written in full.
  * 
  * @author thanos
  */
 public abstract class AbstractComicMessageBodyWriter implements MessageBodyWriter<Comic> {
+	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_CONTENT_TYPE = "Content type must not be null";
+	private static final String NULL_HTTP_HEADERS = "HTTP headers must not be null";
+	private static final String NULL_OUTPUT = "Output must not be null";
+
+	private final MediaType contentType;
+	private final ResponseCache responseCache;
+	private final int compressionThreshold;
+	private final boolean streaming;
+
+	@Context
+	private HttpHeaders requestHeaders;
+
+	/**
+	 * Construct a new comic message body writer.
+	 * 
+	 * @param contentType
+	 *            the content type of the representations written
+	 * @param responseCache
+	 *            the response cache to use for caching encoded representations or <code>null</code> if representations are not cacheable
+	 * @param compressionThreshold
+	 *            the minimum size in bytes of representations to compress or negative to disable compression
+	 */
+	protected AbstractComicMessageBodyWriter(final MediaType contentType, final ResponseCache responseCache, final int compressionThreshold) {
+		this(contentType, responseCache, compressionThreshold, false);
+	}
+
+	/**
+	 * Construct a new comic message body writer.
+	 * 
+	 * @param contentType
+	 *            the content type of the representations written
+	 * @param responseCache
+	 *            the response cache to use for caching encoded representations or <code>null</code> if representations are not cacheable
+	 * @param compressionThreshold
+	 *            the minimum size in bytes of representations to compress or negative to disable compression
+	 * @param streaming
+	 *            whether to stream representations not cached instead of encoding them in full before writing them
+	 */
+	protected AbstractComicMessageBodyWriter(final MediaType contentType, final ResponseCache responseCache, final int compressionThreshold, final boolean streaming) {
+		this.contentType = Objects.requireNonNull(contentType, NULL_CONTENT_TYPE);
+		this.responseCache = responseCache;
+		this.compressionThreshold = compressionThreshold;
+		this.streaming = streaming;
+	}
+
+	private static OutputStream tee(final OutputStream output, final OutputStream copy) {
+		return new FilterOutputStream(output) {
+			@Override
+			public void write(final int b) throws IOException {
+				out.write(b);
+				copy.write(b);
+			}
+
+			@Override
+			public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+				out.write(bytes, offset, length);
+				copy.write(bytes, offset, length);
+			}
+		};
+	}
+
 	@Override
 	public long getSize(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType) {
-		return -1L;
+		if ((responseCache == null) || streaming) {
+			// encoding uncacheable or streamed representations just to measure them would encode them twice
+			return -1L;
+		}
+		try {
+			final byte[] bytes = getBytes(Objects.requireNonNull(comic, NULL_COMIC));
+			final ContentCoding contentCoding = negotiate(bytes.length);
+			return ((contentCoding == null) ? bytes : compress(comic, contentCoding, bytes)).length;
+		} catch (final IOException e) {
+			throw new InternalServerErrorException(e);
+		}
 	}
 
 	@Override
@@ -28,5 +106,108 @@ public abstract class AbstractComicMessageBodyWriter implements MessageBodyWrite
 	}
 
 	@Override
-	public abstract void writeTo(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException;
+	public void writeTo(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException {
+		Objects.requireNonNull(comic, NULL_COMIC);
+		Objects.requireNonNull(httpHeaders, NULL_HTTP_HEADERS);
+		Objects.requireNonNull(output, NULL_OUTPUT);
+		if (streaming) {
+			final byte[] bytes = (responseCache == null) ? null : responseCache.get(comic.getId(), contentType);
+			if (bytes == null) {
+				stream(comic, httpHeaders, output);
+			} else {
+				write(comic, bytes, httpHeaders, output);
+			}
+		} else {
+			write(comic, getBytes(comic), httpHeaders, output);
+		}
+	}
+
+	/**
+	 * Encode a comic.
+	 * 
+	 * @param comic
+	 *            the comic to encode
+	 * @return the bytes of the representation of the comic
+	 * @throws IOException
+	 *             if any errors occur while encoding the comic
+	 */
+	protected abstract byte[] encode(final Comic comic) throws IOException;
+
+	/**
+	 * Encode a comic writing its representation to an output stream while it is produced. The default implementation encodes the comic in full and writes the bytes encoded.
+	 * 
+	 * @param comic
+	 *            the comic to encode
+	 * @param output
+	 *            the output stream to write the representation of the comic to
+	 * @throws IOException
+	 *             if any errors occur while encoding the comic or writing to the output stream
+	 */
+	protected void encode(final Comic comic, final OutputStream output) throws IOException {
+		output.write(encode(comic));
+	}
+
+	/**
+	 * Write the HTTP headers describing the representation of a comic, other than its length.
+	 * 
+	 * @param httpHeaders
+	 *            the HTTP headers to write to
+	 */
+	protected void writeHeaders(final MultivaluedMap<String, Object> httpHeaders) {
+		httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+	}
+
+	private byte[] getBytes(final Comic comic) throws IOException {
+		return (responseCache == null) ? encode(comic) : responseCache.get(comic.getId(), contentType, () -> encode(comic));
+	}
+
+	private void write(final Comic comic, final byte[] encoded, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException {
+		byte[] bytes = encoded;
+		writeHeaders(httpHeaders);
+		final ContentCoding contentCoding = negotiate(bytes.length);
+		if (contentCoding != null) {
+			bytes = compress(comic, contentCoding, bytes);
+			httpHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, contentCoding.toString());
+		}
+		httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, bytes.length);
+		output.write(bytes);
+	}
+
+	private void stream(final Comic comic, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException {
+		writeHeaders(httpHeaders);
+		// representations are copied while streamed, so that they can be cached once written in full
+		final ByteArrayOutputStream copy = (responseCache == null) ? null : new ByteArrayOutputStream();
+		// the length is not known in advance, so streamed representations are compressed whenever compression is enabled and accepted
+		final ContentCoding contentCoding = negotiate(Integer.MAX_VALUE);
+		if (contentCoding == null) {
+			encode(comic, (copy == null) ? output : tee(output, copy));
+		} else {
+			httpHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, contentCoding.toString());
+			try (final OutputStream compressed = contentCoding.compress(new FilterOutputStream(output) {
+				@Override
+				public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+					out.write(bytes, offset, length);
+				}
+
+				@Override
+				public void close() throws IOException {
+					// the output stream belongs to the container, so it is only flushed
+					flush();
+				}
+			})) {
+				encode(comic, (copy == null) ? compressed : tee(compressed, copy));
+			}
+		}
+		if (copy != null) {
+			responseCache.put(comic.getId(), contentType, copy.toByteArray());
+		}
+	}
+
+	private ContentCoding negotiate(final int length) {
+		return ((requestHeaders == null) || (compressionThreshold < 0) || (length < compressionThreshold)) ? null : ContentCoding.negotiate(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+	}
+
+	private byte[] compress(final Comic comic, final ContentCoding contentCoding, final byte[] bytes) throws IOException {
+		return (responseCache == null) ? contentCoding.encode(bytes) : responseCache.get(comic.getId(), contentType, contentCoding, () -> contentCoding.encode(bytes));
+	}
 }
@@ -0,0 +1,132 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Enumeration representing the supported HTTP content codings for compressing comic representations.
+ * 
+ * @author thanos
+ */
+public enum ContentCoding {
+	/**
+	 * Compression using gzip.
+	 */
+	GZIP("gzip", "x-gzip") {
+		@Override
+		OutputStream compress(final OutputStream output) throws IOException {
+			return new GZIPOutputStream(output);
+		}
+	},
+
+	/**
+	 * Compression using deflate in zlib format.
+	 */
+	DEFLATE("deflate", null) {
+		@Override
+		OutputStream compress(final OutputStream output) {
+			return new DeflaterOutputStream(output);
+		}
+	};
+
+	private static final String ANY = "*";
+	private static final String CODING_SEPARATOR = ",";
+	private static final String NULL_BYTES = "Bytes must not be null";
+	private static final String PARAMETER_SEPARATOR = ";";
+	private static final String QUALITY = "q=";
+
+	private final String coding;
+	private final String alias;
+
+	private ContentCoding(final String coding, final String alias) {
+		this.coding = coding;
+		this.alias = alias;
+	}
+
+	/**
+	 * Negotiate the content coding to use for a response.
+	 * 
+	 * @param acceptEncodings
+	 *            the values of the <code>Accept-Encoding</code> header of the request or <code>null</code> if the header is missing
+	 * @return the content coding acceptable with the highest quality, preferring gzip over deflate, or <code>null</code> if no supported content coding is acceptable
+	 */
+	public static ContentCoding negotiate(final List<String> acceptEncodings) {
+		if (acceptEncodings == null) {
+			return null;
+		}
+		final float[] qualities = new float[values().length];
+		float anyQuality = 0.0F;
+		final boolean[] listed = new boolean[values().length];
+		for (final String acceptEncoding : acceptEncodings) {
+			for (final String encoding : acceptEncoding.split(CODING_SEPARATOR)) {
+				final String[] parameters = encoding.split(PARAMETER_SEPARATOR);
+				final String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+				final float quality = parseQuality(parameters);
+				if (ANY.equals(name)) {
+					anyQuality = quality;
+				}
+				for (final ContentCoding contentCoding : values()) {
+					if (contentCoding.coding.equals(name) || name.equals(contentCoding.alias)) {
+						qualities[contentCoding.ordinal()] = quality;
+						listed[contentCoding.ordinal()] = true;
+					}
+				}
+			}
+		}
+		ContentCoding negotiated = null;
+		float negotiatedQuality = 0.0F;
+		for (final ContentCoding contentCoding : values()) {
+			final float quality = listed[contentCoding.ordinal()] ? qualities[contentCoding.ordinal()] : anyQuality;
+			if (quality > negotiatedQuality) {
+				negotiated = contentCoding;
+				negotiatedQuality = quality;
+			}
+		}
+		return negotiated;
+	}
+
+	private static float parseQuality(final String[] parameters) {
+		for (int i = 1; i < parameters.length; i++) {
+			final String parameter = parameters[i].trim().toLowerCase(Locale.ROOT);
+			if (parameter.startsWith(QUALITY)) {
+				try {
+					return Float.parseFloat(parameter.substring(QUALITY.length()));
+				} catch (final NumberFormatException e) {
+					return 0.0F;
+				}
+			}
+		}
+		return 1.0F;
+	}
+
+	/**
+	 * Encode bytes using this content coding.
+	 * 
+	 * @param bytes
+	 *            the bytes to encode
+	 * @return the bytes encoded
+	 * @throws IOException
+	 *             if any errors occur while encoding the bytes
+	 */
+	public byte[] encode(final byte[] bytes) throws IOException {
+		Objects.requireNonNull(bytes, NULL_BYTES);
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream(bytes.length);
+		try (final OutputStream output = compress(encoded)) {
+			output.write(bytes);
+		}
+		return encoded.toByteArray();
+	}
+
+	@Override
+	public String toString() {
+		return coding;
+	}
+
+	abstract OutputStream compress(final OutputStream output) throws IOException;
+}
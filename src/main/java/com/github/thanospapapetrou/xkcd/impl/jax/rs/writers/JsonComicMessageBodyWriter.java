@@ -1,26 +1,23 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
 
-import java.io.OutputStream;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Type;
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
+import javax.inject.Inject;
 import javax.json.Json;
-import javax.json.JsonBuilderFactory;
-import javax.json.JsonObjectBuilder;
-import javax.json.JsonWriterFactory;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
- * Message body writer for converting an xkcd comic to its JSON representation. Instances of this class are thread-safe.
+ * Message body writer for converting an xkcd comic to its JSON representation. Fields are streamed through a JSON generator, without building an intermediate JSON object. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
@@ -34,44 +31,52 @@ public class JsonComicMessageBodyWriter extends AbstractComicMessageBodyWriter {
 	private static final String IMAGE = "image";
 	private static final String LINK = "link";
 	private static final String NEWS = "news";
-	private static final String NULL_COMIC = "Comic must not be null";
-	private static final String NULL_HTTP_HEADERS = "HTTP headers must not be null";
-	private static final String NULL_OUTPUT = "Output must not be null";
+	private static final String NULL_RESPONSE_CACHE = "Response cache must not be null";
 	private static final String SAFE_TITLE = "safeTitle";
 	private static final String TITLE = "title";
 	private static final String TRANSCRIPT = "transcript";
 
-	private final JsonBuilderFactory jsonBuilderFactory;
-	private final JsonWriterFactory jsonWriterFactory;
+	private final JsonGeneratorFactory jsonGeneratorFactory;
 
 	/**
 	 * Construct a new JSON comic message body writer.
+	 * 
+	 * @param responseCache
+	 *            the response cache to use for caching JSON representations
+	 * @param compressionThreshold
+	 *            the minimum size in bytes of JSON representations to compress or negative to disable compression
 	 */
-	public JsonComicMessageBodyWriter() {
-		this(Json.createBuilderFactory(null), Json.createWriterFactory(null));
+	@Inject
+	public JsonComicMessageBodyWriter(final ResponseCache responseCache, @Configuration(Configuration.Key.COMPRESSION_THRESHOLD) final int compressionThreshold) {
+		this(Json.createGeneratorFactory(null), Objects.requireNonNull(responseCache, NULL_RESPONSE_CACHE), compressionThreshold);
 	}
 
-	private JsonComicMessageBodyWriter(final JsonBuilderFactory jsonBuilderFactory, final JsonWriterFactory jsonWriterFactory) {
+	private JsonComicMessageBodyWriter(final JsonGeneratorFactory jsonGeneratorFactory, final ResponseCache responseCache, final int compressionThreshold) {
 		// this constructor exists just for testing
-		this.jsonBuilderFactory = jsonBuilderFactory;
-		this.jsonWriterFactory = jsonWriterFactory;
+		super(APPLICATION_JSON_CHARSET_UTF_8, responseCache, compressionThreshold);
+		this.jsonGeneratorFactory = jsonGeneratorFactory;
+	}
+
+	private static void write(final JsonGenerator json, final String name, final String value) {
+		if (value == null) {
+			json.writeNull(name);
+		} else {
+			json.write(name, value);
+		}
 	}
 
 	@Override
-	public void writeTo(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) {
-		Objects.requireNonNull(comic, NULL_COMIC);
-		Objects.requireNonNull(httpHeaders, NULL_HTTP_HEADERS);
-		Objects.requireNonNull(output, NULL_OUTPUT);
-		httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8);
-		JsonObjectBuilder json = jsonBuilderFactory.createObjectBuilder().add(ID, comic.getId()).add(DATE, comic.getDate().getTime()).add(TITLE, comic.getTitle()).add(SAFE_TITLE, comic.getSafeTitle()).add(IMAGE, comic.getImage().toString());
-		final String alternate = comic.getAlternate();
-		json = (alternate == null) ? json.addNull(ALTERNATE) : json.add(ALTERNATE, alternate);
-		final String transcript = comic.getTranscript();
-		json = (transcript == null) ? json.addNull(TRANSCRIPT) : json.add(TRANSCRIPT, transcript);
-		final URL link = comic.getLink();
-		json = (link == null) ? json.addNull(LINK) : json.add(LINK, link.toString());
-		final String news = comic.getNews();
-		json = (news == null) ? json.addNull(NEWS) : json.add(NEWS, news);
-		jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8).writeObject(json.build());
+	protected byte[] encode(final Comic comic) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final JsonGenerator json = jsonGeneratorFactory.createGenerator(bytes, StandardCharsets.UTF_8)) {
+			json.writeStartObject().write(ID, comic.getId()).write(DATE, comic.getDate().getTime()).write(TITLE, comic.getTitle()).write(SAFE_TITLE, comic.getSafeTitle()).write(IMAGE, comic.getImage().toString());
+			write(json, ALTERNATE, comic.getAlternate());
+			write(json, TRANSCRIPT, comic.getTranscript());
+			final URL link = comic.getLink();
+			write(json, LINK, (link == null) ? null : link.toString());
+			write(json, NEWS, comic.getNews());
+			json.writeEnd();
+		}
+		return bytes.toByteArray();
 	}
 }
@@ -0,0 +1,264 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
+
+/**
+ * Class caching encoded comic representations, keyed by comic ID, media type and content coding, so that comics can be written without encoding them again. Comics are immutable, so representations are never invalidated, just evicted in least recently used order when the capacity in bytes is exceeded. Instances of this class are thread-safe.
+ * 
+ * @author thanos
+ */
+@ApplicationScoped
+public class ResponseCache {
+	/**
+	 * Interface representing the encoding of a comic representation.
+	 * 
+	 * @author thanos
+	 */
+	@FunctionalInterface
+	public interface Encoding {
+		/**
+		 * Encode a comic representation.
+		 * 
+		 * @return the bytes of the comic representation
+		 * @throws IOException
+		 *             if any errors occur while encoding the comic representation
+		 */
+		public byte[] encode() throws IOException;
+	}
+
+	private static final class Key {
+		private final int id;
+		private final MediaType mediaType;
+		private final ContentCoding contentCoding;
+
+		private Key(final int id, final MediaType mediaType, final ContentCoding contentCoding) {
+			this.id = id;
+			this.mediaType = mediaType;
+			this.contentCoding = contentCoding;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return (object instanceof Key) && (id == ((Key) object).id) && mediaType.equals(((Key) object).mediaType) && (contentCoding == ((Key) object).contentCoding);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, mediaType, contentCoding);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(KEY, id, mediaType, (contentCoding == null) ? IDENTITY : contentCoding);
+		}
+	}
+
+	private static final String IDENTITY = "identity";
+	private static final String KEY = "%1$d (%2$s, %3$s)";
+	private static final float LOAD_FACTOR = 0.75F;
+	private static final Logger LOGGER = Logger.getLogger(ResponseCache.class.getCanonicalName());
+	private static final String NEGATIVE_CAPACITY = "Capacity must not be negative";
+	private static final String NULL_BYTES = "Bytes must not be null";
+	private static final String NULL_ENCODING = "Encoding must not be null";
+	private static final String NULL_MEDIA_TYPE = "Media type must not be null";
+	private static final int OVERHEAD = 128;
+	private static final String RESPONSE_CACHE_STATISTICS = "Response cache statistics: %1$d hits, %2$d misses, %3$d evictions";
+	private static final String RESPONSE_EVICTED = "Response %1$s evicted from cache";
+
+	private final long capacity;
+	private final Map<Key, byte[]> cache;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+	private long weight;
+
+	/**
+	 * Construct a new response cache.
+	 * 
+	 * @param capacity
+	 *            the capacity of this cache in bytes
+	 */
+	@Inject
+	public ResponseCache(@Configuration(Configuration.Key.RESPONSE_CACHE_CAPACITY) final long capacity) {
+		if (capacity < 0L) {
+			throw new IllegalArgumentException(NEGATIVE_CAPACITY);
+		}
+		this.capacity = capacity;
+		cache = new LinkedHashMap<>(1, LOAD_FACTOR, true);
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+		weight = 0L;
+	}
+
+	ResponseCache() {
+		// this constructor exists just to keep CDI happy
+		capacity = 0L;
+		cache = null;
+		hits = null;
+		misses = null;
+		evictions = null;
+	}
+
+	private static long weigh(final byte[] bytes) {
+		return OVERHEAD + bytes.length;
+	}
+
+	/**
+	 * Get the encoded representation of a comic if it is cached.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @param mediaType
+	 *            the media type of the representation
+	 * @return the bytes of the representation, which must not be modified, or <code>null</code> if the representation is not cached
+	 */
+	public byte[] get(final int id, final MediaType mediaType) {
+		final Key key = new Key(id, Objects.requireNonNull(mediaType, NULL_MEDIA_TYPE), null);
+		final byte[] bytes;
+		synchronized (this) {
+			bytes = cache.get(key);
+		}
+		if (bytes == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Get the encoded representation of a comic, encoding and caching it if it is not cached already. Encoding happens outside any lock, so concurrent misses for the same representation may encode it more than once.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @param mediaType
+	 *            the media type of the representation
+	 * @param encoding
+	 *            the encoding to use if the representation is not cached
+	 * @return the bytes of the representation, which must not be modified
+	 * @throws IOException
+	 *             if any errors occur while encoding the representation
+	 */
+	public byte[] get(final int id, final MediaType mediaType, final Encoding encoding) throws IOException {
+		return get(id, mediaType, null, encoding);
+	}
+
+	/**
+	 * Get the encoded representation of a comic compressed using a content coding, encoding and caching it if it is not cached already. Encoding happens outside any lock, so concurrent misses for the same representation may encode it more than once.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @param mediaType
+	 *            the media type of the representation
+	 * @param contentCoding
+	 *            the content coding of the representation or <code>null</code> for an uncompressed representation
+	 * @param encoding
+	 *            the encoding to use if the representation is not cached
+	 * @return the bytes of the representation, which must not be modified
+	 * @throws IOException
+	 *             if any errors occur while encoding the representation
+	 */
+	public byte[] get(final int id, final MediaType mediaType, final ContentCoding contentCoding, final Encoding encoding) throws IOException {
+		final Key key = new Key(id, Objects.requireNonNull(mediaType, NULL_MEDIA_TYPE), contentCoding);
+		Objects.requireNonNull(encoding, NULL_ENCODING);
+		synchronized (this) {
+			final byte[] bytes = cache.get(key);
+			if (bytes != null) {
+				hits.increment();
+				return bytes;
+			}
+		}
+		misses.increment();
+		final byte[] bytes = Objects.requireNonNull(encoding.encode(), NULL_BYTES);
+		put(key, bytes);
+		return bytes;
+	}
+
+	/**
+	 * Cache the encoded representation of a comic, encoded without going through this cache.
+	 * 
+	 * @param id
+	 *            the ID of the comic
+	 * @param mediaType
+	 *            the media type of the representation
+	 * @param bytes
+	 *            the bytes of the representation, which must not be modified afterwards
+	 */
+	public void put(final int id, final MediaType mediaType, final byte[] bytes) {
+		put(new Key(id, Objects.requireNonNull(mediaType, NULL_MEDIA_TYPE), null), Objects.requireNonNull(bytes, NULL_BYTES));
+	}
+
+	/**
+	 * Get the number of cache hits.
+	 * 
+	 * @return the number of representations found in this cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of cache misses.
+	 * 
+	 * @return the number of representations not found in this cache and encoded
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of cache evictions.
+	 * 
+	 * @return the number of representations evicted from this cache to make room for other representations
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Get the weight of this cache.
+	 * 
+	 * @return the total weight in bytes of the representations in this cache
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Log cache statistics on destruction.
+	 */
+	@PreDestroy
+	public void logStatistics() {
+		LOGGER.info(String.format(RESPONSE_CACHE_STATISTICS, getHits(), getMisses(), getEvictions()));
+	}
+
+	private synchronized void put(final Key key, final byte[] bytes) {
+		final long bytesWeight = weigh(bytes);
+		if (bytesWeight > capacity) {
+			return;
+		}
+		final byte[] previous = cache.put(key, bytes);
+		weight += bytesWeight - ((previous == null) ? 0L : weigh(previous));
+		for (final Iterator<Map.Entry<Key, byte[]>> iterator = cache.entrySet().iterator(); (weight > capacity) && iterator.hasNext();) {
+			final Map.Entry<Key, byte[]> victim = iterator.next();
+			weight -= weigh(victim.getValue());
+			iterator.remove();
+			evictions.increment();
+			LOGGER.fine(String.format(RESPONSE_EVICTED, victim.getKey()));
+		}
+	}
+}
@@ -1,20 +1,15 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
+import javax.inject.Inject;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
  * Message body writer for converting an xkcd comic to its text representation. Instances of this class are thread-safe.
@@ -25,22 +20,24 @@ import com.github.thanospapapetrou.xkcd.domain.Comic;
 @Provider
 public class TextComicMessageBodyWriter extends AbstractComicMessageBodyWriter {
 	private static final String FORMAT = "%1$s\n%2$s\n";
-	private static final String NULL_COMIC = "Comic must not be null";
-	private static final String NULL_HTTP_HEADERS = "HTTP headers must not be null";
-	private static final String NULL_OUTPUT = "Output must not be null";
+	private static final String NULL_RESPONSE_CACHE = "Response cache must not be null";
 	private static final MediaType TEXT_PLAIN_CHARSET_UTF_8 = MediaType.TEXT_PLAIN_TYPE.withCharset(StandardCharsets.UTF_8.name());
 
-	@Override
-	public void writeTo(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException {
-		Objects.requireNonNull(comic, NULL_COMIC);
-		Objects.requireNonNull(httpHeaders, NULL_HTTP_HEADERS);
-		Objects.requireNonNull(output, NULL_OUTPUT);
-		httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, TEXT_PLAIN_CHARSET_UTF_8);
-		createOutputStreamWriter(output).write(String.format(FORMAT, comic.getTitle(), comic.getTranscript()));
+	/**
+	 * Construct a new text comic message body writer.
+	 * 
+	 * @param responseCache
+	 *            the response cache to use for caching text representations
+	 * @param compressionThreshold
+	 *            the minimum size in bytes of text representations to compress or negative to disable compression
+	 */
+	@Inject
+	public TextComicMessageBodyWriter(final ResponseCache responseCache, @Configuration(Configuration.Key.COMPRESSION_THRESHOLD) final int compressionThreshold) {
+		super(TEXT_PLAIN_CHARSET_UTF_8, Objects.requireNonNull(responseCache, NULL_RESPONSE_CACHE), compressionThreshold);
 	}
 
-	OutputStreamWriter createOutputStreamWriter(final OutputStream output) {
-		// this method is package private just for testing
-		return new OutputStreamWriter(output, StandardCharsets.UTF_8);
+	@Override
+	protected byte[] encode(final Comic comic) {
+		return String.format(FORMAT, comic.getTitle(), comic.getTranscript()).getBytes(StandardCharsets.UTF_8);
 	}
 }
@@ -1,11 +1,10 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Objects;
@@ -24,28 +23,32 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd;
-import com.github.thanospapapetrou.xkcd.api.XkcdException;
 import com.github.thanospapapetrou.xkcd.domain.Comic;
+import com.github.thanospapapetrou.xkcd.impl.cache.NavigationMetadata;
+import com.github.thanospapapetrou.xkcd.impl.cdi.Configuration;
 
 /**
- * Message body writer for converting an xkcd comic to its XHTML5 representation. Instances of this class are thread-safe.
+ * Message body writer for converting an xkcd comic to its XHTML5 representation. Pages are rendered writing UTF-8 directly to an output stream and, if streaming, are sent to the client while being rendered. Pages may be rendered immutable, linking to the current, the next and a random comic via redirects instead of embedding their IDs, in which case they are cached in the response cache too. Instances of this class are thread-safe.
  * 
  * @author thanos
  */
 @Produces(MediaType.APPLICATION_XHTML_XML)
 @Provider
 public class Xhtml5ComicMessageBodyWriter extends AbstractComicMessageBodyWriter {
+	private static final MediaType APPLICATION_XHTML_XML_CHARSET_UTF_8 = MediaType.APPLICATION_XHTML_XML_TYPE.withCharset(StandardCharsets.UTF_8.name());
 	private static final String COMIC = "comic";
 	private static final String CURRENT = "current";
+	private static final int INITIAL_SIZE = 8192;
 	private static final String JSP = "/WEB-INF/comic.jspx";
-	private static final String NULL_COMIC = "Comic must not be null";
+	private static final String NULL_NAVIGATION = "Navigation must not be null";
 	private static final String NULL_REQUEST = "Request must not be null";
 	private static final String NULL_RESPONSE = "Response must not be null";
-	private static final String NULL_XKCD = "xkcd must not be null";
+	private static final String NULL_RESPONSE_CACHE = "Response cache must not be null";
 	private static final String RANDOM = "random";
+	private static final String WRITE_ERROR = "Error writing page";
 
-	private final Xkcd xkcd;
+	private final NavigationMetadata navigation;
+	private final boolean immutable;
 	private final Random random;
 
 	@Context
@@ -57,37 +60,64 @@ public class Xhtml5ComicMessageBodyWriter extends AbstractComicMessageBodyWriter
 	/**
 	 * Construct a new XHTML5 comic message body writer.
 	 * 
-	 * @param xkcd
-	 *            the xkcd to use for retrieving current comic
+	 * @param navigation
+	 *            the navigation metadata to use for linking to the current comic
+	 * @param responseCache
+	 *            the response cache to use for caching immutable XHTML representations
+	 * @param compressionThreshold
+	 *            the minimum size in bytes of XHTML representations to compress or negative to disable compression
+	 * @param streaming
+	 *            whether to stream XHTML representations not cached while rendering them instead of rendering them in full before writing them
+	 * @param immutable
+	 *            whether to render immutable XHTML representations
 	 */
 	@Inject
-	public Xhtml5ComicMessageBodyWriter(final Xkcd xkcd) {
-		this.xkcd = Objects.requireNonNull(xkcd, NULL_XKCD);
+	public Xhtml5ComicMessageBodyWriter(final NavigationMetadata navigation, final ResponseCache responseCache, @Configuration(Configuration.Key.COMPRESSION_THRESHOLD) final int compressionThreshold, @Configuration(Configuration.Key.XHTML_STREAMING) final boolean streaming, @Configuration(Configuration.Key.XHTML_IMMUTABLE) final boolean immutable) {
+		// pages embedding the IDs of the current comic and of a random one are not cacheable
+		super(APPLICATION_XHTML_XML_CHARSET_UTF_8, immutable ? Objects.requireNonNull(responseCache, NULL_RESPONSE_CACHE) : null, compressionThreshold, streaming);
+		this.navigation = Objects.requireNonNull(navigation, NULL_NAVIGATION);
+		this.immutable = immutable;
 		random = new Random();
 	}
 
 	@Override
-	public void writeTo(final Comic comic, final Class<?> clazz, final Type type, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream output) throws IOException {
-		Objects.requireNonNull(comic, NULL_COMIC);
+	protected byte[] encode(final Comic comic) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_SIZE);
+		encode(comic, bytes);
+		return bytes.toByteArray();
+	}
+
+	@Override
+	protected void encode(final Comic comic, final OutputStream output) throws IOException {
 		Objects.requireNonNull(request, NULL_REQUEST);
 		Objects.requireNonNull(response, NULL_RESPONSE);
 		try {
-			final StringWriter buffer = new StringWriter();
+			final PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
 			request.setAttribute(COMIC, comic);
-			final int current = xkcd.getCurrentComic().getId();
-			request.setAttribute(CURRENT, current);
-			request.setAttribute(RANDOM, random.nextInt(current) + 1);
+			if (!immutable) {
+				// the comic has just been retrieved, so the current comic is at least as new as it
+				final int current = navigation.getCurrentId(comic.getId());
+				request.setAttribute(CURRENT, current);
+				request.setAttribute(RANDOM, random.nextInt(current) + 1);
+			}
 			request.getRequestDispatcher(JSP).include(request, new HttpServletResponseWrapper(response) {
 				@Override
 				public PrintWriter getWriter() {
-					return new PrintWriter(buffer);
+					return writer;
 				}
 			});
-			httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XHTML_XML_TYPE.withCharset(StandardCharsets.UTF_8.name()));
-			httpHeaders.putSingle(HttpHeaders.CONTENT_LANGUAGE, Locale.ENGLISH.getLanguage());
-			output.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
-		} catch (final ServletException | XkcdException e) {
+			// print writers swallow IO exceptions, so errors are checked after flushing
+			if (writer.checkError()) {
+				throw new IOException(WRITE_ERROR);
+			}
+		} catch (final ServletException e) {
 			throw new InternalServerErrorException(e);
 		}
 	}
+
+	@Override
+	protected void writeHeaders(final MultivaluedMap<String, Object> httpHeaders) {
+		super.writeHeaders(httpHeaders);
+		httpHeaders.putSingle(HttpHeaders.CONTENT_LANGUAGE, Locale.ENGLISH.getLanguage());
+	}
 }
@@ -0,0 +1,110 @@
+package com.github.thanospapapetrou.xkcd.impl
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.RejectedExecutionException
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class BlockingExecutorSpec extends Specification {
+	private static final int QUEUE_SIZE = 1
+	private static final String THREAD_NAME = 'xkcd-blocking-1'
+
+	private BlockingExecutor blockingExecutor
+
+	void setup() {
+		blockingExecutor = new BlockingExecutor(1, QUEUE_SIZE, false)
+	}
+
+	void cleanup() {
+		blockingExecutor.close()
+	}
+
+	void 'Retrievals run on the blocking executor'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		and: 'the thread the retrieval runs on'
+			String thread = null
+		when: 'a retrieval is submitted'
+			Comic result = blockingExecutor.submit({
+				thread = Thread.currentThread().name
+				comic
+			} as Retrieval).toCompletableFuture().get()
+		then: 'the comic retrieved is returned'
+			result == comic
+		and: 'the retrieval runs on a platform thread of the blocking executor'
+			thread == THREAD_NAME
+	}
+
+	void 'Retrieval errors complete the stage exceptionally'() {
+		given: 'an xkcd exception'
+			XkcdException xkcdException = new XkcdException('error', new Exception())
+		when: 'a failing retrieval is submitted'
+			blockingExecutor.submit({ throw xkcdException } as Retrieval).toCompletableFuture().get()
+		then: 'the stage is completed with the xkcd exception'
+			ExecutionException e = thrown(ExecutionException)
+			e.cause == xkcdException
+	}
+
+	void 'Retrievals submitted after closing are rejected'() {
+		given: 'a closed blocking executor'
+			blockingExecutor.close()
+		when: 'a retrieval is submitted'
+			CompletableFuture<Comic> result = blockingExecutor.submit({ null } as Retrieval).toCompletableFuture()
+		then: 'the stage is completed with a rejected execution exception'
+			result.completedExceptionally
+			result.handle { Comic comic, Throwable failure -> failure }.get() instanceof RejectedExecutionException
+	}
+
+	void 'Retrievals submitted while both the threads and the queue are full are rejected'() {
+		given: 'a retrieval blocking the only thread'
+			CountDownLatch latch = new CountDownLatch(1)
+			CompletableFuture<Comic> blocking = blockingExecutor.submit({
+				latch.await()
+				null
+			} as Retrieval).toCompletableFuture()
+		and: 'a retrieval filling the queue'
+			CompletableFuture<Comic> queued = blockingExecutor.submit({ null } as Retrieval).toCompletableFuture()
+		when: 'another retrieval is submitted'
+			CompletableFuture<Comic> result = blockingExecutor.submit({ null } as Retrieval).toCompletableFuture()
+		then: 'the stage is completed with a rejected execution exception'
+			result.completedExceptionally
+			result.handle { Comic comic, Throwable failure -> failure }.get() instanceof RejectedExecutionException
+		when: 'the blocking retrieval is released'
+			latch.countDown()
+		then: 'the retrievals accepted complete normally'
+			blocking.get() == null
+			queued.get() == null
+	}
+
+	void 'Blocking executors falling back to platform threads if virtual threads are not supported'() {
+		given: 'a blocking executor using virtual threads if supported'
+			BlockingExecutor virtual = new BlockingExecutor(1, QUEUE_SIZE, true)
+		and: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'a retrieval is submitted'
+			Comic result = virtual.submit({ comic } as Retrieval).toCompletableFuture().get()
+		then: 'the comic retrieved is returned'
+			result == comic
+		cleanup: 'blocking executor is closed'
+			virtual.close()
+	}
+
+	void 'Threads must be positive'() {
+		when: 'a blocking executor without threads is constructed'
+			new BlockingExecutor(0, QUEUE_SIZE, false)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+
+	void 'Queue size must be positive'() {
+		when: 'a blocking executor without a queue is constructed'
+			new BlockingExecutor(1, 0, false)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+}
@@ -1,10 +1,11 @@
 package com.github.thanospapapetrou.xkcd.impl
 
+import java.util.concurrent.CompletableFuture
 import java.util.logging.Logger
 
 import spock.lang.Specification
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd
 import com.github.thanospapapetrou.xkcd.api.XkcdException
 import com.github.thanospapapetrou.xkcd.domain.Comic
 
@@ -14,7 +15,7 @@ class LoggingXkcdSpec extends Specification {
 	private LoggingXkcd loggingXkcd
 
 	void setup() {
-		loggingXkcd = new LoggingXkcd(Mock(Xkcd), Mock(Logger))
+		loggingXkcd = new LoggingXkcd(Mock(AsyncXkcd), Mock(Logger))
 	}
 
 	void 'Retrieving an existing comic is delegated to the underlying xkcd and a comic retrieved message is logged as info'() {
@@ -89,4 +90,42 @@ class LoggingXkcdSpec extends Specification {
 			XkcdException e = thrown(XkcdException)
 			e == xkcdException
 	}
+
+	void 'Retrieving a comic asynchronously is delegated to the underlying xkcd and a comic retrieved message is logged as info on completion'() {
+		given: 'a retrieval in flight'
+			CompletableFuture<Comic> retrieval = new CompletableFuture<>()
+		and: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is retrieved asynchronously'
+			CompletableFuture<Comic> result = loggingXkcd.getComicAsync(ID).toCompletableFuture()
+		then: 'asynchronous retrieval is delegated to the underlying xkcd'
+			1 * loggingXkcd.xkcd.getComicAsync(ID) >> retrieval
+		and: 'no other interactions happen'
+			0 * _
+		when: 'retrieval completes'
+			retrieval.complete(comic)
+		then: 'a comic retrieved message is logged as info'
+			1 * loggingXkcd.logger.info(String.format(LoggingXkcd.COMIC_RETRIEVED, ID))
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result.get() == comic
+	}
+
+	void 'Error retrieving current comic asynchronously'() {
+		given: 'an xkcd exception'
+			XkcdException xkcdException = Mock(XkcdException)
+		and: 'a failed retrieval'
+			CompletableFuture<Comic> retrieval = new CompletableFuture<>()
+			retrieval.completeExceptionally(xkcdException)
+		when: 'current comic is retrieved asynchronously'
+			CompletableFuture<Comic> result = loggingXkcd.currentComicAsync.toCompletableFuture()
+		then: 'underlying xkcd fails to retrieve current comic'
+			1 * loggingXkcd.xkcd.currentComicAsync >> retrieval
+		and: 'no other interactions happen'
+			0 * _
+		and: 'the result fails with the xkcd exception'
+			result.completedExceptionally
+			result.handle { Comic comic, Throwable failure -> failure.cause }.get() == xkcdException
+	}
 }
@@ -1,16 +1,26 @@
 package com.github.thanospapapetrou.xkcd.impl.cache
 
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+
 import spock.lang.Specification
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd
+import com.github.thanospapapetrou.xkcd.api.XkcdException
 import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.BlockingExecutor
 
 class CachingXkcdSpec extends Specification {
 	private static final int ID = 1024
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final int MAX_SIZE = 4096
+	private static final Date STALE = new Date(0L)
+	private static final String TITLE = 'title'
+	private static final long TTL = 3600000L
 
 	void 'Retrieving a commic without cache'() {
 		given: 'a caching xkcd without a cache'
-			CachingXkcd xkcd = new CachingXkcd(Mock(Xkcd), null)
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), null, new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
 		and: 'a comic'
 			Comic comic = Mock(Comic)
 		when: 'comic is retrieved'
@@ -25,12 +35,14 @@ class CachingXkcdSpec extends Specification {
 
 	void 'Retrieving a commic with cache (cache hit)'() {
 		given: 'a caching xkcd with a cache'
-			CachingXkcd xkcd = new CachingXkcd(Mock(Xkcd), Mock(Cache))
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
 		and: 'a comic'
 			Comic comic = Mock(Comic)
 		when: 'comic is retrieved'
 			Comic result = xkcd.getComic(ID)
-		then: 'retrieval is delegated to the underlying cache'
+		then: 'comic is not beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> false
+		and: 'retrieval is delegated to the underlying cache'
 			1 * xkcd.cache.load(ID) >> comic
 		and: 'no other interactions happen'
 			0 * _
@@ -40,17 +52,21 @@ class CachingXkcdSpec extends Specification {
 
 	void 'Retrieving an existing commic with cache (cache miss)'() {
 		given: 'a caching xkcd with a cache'
-			CachingXkcd xkcd = new CachingXkcd(Mock(Xkcd), Mock(Cache))
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
 		and: 'a comic'
 			Comic comic = Mock(Comic)
 		when: 'comic is retrieved'
 			Comic result = xkcd.getComic(ID)
-		then: 'retrieval is delegated to the underlying cache'
-			1 * xkcd.cache.load(ID) >> null
+		then: 'comic is not beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> false
+		and: 'retrieval is delegated to the underlying cache (once before and once after joining the retrieval in flight)'
+			2 * xkcd.cache.load(ID) >> null
 		and: 'retrieval is delegated to the underlying xkcd'
 			1 * xkcd.xkcd.getComic(ID) >> comic
 		and: 'comic is cached'
 			1 * xkcd.cache.save(comic)
+		and: 'the comic ID is retrieved'
+			1 * comic.id >> ID
 		and: 'no other interactions happen'
 			0 * _
 		and: 'comic is returned'
@@ -59,11 +75,13 @@ class CachingXkcdSpec extends Specification {
 
 	void 'Retrieving a non existing commic with cache (cache miss)'() {
 		given: 'a caching xkcd with a cache'
-			CachingXkcd xkcd = new CachingXkcd(Mock(Xkcd), Mock(Cache))
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
 		when: 'comic is retrieved'
 			Comic result = xkcd.getComic(ID)
-		then: 'retrieval is delegated to the underlying cache'
-			1 * xkcd.cache.load(ID) >> null
+		then: 'comic is not beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> false
+		and: 'retrieval is delegated to the underlying cache (once before and once after joining the retrieval in flight)'
+			2 * xkcd.cache.load(ID) >> null
 		and: 'retrieval is delegated to the underlying xkcd'
 			1 * xkcd.xkcd.getComic(ID) >> null
 		and: 'no other interactions happen'
@@ -71,6 +89,177 @@ class CachingXkcdSpec extends Specification {
 		and: 'null is returned'
 			result == null
 	}
+
+	void 'Retrieving a comic beyond the current comic'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		when: 'comic is retrieved'
+			Comic result = xkcd.getComic(ID)
+		then: 'comic is beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> true
+		and: 'no other interactions happen'
+			0 * _
+		and: 'null is returned'
+			result == null
+	}
+
+	void 'Retrieving a comic with an invalid ID'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		when: 'comic is retrieved'
+			Comic result = xkcd.getComic(id)
+		then: 'no interactions happen'
+			0 * _
+		and: 'null is returned'
+			result == null
+		where:
+			id << [0, -1, Integer.MIN_VALUE]
+	}
+
+	void 'Retrieving a non existing commic twice (negative cache hit)'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		when: 'comic is retrieved twice'
+			Comic first = xkcd.getComic(ID)
+			Comic second = xkcd.getComic(ID)
+		then: 'comic is not beyond current comic'
+			2 * xkcd.refresher.isBeyondCurrent(ID) >> false
+		and: 'retrieval is delegated to the underlying cache only the first time'
+			2 * xkcd.cache.load(ID) >> null
+		and: 'retrieval is delegated to the underlying xkcd only the first time'
+			1 * xkcd.xkcd.getComic(ID) >> null
+		and: 'no other interactions happen'
+			0 * _
+		and: 'null is returned both times'
+			first == null
+			second == null
+	}
+
+	void 'Retrieving the current comic refreshed in the background'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		and: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'current comic is retrieved'
+			Comic result = xkcd.currentComic
+		then: 'current comic is retrieved from the refresher'
+			1 * xkcd.refresher.currentComic >> comic
+		and: 'the comic ID is retrieved'
+			1 * comic.id >> ID
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result == comic
+	}
+
+	void 'Retrieving the current comic when xkcd is unavailable (stale if error)'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		and: 'a stale comic'
+			Comic comic = new Comic(ID, STALE, TITLE, TITLE, IMAGE, null, null, null, null)
+		when: 'current comic is retrieved'
+			Comic result = xkcd.currentComic
+		then: 'current comic is not retrieved from the refresher'
+			1 * xkcd.refresher.currentComic >> null
+		and: 'latest comic is loaded from the cache'
+			1 * xkcd.cache.loadLatest() >> comic
+		and: 'retrieval from the underlying xkcd fails'
+			1 * xkcd.xkcd.currentComic >> { throw new XkcdException('error', new Exception()) }
+		and: 'comic is within max staleness'
+			1 * xkcd.refresher.isWithinMaxStaleness(comic) >> true
+		and: 'no other interactions happen'
+			0 * _
+		and: 'stale comic is returned'
+			result == comic
+		and: 'navigation metadata learn of the stale comic, since the refresher does not'
+			xkcd.navigation.currentComic == comic
+	}
+
+	void 'Retrieving the current comic when xkcd is unavailable for longer than max staleness'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		and: 'a stale comic'
+			Comic comic = new Comic(ID, STALE, TITLE, TITLE, IMAGE, null, null, null, null)
+		when: 'current comic is retrieved'
+			xkcd.currentComic
+		then: 'current comic is not retrieved from the refresher'
+			1 * xkcd.refresher.currentComic >> null
+		and: 'latest comic is loaded from the cache'
+			1 * xkcd.cache.loadLatest() >> comic
+		and: 'retrieval from the underlying xkcd fails'
+			1 * xkcd.xkcd.currentComic >> { throw new XkcdException('error', new Exception()) }
+		and: 'comic exceeds max staleness'
+			1 * xkcd.refresher.isWithinMaxStaleness(comic) >> false
+		and: 'the error is propagated'
+			thrown(XkcdException)
+	}
+
+	void 'Retrieving a comic asynchronously without cache'() {
+		given: 'a caching xkcd without a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), null, new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		and: 'a retrieval in flight'
+			CompletionStage<Comic> retrieval = new CompletableFuture<>()
+		when: 'comic is retrieved asynchronously'
+			CompletionStage<Comic> result = xkcd.getComicAsync(ID)
+		then: 'asynchronous retrieval is delegated to the underlying xkcd'
+			1 * xkcd.xkcd.getComicAsync(ID) >> retrieval
+		and: 'no other interactions happen'
+			0 * _
+		and: 'the retrieval in flight is returned'
+			result == retrieval
+	}
+
+	void 'Retrieving a comic known to be missing asynchronously'() {
+		given: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		when: 'a comic beyond the current one is retrieved asynchronously'
+			CompletionStage<Comic> result = xkcd.getComicAsync(ID)
+		then: 'comic is beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> true
+		and: 'no other interactions happen'
+			0 * _
+		and: 'no comic is returned without blocking'
+			result.toCompletableFuture().done
+			result.toCompletableFuture().get() == null
+	}
+
+	void 'Retrieving a comic asynchronously with cache'() {
+		given: 'a blocking executor'
+			BlockingExecutor blockingExecutor = new BlockingExecutor(1, 1, false)
+		and: 'a caching xkcd with a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), Mock(Cache), new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), blockingExecutor)
+		and: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is retrieved asynchronously'
+			Comic result = xkcd.getComicAsync(ID).toCompletableFuture().get()
+		then: 'comic is not beyond current comic'
+			1 * xkcd.refresher.isBeyondCurrent(ID) >> false
+		and: 'retrieval is delegated to the underlying cache on the blocking executor'
+			1 * xkcd.cache.load(ID) >> comic
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result == comic
+		cleanup: 'blocking executor is closed'
+			blockingExecutor.close()
+	}
+
+	void 'Retrieving current comic asynchronously without cache'() {
+		given: 'a caching xkcd without a cache'
+			CachingXkcd xkcd = new CachingXkcd(Mock(AsyncXkcd), null, new RequestCoalescer(), Mock(CurrentComicRefresher), new NegativeCache(TTL, MAX_SIZE), new NavigationMetadata(), Mock(BlockingExecutor))
+		and: 'a comic'
+			Comic comic = new Comic(ID, new Date(), TITLE, TITLE, IMAGE, null, null, null, null)
+		when: 'current comic is retrieved asynchronously'
+			Comic result = xkcd.currentComicAsync.toCompletableFuture().get()
+		then: 'asynchronous retrieval is delegated to the underlying xkcd'
+			1 * xkcd.xkcd.currentComicAsync >> CompletableFuture.completedFuture(comic)
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result == comic
+		and: 'navigation metadata is updated'
+			xkcd.navigation.currentComic == comic
+	}
 }
 
 //@Override
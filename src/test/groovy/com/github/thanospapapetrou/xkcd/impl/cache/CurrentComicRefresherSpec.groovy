@@ -0,0 +1,148 @@
+package com.github.thanospapapetrou.xkcd.impl.cache
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.jax.rs.XkcdClient
+
+class CurrentComicRefresherSpec extends Specification {
+	private static final long DAY = 86400000L
+	private static final Date FRESH = new Date(System.currentTimeMillis())
+	private static final int ID = 1024
+	private static final long REFRESH_INTERVAL = 300000L
+	private static final Date STALE = new Date(0L)
+
+	private CurrentComicRefresher refresher
+
+	void setup() {
+		refresher = new CurrentComicRefresher(Mock(XkcdClient), Mock(Cache), REFRESH_INTERVAL, DAY, new NavigationMetadata())
+	}
+
+	void 'Refreshing retrieves the current comic in the background'() {
+		given: 'a comic'
+			Comic comic = comic(ID, FRESH)
+		when: 'current comic is refreshed'
+			refresher.refresh()
+		then: 'current comic is retrieved from xkcd'
+			1 * refresher.xkcd.retrieveCurrentComic() >> comic
+		and: 'current comic is not found in the cache'
+			1 * refresher.cache.load(ID) >> null
+		and: 'current comic is cached'
+			1 * refresher.cache.save(comic)
+		and: 'current comic is served'
+			refresher.currentComic == comic
+		and: 'navigation metadata learn of the current comic'
+			refresher.navigation.currentComic == comic
+	}
+
+	void 'Refreshing does not cache a current comic already cached'() {
+		given: 'a current comic due to be updated'
+			Comic current = comic(ID, new Date(System.currentTimeMillis() - DAY * 7L))
+			refresher.update(current)
+		when: 'current comic is refreshed'
+			refresher.refresh()
+		then: 'the same current comic is retrieved from xkcd'
+			1 * refresher.xkcd.retrieveCurrentComic() >> current
+		and: 'the cache is not touched'
+			0 * refresher.cache._
+		when: 'a new current comic, already cached by a request, is refreshed'
+			refresher.refresh()
+		then: 'the new current comic is retrieved from xkcd'
+			1 * refresher.xkcd.retrieveCurrentComic() >> comic(ID + 1, FRESH)
+		and: 'the new current comic is found in the cache'
+			1 * refresher.cache.load(ID + 1) >> comic(ID + 1, FRESH)
+		and: 'the new current comic is not cached again'
+			0 * refresher.cache.save(_)
+	}
+
+	void 'Errors while caching do not prevent refreshing'() {
+		when: 'current comic is refreshed'
+			refresher.refresh()
+		then: 'current comic is retrieved from xkcd'
+			1 * refresher.xkcd.retrieveCurrentComic() >> comic(ID, FRESH)
+		and: 'caching fails'
+			1 * refresher.cache.load(ID) >> { throw new XkcdException('error', new Exception()) }
+		and: 'current comic is served'
+			refresher.currentComic.id == ID
+	}
+
+	void 'Polling starts after construction and stops on destruction'() {
+		given: 'an xkcd client'
+			XkcdClient xkcd = Stub(XkcdClient)
+			xkcd.retrieveCurrentComic() >> comic(ID, FRESH)
+		and: 'a refresher polling on a short interval'
+			CurrentComicRefresher refresher = new CurrentComicRefresher(xkcd, null, 1L, DAY, new NavigationMetadata())
+		when: 'polling starts'
+			refresher.start()
+		then: 'current comic is retrieved from xkcd in the background'
+			new PollingConditions(timeout: 5).eventually {
+				assert refresher.currentComic?.id == ID
+			}
+		cleanup: 'polling stops'
+			refresher.close()
+	}
+
+	void 'Refreshing is skipped while the current comic is not due to be updated'() {
+		given: 'a current comic retrieved by a request'
+			refresher.update(comic(ID, FRESH))
+		when: 'current comic is refreshed'
+			refresher.refresh()
+		then: 'xkcd is not polled'
+			0 * refresher.xkcd.retrieveCurrentComic()
+	}
+
+	void 'Errors while refreshing keep the current comic being served (stale if error)'() {
+		given: 'a current comic due to be updated'
+			Comic comic = comic(ID, new Date(System.currentTimeMillis() - DAY * 7L))
+			refresher.update(comic)
+		when: 'current comic is refreshed'
+			refresher.refresh()
+		then: 'retrieving the current comic from xkcd fails'
+			1 * refresher.xkcd.retrieveCurrentComic() >> { throw new XkcdException('error', new Exception()) }
+		and: 'current comic is still served'
+			refresher.currentComic == comic
+	}
+
+	void 'Newer comics replace older ones'() {
+		given: 'two comics'
+			Comic older = comic(ID, FRESH)
+			Comic newer = comic(ID + 1, FRESH)
+		when: 'comics are updated out of order'
+			refresher.update(newer)
+			refresher.update(older)
+		then: 'the newer comic is served'
+			refresher.currentComic == newer
+	}
+
+	void 'Comics exceeding max staleness are not served'() {
+		given: 'a comic due to be updated long ago'
+			Comic comic = comic(ID, STALE)
+		when: 'comic was last confirmed before xkcd became unavailable'
+			refresher.snapshot.set(new CurrentComicRefresher.Snapshot(comic, 0L))
+		then: 'comic is not served'
+			refresher.currentComic == null
+		and: 'comic is not within max staleness'
+			!refresher.isWithinMaxStaleness(comic)
+	}
+
+	void 'Comics beyond a fresh current comic are known not to exist yet'() {
+		given: 'a fresh current comic'
+			refresher.update(comic(ID, FRESH))
+		expect: 'only comics beyond the current comic are known not to exist yet'
+			refresher.isBeyondCurrent(ID + 1)
+			!refresher.isBeyondCurrent(ID)
+	}
+
+	void 'Comics beyond a current comic due to be updated may exist'() {
+		given: 'a current comic due to be updated, not confirmed within the last refresh interval'
+			refresher.snapshot.set(new CurrentComicRefresher.Snapshot(comic(ID, STALE), 0L))
+		expect: 'comics beyond the current comic may exist'
+			!refresher.isBeyondCurrent(ID + 1)
+	}
+
+	private Comic comic(final int id, final Date date) {
+		new Comic(id, date, 'title', 'title', new URL('http://www.example.org/image.png'), null, null, null, null)
+	}
+}
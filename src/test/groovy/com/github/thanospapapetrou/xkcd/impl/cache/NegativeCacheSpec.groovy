@@ -0,0 +1,54 @@
+package com.github.thanospapapetrou.xkcd.impl.cache
+
+import spock.lang.Specification
+
+class NegativeCacheSpec extends Specification {
+	private static final int MAX_SIZE = 4
+	private static final long TTL = 3600000L
+
+	void 'Comics marked missing are remembered within the TTL'() {
+		given: 'a negative cache'
+			NegativeCache cache = new NegativeCache(TTL, MAX_SIZE)
+		when: 'a comic is marked missing'
+			cache.markMissing(1)
+		then: 'only that comic is missing'
+			cache.isMissing(1)
+			!cache.isMissing(2)
+	}
+
+	void 'Expired comics are purged as new comics are marked missing'() {
+		given: 'a negative cache remembering comics for no time'
+			NegativeCache cache = new NegativeCache(0L, MAX_SIZE)
+		when: 'comics are marked missing over time'
+			(1..MAX_SIZE).each { int id ->
+				cache.markMissing(id)
+				Thread.sleep(2L)
+			}
+		then: 'expired comics are not kept, even if never looked up again'
+			cache.size() == 1
+			!cache.isMissing(1)
+	}
+
+	void 'Comics remembered the longest are forgotten first once max size is exceeded'() {
+		given: 'a negative cache'
+			NegativeCache cache = new NegativeCache(TTL, MAX_SIZE)
+		when: 'more comics than its max size are marked missing, one of them twice'
+			(1..MAX_SIZE).each { int id -> cache.markMissing(id) }
+			cache.markMissing(1)
+			cache.markMissing(MAX_SIZE + 1)
+		then: 'max size is not exceeded'
+			cache.size() == MAX_SIZE
+		and: 'the comic remembered the longest is forgotten'
+			!cache.isMissing(2)
+		and: 'the comic marked missing again is still remembered'
+			cache.isMissing(1)
+			cache.isMissing(MAX_SIZE + 1)
+	}
+
+	void 'Max size must be positive'() {
+		when: 'a negative cache is constructed with a non positive max size'
+			new NegativeCache(TTL, 0)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.thanospapapetrou.xkcd.impl.cache
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.Retrieval
+
+class RequestCoalescerSpec extends Specification {
+	private static final int THREADS = 8
+	private static final long TIMEOUT = 10L
+
+	private RequestCoalescer coalescer
+
+	void setup() {
+		coalescer = new RequestCoalescer()
+	}
+
+	void 'Concurrent retrievals with the same key are coalesced'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		and: 'a retrieval blocking until all callers have joined it'
+			CountDownLatch joined = new CountDownLatch(1)
+			AtomicInteger retrievals = new AtomicInteger()
+			Retrieval retrieval = {
+				retrievals.incrementAndGet()
+				joined.await(TIMEOUT, TimeUnit.SECONDS)
+				comic
+			}
+		when: 'comic is retrieved concurrently'
+			List<Comic> results = Collections.synchronizedList([])
+			List<Thread> threads = (1..THREADS).collect { Thread.start { results << coalescer.coalesce(1, retrieval) } }
+			while (coalescer.flights.isEmpty() || threads.any { it.state == Thread.State.RUNNABLE }) {
+				Thread.sleep(1L)
+			}
+			joined.countDown()
+			threads*.join()
+		then: 'comic is retrieved only once'
+			retrievals.get() == 1
+		and: 'comic is returned to all callers'
+			results.size() == THREADS
+			results.every { it.is(comic) }
+		and: 'no retrieval remains in flight'
+			coalescer.flights.isEmpty()
+	}
+
+	void 'Retrievals with different keys are not coalesced'() {
+		given: 'a retrieval'
+			AtomicInteger retrievals = new AtomicInteger()
+			Retrieval retrieval = {
+				retrievals.incrementAndGet()
+				null
+			}
+		when: 'comics are retrieved with different keys'
+			coalescer.coalesce(1, retrieval)
+			coalescer.coalesce(2, retrieval)
+		then: 'each comic is retrieved'
+			retrievals.get() == 2
+	}
+
+	void 'Errors are propagated to the caller'() {
+		when: 'a failing retrieval is coalesced'
+			coalescer.coalesce(1) { throw new XkcdException('error', new Exception()) }
+		then: 'the error is propagated'
+			thrown(XkcdException)
+		and: 'no retrieval remains in flight'
+			coalescer.flights.isEmpty()
+	}
+
+	void 'Errors of a retrieval in flight are propagated to the callers waiting for it'() {
+		given: 'an error'
+			Error error = new Error('error')
+		and: 'a retrieval blocking until another caller has joined it and then failing with the error'
+			CountDownLatch joined = new CountDownLatch(1)
+			Retrieval retrieval = {
+				joined.await(TIMEOUT, TimeUnit.SECONDS)
+				throw error
+			}
+		when: 'comic is retrieved concurrently'
+			List<Throwable> failures = Collections.synchronizedList([])
+			List<Thread> threads = (1..2).collect {
+				Thread.start {
+					try {
+						coalescer.coalesce(1, retrieval)
+					} catch (Error e) {
+						failures << e
+					}
+				}
+			}
+			while (coalescer.flights.isEmpty() || threads.any { it.state == Thread.State.RUNNABLE }) {
+				Thread.sleep(1L)
+			}
+			joined.countDown()
+			threads*.join(TimeUnit.SECONDS.toMillis(TIMEOUT))
+		then: 'no caller keeps waiting'
+			threads.every { !it.alive }
+		and: 'the error is propagated to all callers'
+			failures.size() == 2
+			failures.every { it.is(error) }
+		and: 'no retrieval remains in flight'
+			coalescer.flights.isEmpty()
+	}
+}
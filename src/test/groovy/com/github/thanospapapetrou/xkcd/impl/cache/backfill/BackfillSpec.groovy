@@ -0,0 +1,195 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.backfill
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache
+import com.github.thanospapapetrou.xkcd.impl.cache.memory.MemoryCache
+import com.github.thanospapapetrou.xkcd.impl.cdi.Caching
+import com.github.thanospapapetrou.xkcd.impl.jax.rs.XkcdClient
+
+class BackfillSpec extends Specification {
+	private static final int CONCURRENCY = 4
+	private static final int CURRENT = 250
+	private static final Date DATE = new Date(1500000000000L)
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final int MISSING = 200
+	private static final int RATE = 1000
+	private static final String TITLE = 'title'
+
+	private Path checkpointFile
+	private Cache cache
+	private XkcdClient client
+	private Backfill backfill
+
+	void setup() {
+		checkpointFile = Files.createTempDirectory('backfill').resolve('checkpoint')
+		cache = new MemoryCache()
+		client = Mock(XkcdClient)
+		backfill = backfill(Caching.JDBC)
+	}
+
+	void cleanup() {
+		backfill.close()
+		Files.deleteIfExists(checkpointFile)
+		Files.delete(checkpointFile.parent)
+	}
+
+	void 'Backfill retrieves all comics not cached and checkpoints the current one'() {
+		given: 'some comics already cached'
+			(1..10).each { int id -> cache.save(comic(id)) }
+		when: 'backfill is run'
+			backfill.run()
+		then: 'current comic is retrieved'
+			1 * client.retrieveCurrentComic() >> comic(CURRENT)
+		and: 'comics not cached are retrieved, except for missing ones'
+			(CURRENT - 10) * client.retrieveComic(_ as Integer) >> { int id -> (id == MISSING) ? null : comic(id) }
+		and: 'comics cached are not retrieved'
+			0 * client.retrieveComic({ it <= 10 })
+		and: 'all comics but missing ones are cached'
+			(1..CURRENT).every { int id -> (cache.load(id) == null) == (id == MISSING) }
+		and: 'the current comic is checkpointed'
+			checkpointFile.text == CURRENT.toString()
+		and: 'progress is reported'
+			backfill.progress == "idle, checkpoint ${CURRENT} of ${CURRENT}, ${CURRENT - 11} retrieved, 10 skipped, 1 missing, 0 failed"
+	}
+
+	void 'Comics are looked up and saved in batches'() {
+		given: 'a backfill of a cache'
+			cache = Mock(Cache)
+			Backfill backfill = backfill(Caching.JDBC)
+		when: 'backfill is run'
+			backfill.run()
+		then: 'current comic is retrieved'
+			1 * client.retrieveCurrentComic() >> comic(CURRENT)
+		and: 'comics are retrieved'
+			CURRENT * client.retrieveComic(_ as Integer) >> { int id -> comic(id) }
+		and: 'cached comics are looked up a batch at a time'
+			(CURRENT / Backfill.BATCH_SIZE) * cache.loadAll(_ as Integer, _ as Integer) >> { int from, int to ->
+				assert to - from + 1 == Backfill.BATCH_SIZE
+				[]
+			}
+		and: 'comics retrieved are saved a batch at a time'
+			(CURRENT / Backfill.BATCH_SIZE) * cache.saveAll({ it.size() == Backfill.BATCH_SIZE })
+		and: 'comics are not looked up or saved one at a time'
+			0 * cache.load(_)
+			0 * cache.save(_)
+		and: 'the current comic is checkpointed'
+			checkpointFile.text == CURRENT.toString()
+		cleanup: 'the backfill is closed'
+			backfill.close()
+	}
+
+	void 'Backfill resumes from the checkpoint'() {
+		given: 'a checkpoint'
+			checkpointFile.text = (CURRENT - 10).toString()
+		when: 'backfill is run'
+			backfill.run()
+		then: 'current comic is retrieved'
+			1 * client.retrieveCurrentComic() >> comic(CURRENT)
+		and: 'only comics after the checkpoint are retrieved'
+			10 * client.retrieveComic({ it > CURRENT - 10 }) >> { int id -> comic(id) }
+		and: 'no other comics are retrieved'
+			0 * client.retrieveComic(_)
+		and: 'the current comic is checkpointed'
+			checkpointFile.text == CURRENT.toString()
+	}
+
+	void 'Checkpoint does not advance past failed comics'() {
+		when: 'backfill is run'
+			backfill.run()
+		then: 'current comic is retrieved'
+			1 * client.retrieveCurrentComic() >> comic(CURRENT)
+		and: 'retrieving a comic fails'
+			CURRENT * client.retrieveComic(_ as Integer) >> { int id ->
+				if (id == MISSING) {
+					throw new XkcdException('error', new Exception())
+				}
+				comic(id)
+			}
+		and: 'the comic before the failed one is checkpointed'
+			checkpointFile.text == (MISSING - 1).toString()
+		and: 'the failure is reported'
+			backfill.progress.endsWith('1 failed')
+	}
+
+	void 'Checkpoint is kept if the current comic cannot be retrieved'() {
+		given: 'a checkpoint'
+			checkpointFile.text = (CURRENT - 10).toString()
+		when: 'backfill is run'
+			backfill.run()
+		then: 'retrieving the current comic fails'
+			1 * client.retrieveCurrentComic() >> { throw new XkcdException('error', new Exception()) }
+		and: 'the checkpoint is kept'
+			checkpointFile.text == (CURRENT - 10).toString()
+	}
+
+	void 'Caches that are not persistent are backfilled from the first comic without checkpointing'() {
+		given: 'a backfill of a memory cache'
+			Backfill backfill = backfill(Caching.MEMORY)
+		and: 'a checkpoint left by a previous backfill'
+			checkpointFile.text = CURRENT.toString()
+		when: 'backfill is run'
+			backfill.run()
+		then: 'current comic is retrieved'
+			1 * client.retrieveCurrentComic() >> comic(CURRENT)
+		and: 'all comics are retrieved, since the cache started empty'
+			CURRENT * client.retrieveComic(_ as Integer) >> { int id -> comic(id) }
+		and: 'the checkpoint is left untouched'
+			checkpointFile.text == CURRENT.toString()
+		cleanup: 'the backfill is closed'
+			backfill.close()
+	}
+
+	void 'Only one backfill runs at a time'() {
+		given: 'a backfill blocked while retrieving the current comic'
+			CountDownLatch retrieving = new CountDownLatch(1)
+			CountDownLatch blocked = new CountDownLatch(1)
+			client.retrieveCurrentComic() >> {
+				retrieving.countDown()
+				blocked.await()
+				comic(0)
+			}
+		when: 'backfills are started while the first one is running'
+			boolean first = backfill.start()
+			retrieving.await()
+			boolean second = backfill.start()
+			blocked.countDown()
+			while (backfill.progress.startsWith('running')) {
+				Thread.sleep(1L)
+			}
+		then: 'only the first backfill is started'
+			first
+			!second
+	}
+
+	void 'Threads are not created unless a backfill is started'() {
+		when: 'application starts without a backfill on startup'
+			backfill.onStartup(new Object())
+		then: 'no threads are created'
+			backfill.coordinator == null
+			backfill.workers == null
+		when: 'a backfill is started'
+			client.retrieveCurrentComic() >> comic(0)
+			backfill.start()
+			while (backfill.progress.startsWith('running')) {
+				Thread.sleep(1L)
+			}
+		then: 'threads are created'
+			backfill.coordinator != null
+			backfill.workers != null
+	}
+
+	private Comic comic(final int id) {
+		new Comic(id, DATE, TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+
+	private Backfill backfill(final Caching caching) {
+		new Backfill(client, cache, caching, CONCURRENCY, RATE, checkpointFile.toString(), false)
+	}
+}
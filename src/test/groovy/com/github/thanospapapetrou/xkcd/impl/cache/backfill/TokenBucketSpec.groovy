@@ -0,0 +1,48 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.backfill
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import spock.lang.Specification
+
+class TokenBucketSpec extends Specification {
+	private static final int RATE = 20
+
+	void 'A burst of one second worth of tokens is acquired without waiting'() {
+		given: 'a token bucket'
+			TokenBucket bucket = new TokenBucket(RATE)
+		when: 'a burst of tokens is acquired'
+			long start = System.nanoTime()
+			RATE.times { bucket.acquire() }
+		then: 'no waiting happens'
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500L
+	}
+
+	void 'Threads waiting for tokens do not hold the bucket while waiting'() {
+		given: 'a token bucket with no tokens left'
+			TokenBucket bucket = new TokenBucket(1)
+			bucket.acquire()
+		and: 'a thread waiting for a token for about a second'
+			CountDownLatch acquired = new CountDownLatch(1)
+			Thread.start {
+				bucket.acquire()
+				acquired.countDown()
+			}
+			Thread.sleep(50L)
+		when: 'the bucket is locked by another thread'
+			long start = System.nanoTime()
+			synchronized (bucket) {
+			}
+		then: 'it is locked without waiting for the waiting thread'
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500L
+		and: 'the waiting thread eventually acquires its token'
+			acquired.await(5L, TimeUnit.SECONDS)
+	}
+
+	void 'Rate must be positive'() {
+		when: 'a token bucket is constructed with a non positive rate'
+			new TokenBucket(0)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+}
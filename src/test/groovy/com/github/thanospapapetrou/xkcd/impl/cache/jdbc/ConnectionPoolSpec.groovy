@@ -0,0 +1,167 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jdbc
+
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.PreparedStatement
+import java.sql.SQLException
+import java.sql.SQLTransientConnectionException
+
+import spock.lang.Specification
+
+class ConnectionPoolSpec extends Specification {
+	private static final long ACQUIRE_TIMEOUT = 100L
+	private static final String DERBY_LOG = 'target/derby.log'
+	private static final String DERBY_STREAM_ERROR_FILE = 'derby.stream.error.file'
+	private static final String DROP_JDBC_URL = 'jdbc:derby:memory:pool;drop=true'
+	private static final long IDLE_TIMEOUT = 60000L
+	private static final String JDBC_DRIVER = 'org.apache.derby.jdbc.EmbeddedDriver'
+	private static final String JDBC_URL = 'jdbc:derby:memory:pool;create=true'
+	private static final String SELECT = 'VALUES 1'
+	private static final int VALIDATION_TIMEOUT = 1
+
+	private ConnectionPool pool
+
+	void setupSpec() {
+		System.setProperty(DERBY_STREAM_ERROR_FILE, DERBY_LOG)
+	}
+
+	void setup() {
+		pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, 2, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, VALIDATION_TIMEOUT, 1)
+	}
+
+	void cleanup() {
+		pool.close()
+		try {
+			DriverManager.getConnection(DROP_JDBC_URL)
+		} catch (final SQLException e) {
+			// dropping an in memory database always throws
+		}
+	}
+
+	void 'Connections closed are returned to the pool and reused'() {
+		given: 'a connection borrowed and closed'
+			Connection connection = pool.connection
+			Connection physical = connection.unwrap(Connection)
+			connection.close()
+		when: 'another connection is borrowed'
+			Connection reused = pool.connection
+		then: 'the same physical connection is reused'
+			reused.unwrap(Connection).is(physical)
+		and: 'the closed handle stays closed'
+			connection.closed
+			!reused.closed
+		and: 'only one connection has been created'
+			pool.created == 1L
+			pool.acquired == 2L
+			pool.size == 1
+			pool.idle == 0
+		cleanup:
+			reused.close()
+	}
+
+	void 'Closing a connection twice returns it to the pool once'() {
+		given: 'a connection borrowed'
+			Connection connection = pool.connection
+		when: 'the connection is closed twice'
+			connection.close()
+			connection.close()
+		then: 'it is idle in the pool once'
+			pool.idle == 1
+	}
+
+	void 'Using a closed connection fails'() {
+		given: 'a connection borrowed and closed'
+			Connection connection = pool.connection
+			connection.close()
+		when: 'the connection is used'
+			connection.createStatement()
+		then: 'an exception is thrown'
+			thrown(SQLException)
+	}
+
+	void 'Uncommitted transactions are rolled back when connections are returned'() {
+		given: 'a connection with a transaction in progress'
+			Connection connection = pool.connection
+			connection.autoCommit = false
+		when: 'the connection is closed and borrowed again'
+			connection.close()
+			Connection reused = pool.connection
+		then: 'it is back in auto commit mode'
+			reused.autoCommit
+		cleanup:
+			reused.close()
+	}
+
+	void 'Prepared statements are cached per connection'() {
+		given: 'a statement prepared and closed'
+			Connection connection = pool.connection
+			PreparedStatement statement = connection.prepareStatement(SELECT)
+			statement.executeQuery().close()
+			statement.close()
+		when: 'the same statement is prepared again'
+			PreparedStatement cached = connection.prepareStatement(SELECT)
+		then: 'it is found in the statement cache'
+			pool.statementCacheMisses == 1L
+			pool.statementCacheHits == 1L
+		and: 'it is usable and belongs to the connection it was prepared from'
+			cached.executeQuery().next()
+			cached.connection.is(connection)
+		cleanup:
+			cached.close()
+			connection.close()
+	}
+
+	void 'Statements in use are not shared'() {
+		given: 'a statement prepared and still open'
+			Connection connection = pool.connection
+			PreparedStatement statement = connection.prepareStatement(SELECT)
+		when: 'the same statement is prepared again'
+			PreparedStatement other = connection.prepareStatement(SELECT)
+		then: 'a new statement is prepared'
+			pool.statementCacheMisses == 2L
+			pool.statementCacheHits == 0L
+			!other.unwrap(PreparedStatement).is(statement.unwrap(PreparedStatement))
+		cleanup:
+			other.close()
+			statement.close()
+			connection.close()
+	}
+
+	void 'Acquiring a connection times out when all are in use'() {
+		given: 'all connections borrowed'
+			Connection first = pool.connection
+			Connection second = pool.connection
+		when: 'another connection is borrowed'
+			pool.connection
+		then: 'acquiring times out'
+			thrown(SQLTransientConnectionException)
+			pool.timedOut == 1L
+		cleanup:
+			first.close()
+			second.close()
+	}
+
+	void 'Connections idle beyond the minimum are closed after the idle timeout'() {
+		given: 'a pool with short idle timeout and a connection idle in it'
+			pool.close()
+			pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, 2, 1L, ACQUIRE_TIMEOUT, VALIDATION_TIMEOUT, 1)
+			pool.connection.close()
+			Thread.sleep(10L)
+		when: 'the pool is maintained'
+			pool.maintain()
+		then: 'the idle connection is closed'
+			pool.size == 0
+			pool.idle == 0
+	}
+
+	void 'Pool is filled up to the minimum size'() {
+		given: 'a pool with a minimum size'
+			pool.close()
+			pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 2, 2, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, VALIDATION_TIMEOUT, 1)
+		when: 'the pool is maintained'
+			pool.maintain()
+		then: 'the minimum number of connections is idle'
+			pool.size == 2
+			pool.idle == 2
+	}
+}
@@ -0,0 +1,139 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jdbc
+
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.PreparedStatement
+import java.sql.SQLException
+import java.sql.Statement
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class JdbcCacheSpec extends Specification {
+	private static final long ACQUIRE_TIMEOUT = 1000L
+	private static final Date DATE = new Date(1500000000000L)
+	private static final String DERBY_LOG = 'target/derby.log'
+	private static final String DERBY_STREAM_ERROR_FILE = 'derby.stream.error.file'
+	private static final String DROP_JDBC_URL = 'jdbc:derby:memory:xkcd;drop=true'
+	private static final long IDLE_TIMEOUT = 60000L
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final String JDBC_DRIVER = 'org.apache.derby.jdbc.EmbeddedDriver'
+	private static final String JDBC_URL = 'jdbc:derby:memory:xkcd;create=true'
+	private static final String TITLE = 'title'
+
+	private ConnectionPool pool
+	private JdbcCache cache
+
+	void setupSpec() {
+		System.setProperty(DERBY_STREAM_ERROR_FILE, DERBY_LOG)
+	}
+
+	void setup() {
+		pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, 1, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, 1, 1)
+		Connection connection = pool.connection
+		Statement statement = connection.createStatement()
+		try {
+			statement.executeUpdate(String.format(JdbcSchemaInitializer.CREATE_COMICS, Comic.TITLE_LENGTH, Comic.SAFE_TITLE_LENGTH, Comic.IMAGE_LENGTH, Comic.LINK_LENGTH, Comic.NEWS_LENGTH))
+		} finally {
+			statement.close()
+			connection.close()
+		}
+		cache = new JdbcCache(pool)
+	}
+
+	void cleanup() {
+		pool.close()
+		try {
+			DriverManager.getConnection(DROP_JDBC_URL)
+		} catch (final SQLException e) {
+			// dropping an in memory database always throws
+		}
+	}
+
+	void 'Comics saved in bulk are loaded in bulk by ID range'() {
+		when: 'comics are saved in bulk out of order'
+			cache.saveAll([5, 2, 3, 1].collect { int id -> comic(id) })
+		then: 'comics within the range are loaded in ID order'
+			cache.loadAll(2, 10)*.id == [2, 3, 5]
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 5
+		and: 'the connection is returned to the pool'
+			pool.idle == 1
+		and: 'the connection is left in auto commit mode'
+			autoCommit()
+	}
+
+	void 'Saving comics in bulk is atomic'() {
+		given: 'a comic already saved'
+			cache.save(comic(2))
+		when: 'comics including the one already saved are saved in bulk'
+			cache.saveAll([1, 2, 3].collect { int id -> comic(id) })
+		then: 'an xkcd exception is thrown'
+			thrown(XkcdException)
+		and: 'no other comic is saved'
+			cache.loadAll(1, 3)*.id == [2]
+	}
+
+	void 'Loads never read comics saved by transactions that may be rolled back'() {
+		given: 'a short lock timeout'
+			setLockTimeout(1)
+		and: 'a comic saved and another one being saved by a transaction in progress'
+			cache.save(comic(1))
+			Connection writer = DriverManager.getConnection(JDBC_URL)
+			writer.autoCommit = false
+			PreparedStatement save = writer.prepareStatement(JdbcCache.SAVE)
+			JdbcCache.bind(save, comic(2))
+			save.executeUpdate()
+		when: 'the comic saved is loaded while the transaction holds its locks'
+			Comic comic = cache.load(1)
+		then: 'it is loaded without waiting for the transaction'
+			comic.id == 1
+		when: 'the comic being saved is loaded while the transaction holds its locks'
+			cache.loadAll(1, 2)
+		then: 'it is not read uncommitted, but waited for until the lock times out'
+			thrown(XkcdException)
+		when: 'the transaction is rolled back and comics are loaded again'
+			writer.rollback()
+			List<Comic> comics = cache.loadAll(1, 2)
+		then: 'the comic rolled back was never saved'
+			comics*.id == [1]
+		cleanup:
+			writer.close()
+	}
+
+	private void setLockTimeout(final int seconds) {
+		Connection connection = pool.connection
+		try {
+			connection.prepareCall("CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.waitTimeout', '${seconds}')").execute()
+		} finally {
+			connection.close()
+		}
+	}
+
+	private boolean autoCommit() {
+		Connection connection = pool.connection
+		try {
+			connection.autoCommit
+		} finally {
+			connection.close()
+		}
+	}
+
+	void 'Long alternates and transcripts are stored in full'() {
+		given: 'a comic with long alternate and transcript'
+			String alternate = (1..1000).join(' ')
+			String transcript = (1..20000).collect { int i -> "\u2014 ${Integer.toHexString(i * 7919)}" }.join(' ')
+			cache.save(new Comic(1, DATE, TITLE, TITLE, IMAGE, alternate, transcript, null, null))
+		when: 'the comic is loaded'
+			Comic comic = cache.loadAll(1, 1).first()
+		then: 'alternate and transcript are not truncated'
+			comic.alternate == alternate
+			comic.transcript == transcript
+	}
+
+	private Comic comic(final int id) {
+		new Comic(id, DATE, TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+}
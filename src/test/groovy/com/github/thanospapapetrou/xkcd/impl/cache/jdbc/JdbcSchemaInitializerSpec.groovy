@@ -0,0 +1,69 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jdbc
+
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.SQLException
+import java.sql.Statement
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class JdbcSchemaInitializerSpec extends Specification {
+	private static final long ACQUIRE_TIMEOUT = 1000L
+	private static final String ALTERNATE = 'alternate'
+	private static final String CREATE_TEXT_COMICS = 'CREATE TABLE COMICS (ID INT NOT NULL PRIMARY KEY, "DATE" DATE NOT NULL, TITLE VARCHAR (64) NOT NULL, SAFE_TITLE VARCHAR (64) NOT NULL, IMAGE VARCHAR (128) NOT NULL, ALTERNATE VARCHAR (1024), TRANSCRIPT VARCHAR (16384), LINK VARCHAR (128), NEWS VARCHAR (512))'
+	private static final String DERBY_LOG = 'target/derby.log'
+	private static final String DERBY_STREAM_ERROR_FILE = 'derby.stream.error.file'
+	private static final String DROP_JDBC_URL = 'jdbc:derby:memory:migration;drop=true'
+	private static final long IDLE_TIMEOUT = 60000L
+	private static final String INSERT_TEXT_COMICS = "INSERT INTO COMICS VALUES (1, '2017-07-14', 'title', 'title', 'http://www.example.org/image.png', 'alternate', 'transcript', NULL, NULL), (2, '2017-07-15', 'title', 'title', 'http://www.example.org/image.png', NULL, NULL, NULL, NULL)"
+	private static final String JDBC_DRIVER = 'org.apache.derby.jdbc.EmbeddedDriver'
+	private static final String JDBC_URL = 'jdbc:derby:memory:migration;create=true'
+	private static final String TRANSCRIPT = 'transcript'
+
+	private Connection connection
+
+	void setupSpec() {
+		System.setProperty(DERBY_STREAM_ERROR_FILE, DERBY_LOG)
+	}
+
+	void setup() {
+		connection = DriverManager.getConnection(JDBC_URL)
+		Statement statement = connection.createStatement()
+		try {
+			statement.executeUpdate(CREATE_TEXT_COMICS)
+			statement.executeUpdate(INSERT_TEXT_COMICS)
+		} finally {
+			statement.close()
+		}
+	}
+
+	void cleanup() {
+		connection.close()
+		try {
+			DriverManager.getConnection(DROP_JDBC_URL)
+		} catch (final SQLException e) {
+			// dropping an in memory database always throws
+		}
+	}
+
+	void 'Schemas storing text are migrated to store it compressed'() {
+		when: 'the schema is migrated twice'
+			JdbcSchemaInitializer.migrate(connection)
+			JdbcSchemaInitializer.migrate(connection)
+		and: 'comics are loaded'
+			ConnectionPool pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, 1, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, 1, 1)
+			List<Comic> comics
+			try {
+				comics = new JdbcCache(pool).loadAll(1, 2)
+			} finally {
+				pool.close()
+			}
+		then: 'alternates and transcripts are preserved'
+			comics*.alternate == [ALTERNATE, null]
+			comics*.transcript == [TRANSCRIPT, null]
+		and: 'the connection is left in auto commit mode'
+			connection.autoCommit
+	}
+}
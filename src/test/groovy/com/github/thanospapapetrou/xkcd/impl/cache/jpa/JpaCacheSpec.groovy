@@ -0,0 +1,105 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.jpa
+
+import java.sql.DriverManager
+import java.sql.SQLException
+
+import javax.persistence.EntityManagerFactory
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.ConnectionPool
+import com.github.thanospapapetrou.xkcd.impl.cdi.InjectionProducer
+
+class JpaCacheSpec extends Specification {
+	private static final long ACQUIRE_TIMEOUT = 1000L
+	private static final int BATCH_WRITING_SIZE = 64
+	private static final Date DATE = new Date(1500000000000L)
+	private static final String DERBY_LOG = 'target/derby.log'
+	private static final String DERBY_STREAM_ERROR_FILE = 'derby.stream.error.file'
+	private static final String DROP_JDBC_URL = 'jdbc:derby:memory:jpa;drop=true'
+	private static final long IDLE_TIMEOUT = 60000L
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final String JDBC_DRIVER = 'org.apache.derby.jdbc.EmbeddedDriver'
+	private static final String JDBC_URL = 'jdbc:derby:memory:jpa;create=true'
+	private static final int SHARED_CACHE_SIZE = 16
+	private static final String TITLE = 'title'
+
+	private ConnectionPool pool
+	private EntityManagerFactory factory
+	private JpaCache cache
+
+	void setupSpec() {
+		System.setProperty(DERBY_STREAM_ERROR_FILE, DERBY_LOG)
+	}
+
+	void setup() {
+		pool = new ConnectionPool(JDBC_DRIVER, JDBC_URL, 0, 2, IDLE_TIMEOUT, ACQUIRE_TIMEOUT, 1, 8)
+		factory = InjectionProducer.produceEntityManagerFactory(pool, true, SHARED_CACHE_SIZE, BATCH_WRITING_SIZE)
+		cache = new JpaCache(factory, true, true)
+	}
+
+	void cleanup() {
+		InjectionProducer.dispose(factory)
+		pool.close()
+		try {
+			DriverManager.getConnection(DROP_JDBC_URL)
+		} catch (final SQLException e) {
+			// dropping an in memory database always throws
+		}
+	}
+
+	void 'Comics found in the shared cache are loaded without querying the database'() {
+		given: 'comics saved'
+			cache.saveAll([1, 2, 3].collect { int id -> comic(id) })
+			long acquired = pool.acquired
+		when: 'a comic is loaded twice'
+			Comic first = cache.load(2)
+			Comic second = cache.load(2)
+		then: 'the comic is loaded'
+			first.id == 2
+			second.id == 2
+		and: 'no connection is acquired'
+			pool.acquired == acquired
+	}
+
+	void 'Latest comic is cached until a comic is saved'() {
+		given: 'comics saved and the latest one loaded'
+			cache.saveAll([1, 2].collect { int id -> comic(id) })
+			cache.loadLatest()
+			long acquired = pool.acquired
+		when: 'the latest comic is loaded again'
+			Comic latest = cache.loadLatest()
+		then: 'it is loaded without acquiring a connection'
+			latest.id == 2
+			pool.acquired == acquired
+		when: 'a newer comic is saved'
+			cache.save(comic(3))
+		then: 'it is loaded as the latest one'
+			cache.loadLatest().id == 3
+	}
+
+	void 'Comics are loaded by ID range'() {
+		given: 'comics saved out of order'
+			cache.saveAll([5, 2, 3, 1].collect { int id -> comic(id) })
+		expect: 'comics within the range are loaded in ID order'
+			cache.loadAll(2, 10)*.id == [2, 3, 5]
+	}
+
+	void 'Long alternates and transcripts are stored in full'() {
+		given: 'a comic with long alternate and transcript'
+			String alternate = (1..1000).join(' ')
+			String transcript = (1..20000).collect { int i -> "\u2014 ${Integer.toHexString(i * 7919)}" }.join(' ')
+			cache.save(new Comic(1, DATE, TITLE, TITLE, IMAGE, alternate, transcript, null, null))
+			factory.cache.evictAll()
+		when: 'the comic is loaded from the database'
+			Comic comic = cache.loadAll(1, 1).first()
+		then: 'alternate and transcript are not truncated'
+			comic.alternate == alternate
+			comic.transcript == transcript
+	}
+
+	private Comic comic(final int id) {
+		new Comic(id, DATE, TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+}
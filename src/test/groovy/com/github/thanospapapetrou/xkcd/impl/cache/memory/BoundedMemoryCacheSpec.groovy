@@ -0,0 +1,119 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.memory
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class BoundedMemoryCacheSpec extends Specification {
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final String TITLE = 'title'
+
+	void 'Saved comics are loaded while capacity suffices'() {
+		given: 'a bounded memory cache large enough for two comics'
+			BoundedMemoryCache cache = new BoundedMemoryCache(2 * BoundedMemoryCache.weigh(comic(1)))
+		when: 'two comics are saved'
+			cache.save(comic(1))
+			cache.save(comic(2))
+		then: 'both comics are loaded'
+			cache.load(1).id == 1
+			cache.load(2).id == 2
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 2
+		and: 'hits are counted'
+			cache.hits == 2L
+			cache.misses == 0L
+			cache.evictions == 0L
+	}
+
+	void 'A frequently accessed comic is not flushed by a scan'() {
+		given: 'a bounded memory cache large enough for two comics'
+			BoundedMemoryCache cache = new BoundedMemoryCache(2 * BoundedMemoryCache.weigh(comic(1)))
+		and: 'a frequently accessed comic'
+			cache.save(comic(1))
+			3.times { cache.load(1) }
+		when: 'a scan of other comics is saved'
+			(2..10).each { int id ->
+				cache.load(id)
+				cache.save(comic(id))
+			}
+		then: 'the frequently accessed comic is still cached'
+			cache.load(1).id == 1
+		and: 'the weight never exceeds the capacity'
+			cache.weight <= 2 * BoundedMemoryCache.weigh(comic(1))
+		and: 'scanned comics are rejected or evicted'
+			cache.rejections + cache.evictions == 8L
+	}
+
+	void 'Comics heavier than the capacity are rejected but the latest comic is always kept'() {
+		given: 'a bounded memory cache with no capacity'
+			BoundedMemoryCache cache = new BoundedMemoryCache(0L)
+		when: 'a comic is saved'
+			cache.save(comic(1))
+		then: 'it is rejected'
+			cache.rejections == 1L
+		and: 'it is still loaded as the latest comic'
+			cache.load(1).id == 1
+			cache.loadLatest().id == 1
+	}
+
+	void 'A comic saved again is replaced in place instead of going through admission'() {
+		given: 'a bounded memory cache full of frequently accessed comics'
+			BoundedMemoryCache cache = new BoundedMemoryCache(2 * BoundedMemoryCache.weigh(comic(1)))
+			cache.save(comic(1))
+			cache.save(comic(2))
+			3.times {
+				cache.load(1)
+				cache.load(2)
+			}
+		when: 'a comic rarely accessed compared to the others is saved again'
+			cache.save(comic(1))
+			cache.save(comic(1))
+		then: 'it is still cached'
+			cache.load(1).id == 1
+			cache.load(2).id == 2
+		and: 'nothing is rejected, evicted or weighed twice'
+			cache.rejections == 0L
+			cache.evictions == 0L
+			cache.weight == 2 * BoundedMemoryCache.weigh(comic(1))
+	}
+
+	void 'A miss followed by saving the comic retrieved counts as a single access'() {
+		given: 'a bounded memory cache'
+			BoundedMemoryCache cache = new BoundedMemoryCache(2 * BoundedMemoryCache.weigh(comic(1)))
+		when: 'a comic missing is saved'
+			cache.load(1)
+			cache.save(comic(1))
+		then: 'its frequency is counted once'
+			cache.sketch.frequency(1) == 1
+	}
+
+	void 'Loading comics in bulk does not count as accessing them'() {
+		given: 'a bounded memory cache holding some comics'
+			BoundedMemoryCache cache = new BoundedMemoryCache(4 * BoundedMemoryCache.weigh(comic(1)))
+			[3, 1, 2].each { int id -> cache.save(comic(id)) }
+		when: 'comics are loaded in bulk'
+			List<Comic> comics = cache.loadAll(2, Integer.MAX_VALUE)
+		then: 'comics within the range are loaded in ID order'
+			comics*.id == [2, 3]
+		and: 'neither the sketch nor the statistics count them'
+			cache.sketch.frequency(2) == 0
+			cache.hits == 0L
+			cache.misses == 0L
+	}
+
+	void 'Comics are weighed by the size of their strings'() {
+		expect: 'a comic with a transcript to weigh more than one without'
+			BoundedMemoryCache.weigh(new Comic(1, new Date(), TITLE, TITLE, IMAGE, null, 'transcript', null, null)) - BoundedMemoryCache.weigh(comic(1)) == 2L * 'transcript'.length()
+	}
+
+	void 'Negative capacity is rejected'() {
+		when: 'a bounded memory cache with negative capacity is constructed'
+			new BoundedMemoryCache(-1L)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+
+	private static Comic comic(final int id) {
+		new Comic(id, new Date(), TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+}
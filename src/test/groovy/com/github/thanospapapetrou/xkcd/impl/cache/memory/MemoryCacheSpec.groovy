@@ -0,0 +1,71 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.memory
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class MemoryCacheSpec extends Specification {
+	private static final int COMICS = 1024
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final int THREADS = 8
+	private static final String TITLE = 'title'
+
+	void 'Loading from an empty cache'() {
+		given: 'an empty memory cache'
+			MemoryCache cache = new MemoryCache()
+		expect: 'no comic to be loaded'
+			cache.load(1) == null
+			cache.loadLatest() == null
+	}
+
+	void 'The latest comic is the one with the highest ID regardless of saving order'() {
+		given: 'a memory cache'
+			MemoryCache cache = new MemoryCache()
+		when: 'comics are saved out of order'
+			[2, 3, 1].each { int id -> cache.save(comic(id)) }
+		then: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 3
+	}
+
+	void 'Comics saved in bulk are loaded in bulk by ID range'() {
+		given: 'a memory cache'
+			MemoryCache cache = new MemoryCache()
+		when: 'comics are saved in bulk out of order'
+			cache.saveAll([5, 2, 3, 1].collect { int id -> comic(id) })
+		then: 'comics within the range are loaded in ID order'
+			cache.loadAll(2, 10)*.id == [2, 3, 5]
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 5
+	}
+
+	void 'Concurrent saves and loads'() {
+		given: 'a memory cache'
+			MemoryCache cache = new MemoryCache()
+		and: 'an executor'
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS)
+		when: 'comics are saved and loaded concurrently'
+			(0..<THREADS).collect { int thread ->
+				executor.submit({
+					for (int id = thread + 1; id <= COMICS; id += THREADS) {
+						cache.save(comic(id))
+						assert cache.load(id).id == id
+						assert cache.loadLatest().id >= id
+					}
+				} as Callable<Void>)
+			}*.get()
+		then: 'all comics are loaded'
+			(1..COMICS).every { int id -> cache.load(id).id == id }
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == COMICS
+		cleanup: 'executor is shut down'
+			executor.shutdown()
+	}
+
+	private static Comic comic(final int id) {
+		new Comic(id, new Date(), TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+}
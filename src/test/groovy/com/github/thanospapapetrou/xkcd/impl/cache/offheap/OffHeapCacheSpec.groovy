@@ -0,0 +1,148 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.offheap
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class OffHeapCacheSpec extends Specification {
+	private static final String ALTERNATE = 'alternate — with non ASCII characters'
+	private static final long CAPACITY = 1L << 20
+	private static final Date DATE = new Date(1500000000000L)
+	private static final URL IMAGE = new URL('http://www.example.org/image.png')
+	private static final URL LINK = new URL('http://www.example.org/link')
+	private static final String NEWS = 'news'
+	private static final int SLAB_SIZE = 256
+	private static final String TITLE = 'title'
+	private static final String TRANSCRIPT = 'transcript' * 64
+
+	void 'Saved comics are decoded with all their fields'() {
+		given: 'an off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		when: 'a comic is saved'
+			cache.save(new Comic(1, DATE, TITLE, TITLE, IMAGE, ALTERNATE, TRANSCRIPT, LINK, NEWS))
+		then: 'the comic loaded has the same fields'
+			Comic comic = cache.load(1)
+			comic.id == 1
+			comic.date == DATE
+			comic.title == TITLE
+			comic.safeTitle == TITLE
+			comic.image == IMAGE
+			comic.alternate == ALTERNATE
+			comic.transcript == TRANSCRIPT
+			comic.link == LINK
+			comic.news == NEWS
+	}
+
+	void 'Unspecified fields are decoded as null'() {
+		given: 'an off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		when: 'a comic without optional fields is saved'
+			cache.save(new Comic(1, DATE, TITLE, TITLE, IMAGE, null, null, null, null))
+		then: 'the optional fields of the comic loaded are null'
+			Comic comic = cache.load(1)
+			comic.alternate == null
+			comic.transcript == null
+			comic.link == null
+			comic.news == null
+	}
+
+	void 'Comics are spread over slabs and indexed by ID'() {
+		given: 'an off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		when: 'comics larger than a slab are saved out of order, with IDs beyond the initial index size'
+			[3, 10000, 2].each { int id -> cache.save(new Comic(id, DATE, TITLE, TITLE, IMAGE, null, TRANSCRIPT, null, null)) }
+		then: 'each comic is loaded by its ID'
+			[3, 10000, 2].every { int id -> cache.load(id).id == id }
+		and: 'missing comics are not loaded'
+			cache.load(1) == null
+			cache.load(-1) == null
+			cache.load(Integer.MAX_VALUE) == null
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 10000
+		and: 'a slab is allocated for each comic'
+			cache.allocated == 3L * OffHeapCache.encode(cache.load(2)).length
+	}
+
+	void 'Comics saved in bulk are loaded in bulk by ID range'() {
+		given: 'an off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		when: 'comics are saved in bulk out of order'
+			cache.saveAll([5, 2, 3, 1].collect { int id -> new Comic(id, DATE, TITLE, TITLE, IMAGE, null, null, null, null) })
+		then: 'comics within the range are loaded in ID order'
+			cache.loadAll(2, Integer.MAX_VALUE)*.id == [2, 3, 5]
+		and: 'the latest comic is the one with the highest ID'
+			cache.loadLatest().id == 5
+	}
+
+	void 'Saving an unchanged comic again does not allocate'() {
+		given: 'an off heap cache holding a comic'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+			cache.save(comic(1, TRANSCRIPT))
+			long allocated = cache.allocated
+		when: 'the comic is saved again many times'
+			100.times { cache.save(comic(1, TRANSCRIPT)) }
+		then: 'nothing more is allocated'
+			cache.allocated == allocated
+	}
+
+	void 'Records replaced are reclaimed by compaction once capacity is exhausted'() {
+		given: 'an off heap cache with room for four records'
+			int length = OffHeapCache.encode(comic(1, TRANSCRIPT)).length
+			OffHeapCache cache = new OffHeapCache(length, 4L * length)
+		and: 'comics saved'
+			cache.save(comic(1, TRANSCRIPT))
+			cache.save(comic(2, TRANSCRIPT))
+		when: 'a comic that changes keeps being saved'
+			10.times { int i -> cache.save(comic(3, TRANSCRIPT.reverse().substring(i % 2) + (i % 2))) }
+		then: 'capacity is never exceeded'
+			cache.allocated <= 4L * length
+		and: 'all comics are still cached, with their latest version'
+			cache.load(1).transcript == TRANSCRIPT
+			cache.load(2).transcript == TRANSCRIPT
+			cache.load(3).transcript == TRANSCRIPT.reverse().substring(1) + 1
+			cache.loadLatest().id == 3
+	}
+
+	void 'Comics that do not fit in capacity are not cached'() {
+		given: 'an off heap cache with room for a single record'
+			int length = OffHeapCache.encode(comic(1, TRANSCRIPT)).length
+			OffHeapCache cache = new OffHeapCache(length, length)
+		when: 'two comics are saved'
+			cache.save(comic(1, TRANSCRIPT))
+			cache.save(comic(2, TRANSCRIPT))
+		then: 'only the first one is cached'
+			cache.load(1).id == 1
+			cache.load(2) == null
+			cache.allocated == length
+	}
+
+	void 'Comics with IDs too high to index are not cached'() {
+		given: 'an off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		when: 'a comic with the highest ID is saved'
+			cache.save(comic(Integer.MAX_VALUE, null))
+		then: 'it is not cached'
+			cache.load(Integer.MAX_VALUE) == null
+			cache.loadLatest() == null
+			cache.allocated == 0L
+	}
+
+	void 'Capacity must not be less than slab size'() {
+		when: 'an off heap cache is constructed with a capacity less than its slab size'
+			new OffHeapCache(SLAB_SIZE, SLAB_SIZE - 1L)
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+
+	void 'Loading from an empty cache'() {
+		given: 'an empty off heap cache'
+			OffHeapCache cache = new OffHeapCache(SLAB_SIZE, CAPACITY)
+		expect: 'no comic to be loaded'
+			cache.load(1) == null
+			cache.loadLatest() == null
+	}
+
+	private static Comic comic(final int id, final String transcript) {
+		new Comic(id, DATE, TITLE, TITLE, IMAGE, null, transcript, null, null)
+	}
+}
@@ -0,0 +1,204 @@
+package com.github.thanospapapetrou.xkcd.impl.cache.tiered
+
+import javax.enterprise.inject.Instance
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.api.XkcdException
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache
+import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.JdbcCache
+import com.github.thanospapapetrou.xkcd.impl.cache.memory.MemoryCache
+import com.github.thanospapapetrou.xkcd.impl.cdi.Caching
+
+class TieredCacheSpec extends Specification {
+	private static final int ID = 1024
+
+	private TieredCache tieredCache
+
+	void setup() {
+		tieredCache = new TieredCache(Mock(Cache), Mock(Cache))
+	}
+
+	void 'Saving a comic saves it to both tiers'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is saved'
+			tieredCache.save(comic)
+		then: 'comic is saved to L1'
+			1 * tieredCache.l1.save(comic)
+		then: 'comic is saved to L2'
+			1 * tieredCache.l2.save(comic)
+		and: 'no other interactions happen'
+			0 * _
+	}
+
+	void 'Loading a comic found in L1'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is loaded'
+			Comic result = tieredCache.load(ID)
+		then: 'comic is loaded from L1'
+			1 * tieredCache.l1.load(ID) >> comic
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result == comic
+	}
+
+	void 'Loading a comic found in L2 promotes it to L1'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is loaded'
+			Comic result = tieredCache.load(ID)
+		then: 'comic is not found in L1'
+			1 * tieredCache.l1.load(ID) >> null
+		and: 'comic is loaded from L2'
+			1 * tieredCache.l2.load(ID) >> comic
+		and: 'comic is promoted to L1'
+			1 * tieredCache.l1.save(comic)
+		and: 'the comic ID is retrieved'
+			1 * comic.id >> ID
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comic is returned'
+			result == comic
+	}
+
+	void 'Loading a comic found in neither tier'() {
+		when: 'comic is loaded'
+			Comic result = tieredCache.load(ID)
+		then: 'comic is not found in L1'
+			1 * tieredCache.l1.load(ID) >> null
+		and: 'comic is not found in L2'
+			1 * tieredCache.l2.load(ID) >> null
+		and: 'no other interactions happen'
+			0 * _
+		and: 'null is returned'
+			result == null
+	}
+
+	void 'Error promoting a comic is not propagated'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'comic is loaded'
+			Comic result = tieredCache.load(ID)
+		then: 'comic is not found in L1'
+			1 * tieredCache.l1.load(ID) >> null
+		and: 'comic is loaded from L2'
+			1 * tieredCache.l2.load(ID) >> comic
+		and: 'promoting comic to L1 fails'
+			1 * tieredCache.l1.save(comic) >> { throw new XkcdException('error', new Exception()) }
+		and: 'comic is returned'
+			result == comic
+	}
+
+	void 'Saving comics in bulk saves them to both tiers'() {
+		given: 'some comics'
+			List<Comic> comics = [Mock(Comic), Mock(Comic)]
+		when: 'comics are saved'
+			tieredCache.saveAll(comics)
+		then: 'comics are saved to L1'
+			1 * tieredCache.l1.saveAll(comics)
+		then: 'comics are saved to L2'
+			1 * tieredCache.l2.saveAll(comics)
+		and: 'no other interactions happen'
+			0 * _
+	}
+
+	void 'Loading comics in bulk all found in L1'() {
+		given: 'some comics'
+			List<Comic> comics = [comic(ID), comic(ID + 1)]
+		when: 'comics are loaded'
+			List<Comic> result = tieredCache.loadAll(ID, ID + 1)
+		then: 'comics are loaded from L1'
+			1 * tieredCache.l1.loadAll(ID, ID + 1) >> comics
+		and: 'no other interactions happen'
+			0 * _
+		and: 'comics are returned'
+			result == comics
+	}
+
+	void 'Loading comics in bulk missing from L1 promotes them from L2'() {
+		given: 'some comics'
+			Comic first = comic(ID)
+			Comic second = comic(ID + 1)
+			Comic third = comic(ID + 2)
+		when: 'comics are loaded'
+			List<Comic> result = tieredCache.loadAll(ID, ID + 2)
+		then: 'some comics are loaded from L1'
+			1 * tieredCache.l1.loadAll(ID, ID + 2) >> [second]
+		and: 'all comics are loaded from L2'
+			1 * tieredCache.l2.loadAll(ID, ID + 2) >> [first, second, third]
+		and: 'comics missing from L1 are promoted to L1'
+			1 * tieredCache.l1.saveAll([first, third])
+		and: 'no other interactions happen'
+			0 * _
+		and: 'all comics are returned in ID order'
+			result == [first, second, third]
+	}
+
+	void 'Loading the latest comic promotes it from L2 once and then loads it from L1'() {
+		given: 'a comic'
+			Comic comic = Mock(Comic)
+		when: 'latest comic is loaded twice'
+			Comic first = tieredCache.loadLatest()
+			Comic second = tieredCache.loadLatest()
+		then: 'latest comic is loaded from L2'
+			1 * tieredCache.l2.loadLatest() >> comic
+		and: 'latest comic is promoted to L1'
+			1 * tieredCache.l1.save(comic)
+		and: 'the comic ID is retrieved'
+			1 * comic.id >> ID
+		and: 'latest comic is then loaded from L1'
+			1 * tieredCache.l1.loadLatest() >> comic
+		and: 'no other interactions happen'
+			0 * _
+		and: 'latest comic is returned both times'
+			first == comic
+			second == comic
+	}
+
+	void 'Tiers are selected from the caches injected'() {
+		given: 'the caches to select the tiers from'
+			Instance<Cache> caches = Mock(Instance)
+			Instance<Cache> memoryCaches = Mock(Instance)
+			Instance<Cache> jdbcCaches = Mock(Instance)
+			Cache memoryCache = Mock(Cache)
+			Cache jdbcCache = Mock(Cache)
+		when: 'a tiered cache is constructed with valid tiers'
+			TieredCache cache = new TieredCache(Caching.MEMORY, Caching.JDBC, caches)
+		then: 'L1 is selected'
+			1 * caches.select(MemoryCache) >> memoryCaches
+			1 * memoryCaches.get() >> memoryCache
+		and: 'L2 is selected'
+			1 * caches.select(JdbcCache) >> jdbcCaches
+			1 * jdbcCaches.get() >> jdbcCache
+		and: 'no other interactions happen'
+			0 * _
+		and: 'the tiers selected are used'
+			cache.l1 == memoryCache
+			cache.l2 == jdbcCache
+	}
+
+	void 'L1 must be a memory tier and L2 a persistent tier'() {
+		when: 'a tiered cache is constructed with an invalid tier'
+			new TieredCache(l1, l2, Mock(Instance))
+		then: 'an illegal argument exception is thrown'
+			thrown(IllegalArgumentException)
+		where:
+			l1               | l2
+			Caching.NONE     | Caching.JPA
+			Caching.TIERED   | Caching.JPA
+			Caching.JDBC     | Caching.JPA
+			Caching.JPA      | Caching.JDBC
+			Caching.MEMORY   | Caching.NONE
+			Caching.MEMORY   | Caching.TIERED
+			Caching.MEMORY   | Caching.MEMORY_BOUNDED
+			Caching.OFF_HEAP | Caching.OFF_HEAP
+	}
+
+	private Comic comic(final int id) {
+		new Comic(id, new Date(0L), 'title', 'title', new URL('http://www.example.org/image.png'), null, null, null, null)
+	}
+}
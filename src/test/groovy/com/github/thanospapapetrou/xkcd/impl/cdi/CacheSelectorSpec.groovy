@@ -0,0 +1,37 @@
+package com.github.thanospapapetrou.xkcd.impl.cdi
+
+import javax.enterprise.inject.Instance
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.impl.cache.Cache
+import com.github.thanospapapetrou.xkcd.impl.cache.jdbc.JdbcCache
+
+class CacheSelectorSpec extends Specification {
+	void 'Cache is selected from the caches injected'() {
+		given: 'the caches to select the cache from'
+			Instance<Cache> caches = Mock(Instance)
+			Instance<Cache> jdbcCaches = Mock(Instance)
+			Cache jdbcCache = Mock(Cache)
+		when: 'a cache selector is constructed'
+			CacheSelector selector = new CacheSelector(Caching.JDBC, caches)
+		then: 'the cache corresponding to the caching mode is selected'
+			1 * caches.select(JdbcCache) >> jdbcCaches
+			1 * jdbcCaches.get() >> jdbcCache
+		and: 'no other interactions happen'
+			0 * _
+		and: 'the cache selected is returned'
+			selector.cache == jdbcCache
+	}
+
+	void 'No cache is selected if caching is disabled'() {
+		given: 'the caches to select the cache from'
+			Instance<Cache> caches = Mock(Instance)
+		when: 'a cache selector is constructed with caching disabled'
+			CacheSelector selector = new CacheSelector(Caching.NONE, caches)
+		then: 'no cache is selected'
+			0 * _
+		and: 'no cache is returned'
+			selector.cache == null
+	}
+}
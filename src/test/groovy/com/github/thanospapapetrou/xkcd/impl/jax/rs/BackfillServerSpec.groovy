@@ -0,0 +1,27 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs
+
+import javax.ws.rs.core.Response
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import com.github.thanospapapetrou.xkcd.impl.cache.backfill.Backfill
+
+class BackfillServerSpec extends Specification {
+	@Unroll('Starting a backfill on demand when #description')
+	void 'Starting a backfill on demand'() {
+		given: 'a backfill server'
+			BackfillServer server = new BackfillServer(Mock(Backfill), onDemand)
+		when: 'a backfill is started'
+			Response response = server.start()
+		then: 'backfill is started only if allowed'
+			(onDemand ? 1 : 0) * server.backfill.start() >> started
+		and: 'response status reflects the outcome'
+			response.status == status.statusCode
+		where:
+			description                   | onDemand | started || status
+			'allowed'                     | true     | true    || Response.Status.ACCEPTED
+			'allowed but already running' | true     | false   || Response.Status.CONFLICT
+			'not allowed'                 | false    | false   || Response.Status.FORBIDDEN
+	}
+}
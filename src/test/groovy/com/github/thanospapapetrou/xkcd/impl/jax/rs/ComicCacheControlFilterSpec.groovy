@@ -0,0 +1,192 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs
+
+import javax.ws.rs.container.ContainerRequestContext
+import javax.ws.rs.container.ContainerResponseContext
+import javax.ws.rs.core.CacheControl
+import javax.ws.rs.core.EntityTag
+import javax.ws.rs.core.HttpHeaders
+import javax.ws.rs.core.MediaType
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.MultivaluedMap
+import javax.ws.rs.core.Request
+import javax.ws.rs.core.Response
+import javax.ws.rs.core.UriInfo
+
+import spock.lang.Specification
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.cache.NavigationMetadata
+
+class ComicCacheControlFilterSpec extends Specification {
+	private static final int CURRENT_ID = 2048
+	private static final int ID = 1024
+	private static final URL IMAGE = new URL('http://www.example.org/image')
+	private static final int MAX_AGE = 31536000
+	private static final String TITLE = 'Title'
+
+	private NavigationMetadata navigation
+	private ComicCacheControlFilter filter
+	private ContainerRequestContext requestContext
+	private ContainerResponseContext responseContext
+	private Request request
+	private MultivaluedMap<String, Object> headers
+
+	void setup() {
+		navigation = new NavigationMetadata()
+		filter = new ComicCacheControlFilter(navigation, false)
+		request = Mock(Request)
+		UriInfo uriInfo = Mock(UriInfo)
+		requestContext = Mock(ContainerRequestContext) {
+			getRequest() >> request
+			getUriInfo() >> uriInfo
+		}
+		headers = new MultivaluedHashMap<>()
+		responseContext = Mock(ContainerResponseContext) {
+			getHeaders() >> headers
+		}
+	}
+
+	void 'Numbered comics are cacheable forever'() {
+		given: 'a numbered comic requested as JSON'
+			Comic comic = createComic(ID, new Date(0L))
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>([id: ID.toString()])
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.APPLICATION_JSON_TYPE
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'preconditions are not met'
+			1 * request.evaluatePreconditions(comic.date, new EntityTag("${ID}-json", true)) >> null
+		and: 'the response is not modified otherwise'
+			0 * responseContext.setStatus(_)
+			0 * responseContext.setEntity(_)
+		and: 'validators and caching directives are added'
+			headers.getFirst(HttpHeaders.ETAG) == new EntityTag("${ID}-json", true)
+			headers.getFirst(HttpHeaders.LAST_MODIFIED) == comic.date
+			headers.getFirst(HttpHeaders.VARY) == 'Accept, Accept-Encoding'
+			CacheControl cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL)
+			cacheControl.maxAge == MAX_AGE
+			cacheControl.toString().contains(ComicCacheControlFilter.IMMUTABLE)
+	}
+
+	void 'Current comic is cacheable until the next comic is expected to be published'() {
+		given: 'the current comic requested as text'
+			Comic comic = createComic(CURRENT_ID, new Date())
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>()
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.TEXT_PLAIN_TYPE
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'validators and caching directives are added'
+			headers.getFirst(HttpHeaders.ETAG) == new EntityTag("${CURRENT_ID}-plain", true)
+			CacheControl cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL)
+			cacheControl.maxAge > 0
+			cacheControl.maxAge >= ComicCacheControlFilter.getMaxAge(comic.date, new Date())
+			!cacheControl.cacheExtension.containsKey(ComicCacheControlFilter.IMMUTABLE)
+	}
+
+	void 'Pages of numbered comics are cacheable until the next comic is expected to be published'() {
+		given: 'a numbered comic requested as XHTML'
+			Comic comic = createComic(ID, new Date(0L))
+			Comic current = createComic(CURRENT_ID, new Date())
+			navigation.update(current)
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>([id: ID.toString()])
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.APPLICATION_XHTML_XML_TYPE
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'validators depend on the current comic'
+			headers.getFirst(HttpHeaders.ETAG) == new EntityTag("${ID}-${CURRENT_ID}-xhtml+xml", true)
+			headers.getFirst(HttpHeaders.LAST_MODIFIED) == current.date
+			CacheControl cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL)
+			cacheControl.maxAge > 0
+			!cacheControl.cacheExtension.containsKey(ComicCacheControlFilter.IMMUTABLE)
+	}
+
+	void 'Immutable pages of numbered comics are cacheable forever'() {
+		given: 'a filter for immutable pages'
+			filter = new ComicCacheControlFilter(navigation, true)
+		and: 'a numbered comic requested as XHTML'
+			Comic comic = createComic(ID, new Date(0L))
+			navigation.update(createComic(CURRENT_ID, new Date()))
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>([id: ID.toString()])
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.APPLICATION_XHTML_XML_TYPE
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'validators depend on the comic only'
+			headers.getFirst(HttpHeaders.ETAG) == new EntityTag("${ID}-xhtml+xml", true)
+			headers.getFirst(HttpHeaders.LAST_MODIFIED) == comic.date
+		and: 'it is cacheable forever'
+			CacheControl cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL)
+			cacheControl.maxAge == MAX_AGE
+			cacheControl.toString().contains(ComicCacheControlFilter.IMMUTABLE)
+	}
+
+	void 'Pages of numbered comics newer than any current comic learned of depend on the comic only'() {
+		given: 'a numbered comic requested as XHTML before any current comic is learned of'
+			Comic comic = createComic(ID, new Date(0L))
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>([id: ID.toString()])
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.APPLICATION_XHTML_XML_TYPE
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'validators depend on the comic'
+			headers.getFirst(HttpHeaders.ETAG) == new EntityTag("${ID}-${ID}-xhtml+xml", true)
+			headers.getFirst(HttpHeaders.LAST_MODIFIED) == comic.date
+		and: 'it is not cacheable, since it is due to be updated'
+			CacheControl cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL)
+			cacheControl.maxAge == 0
+	}
+
+	void 'Comics not modified are not sent again'() {
+		given: 'a numbered comic requested as JSON'
+			Comic comic = createComic(ID, new Date(0L))
+			requestContext.uriInfo.pathParameters >> new MultivaluedHashMap<>([id: ID.toString()])
+			responseContext.status >> Response.Status.OK.statusCode
+			responseContext.entity >> comic
+			responseContext.mediaType >> MediaType.APPLICATION_JSON_TYPE
+			headers.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_TYPE)
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'preconditions are met'
+			1 * request.evaluatePreconditions(comic.date, new EntityTag("${ID}-json", true)) >> Response.notModified()
+		and: 'status is set to 304 (not modified) without an entity'
+			1 * responseContext.setStatus(Response.Status.NOT_MODIFIED.statusCode)
+			1 * responseContext.setEntity(null)
+			!headers.containsKey(HttpHeaders.CONTENT_TYPE)
+		and: 'validators and caching directives are kept'
+			headers.containsKey(HttpHeaders.ETAG)
+			headers.containsKey(HttpHeaders.CACHE_CONTROL)
+			headers.containsKey(HttpHeaders.VARY)
+	}
+
+	void 'Responses other than comics are not filtered'() {
+		given: 'a response without a comic'
+			responseContext.status >> status
+			responseContext.entity >> entity
+		when: 'the response is filtered'
+			filter.filter(requestContext, responseContext)
+		then: 'preconditions are not evaluated'
+			0 * request._
+		and: 'no headers are added'
+			headers.isEmpty()
+		where:
+			status                               | entity
+			Response.Status.OK.statusCode        | 'progress'
+			Response.Status.NOT_FOUND.statusCode | null
+	}
+
+	void 'Max age is never negative'() {
+		expect: 'max age of stale comics is zero'
+			ComicCacheControlFilter.getMaxAge(new Date(0L), new Date()) == 0
+	}
+
+	private static Comic createComic(final int id, final Date date) {
+		new Comic(id, date, TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+}
@@ -2,10 +2,13 @@ package com.github.thanospapapetrou.xkcd.impl.jax.rs
 
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
+import java.time.LocalDate
+import java.time.ZoneOffset
 
-import javax.json.JsonObject
-import javax.json.JsonReader
-import javax.json.JsonReaderFactory
+import javax.json.Json
+import javax.json.JsonException
+import javax.json.JsonObjectBuilder
+import javax.json.stream.JsonParsingException
 import javax.ws.rs.core.MediaType
 
 import spock.lang.Specification
@@ -16,24 +19,24 @@ import com.github.thanospapapetrou.xkcd.domain.Comic
 class ComicMessageBodyReaderSpec extends Specification {
 	private static final String ALTERNATE = 'Alternate'
 	private static final URL BASE_URL = new URL('http://www.example.org/')
-	private static final int DAY = 1
+	private static final Date DATE = Date.from(LocalDate.of(2006, 2, 3).atStartOfDay(ZoneOffset.UTC).toInstant())
+	private static final int DAY = 3
 	private static final int ID = 1024
 	private static final URL IMAGE = new URL('http://www.example.org/image')
 	private static final URL LINK = new URL('http://www.example.org/link')
 	private static final String MALFORMED_URL = 'foo://www.example.org/'
-	private static final int MONTH = 1
+	private static final int MONTH = 2
 	private static final String NEWS = 'News'
 	private static final String SAFE_TITLE = 'Safe Title'
 	private static final String TITLE = 'Title'
-	private static final long TIME = 1048576L
 	private static final String TRANSCRIPT = 'Transcript'
 	private static final String UNSUPPORTED_CHARSET = 'UNSUPPORTED_CHARSET'
-	private static final int YEAR = 1970
+	private static final int YEAR = 2006
 
 	private ComicMessageBodyReader comicMessageBodyReader
 
 	void setup() {
-		comicMessageBodyReader = Spy(ComicMessageBodyReader, constructorArgs:[BASE_URL, Mock(JsonReaderFactory), Mock(ThreadLocal)])
+		comicMessageBodyReader = Spy(ComicMessageBodyReader, constructorArgs:[BASE_URL, Json.createParserFactory(null)])
 	}
 
 	@Unroll('Checking a media type with #charset charset if it is readable')
@@ -61,73 +64,15 @@ class ComicMessageBodyReaderSpec extends Specification {
 		given: 'a media type'
 			MediaType mediaType = Mock(MediaType)
 		and: 'an input stream'
-			InputStream input = Mock(InputStream)
-		and: 'a charset'
-			Charset charset = Mock(Charset)
-		and: 'a JSON reader'
-			JsonReader jsonReader = Mock(JsonReader)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
-		and: 'a calendar'
-			Calendar calendar = Mock(Calendar)
+			InputStream input = new ByteArrayInputStream(json(LINK: jsonLink).getBytes(StandardCharsets.UTF_8))
 		when: 'comic is read'
 			Comic result = comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
 		then: 'media type charset is retrieved'
-			1 * comicMessageBodyReader.getCharset(mediaType) >> charset
-		and: 'a JSON reader is created'
-			1 * comicMessageBodyReader.jsonReaderFactory.createReader(input, charset) >> jsonReader
-		and: 'a JSON object is read'
-			1 * jsonReader.readObject() >> json
-		and: 'a calendar instance is retrieved'
-			1 * comicMessageBodyReader.calendar.get() >> calendar
-		and: 'calendar era is set'
-			1 * calendar.set(Calendar.ERA, GregorianCalendar.AD)
-		and: 'JSON object year is retrieved'
-			1 * json.getString(ComicMessageBodyReader.YEAR) >> YEAR.toString()
-		and: 'calendar year is set'
-			1 * calendar.set(Calendar.YEAR, YEAR)
-		and: 'JSON object month is retrieved'
-			1 * json.getString(ComicMessageBodyReader.MONTH) >> MONTH.toString()
-		and: 'calendar month is set'
-			1 * calendar.set(Calendar.MONTH, MONTH - 1)
-		and: 'JSON object day is retrieved'
-			1 * json.getString(ComicMessageBodyReader.DAY) >> DAY.toString()
-		and: 'calendar date is set'
-			1 * calendar.set(Calendar.DATE, DAY)
-		and: 'calendar hour of day is set'
-			1 * calendar.set(Calendar.HOUR_OF_DAY, 0)
-		and: 'calendar minute is set'
-			1 * calendar.set(Calendar.MINUTE, 0)
-		and: 'calendar second is set'
-			1 * calendar.set(Calendar.SECOND, 0)
-		and: 'calendar millisecond is set'
-			1 * calendar.set(Calendar.MILLISECOND, 0)
-		and: 'JSON object link is retrieved'
-			1 * json.getString(ComicMessageBodyReader.LINK) >> jsonLink
-		and: 'JSON object ID is retrieved'
-			1 * json.getInt(ComicMessageBodyReader.ID) >> ID
-		and: 'calendar time is retrieved'
-			1 * calendar.timeInMillis >> TIME
-		and: 'JSON object title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.TITLE) >> TITLE
-		and: 'JSON object safe title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.SAFE_TITLE) >> SAFE_TITLE
-		and: 'JSON object image is retrieved'
-			1 * json.getString(ComicMessageBodyReader.IMAGE) >> IMAGE.toString()
-		and: 'JSON object alternate is retrieved'
-			1 * json.getString(ComicMessageBodyReader.ALTERNATE) >> ALTERNATE
-		and: 'JSON object transcript is retrieved'
-			1 * json.getString(ComicMessageBodyReader.TRANSCRIPT) >> TRANSCRIPT
-		and: 'JSON object news are retrieved'
-			1 * json.getString(ComicMessageBodyReader.NEWS) >> NEWS
-		and: 'the initial call is concluded'
-			1 * comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
-		and: 'no other interactions happen'
-			0 * _
+			1 * comicMessageBodyReader.getCharset(mediaType) >> StandardCharsets.UTF_8
 		and: 'the comic read is returned'
 			with (result) {
 				id == ID
-				date == new Date(TIME)
+				date == DATE
 				title == TITLE
 				safeTitle == SAFE_TITLE
 				image == IMAGE
@@ -143,139 +88,52 @@ class ComicMessageBodyReaderSpec extends Specification {
 			BASE_URL.toURI().relativize(LINK.toURI()).toString() || LINK
 	}
 
-	void 'Error reading a comic with malformed image URL'() {
-		given: 'a media type'
-			MediaType mediaType = Mock(MediaType)
-		and: 'an input stream'
-			InputStream input = Mock(InputStream)
-		and: 'a charset'
-			Charset charset = Mock(Charset)
-		and: 'a JSON reader'
-			JsonReader jsonReader = Mock(JsonReader)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
-		and: 'a calendar'
-			Calendar calendar = Mock(Calendar)
+	void 'Reading a comic with unknown and missing optional fields'() {
+		given: 'a comic JSON with unknown fields and without optional fields'
+			String json = '{"extra":{"nested":[1,{"num":2}]},"num":1024,"year":"2006","month":"2","day":"3","title":"Title","safe_title":"Safe Title","img":"http://www.example.org/image","link":null}'
 		when: 'comic is read'
-			comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
-		then: 'media type charset is retrieved'
-			1 * comicMessageBodyReader.getCharset(mediaType) >> charset
-		and: 'a JSON reader is created'
-			1 * comicMessageBodyReader.jsonReaderFactory.createReader(input, charset) >> jsonReader
-		and: 'a JSON object is read'
-			1 * jsonReader.readObject() >> json
-		and: 'a calendar instance is retrieved'
-			1 * comicMessageBodyReader.calendar.get() >> calendar
-		and: 'calendar era is set'
-			1 * calendar.set(Calendar.ERA, GregorianCalendar.AD)
-		and: 'JSON object year is retrieved'
-			1 * json.getString(ComicMessageBodyReader.YEAR) >> YEAR.toString()
-		and: 'calendar year is set'
-			1 * calendar.set(Calendar.YEAR, YEAR)
-		and: 'JSON object month is retrieved'
-			1 * json.getString(ComicMessageBodyReader.MONTH) >> MONTH.toString()
-		and: 'calendar month is set'
-			1 * calendar.set(Calendar.MONTH, MONTH - 1)
-		and: 'JSON object day is retrieved'
-			1 * json.getString(ComicMessageBodyReader.DAY) >> DAY.toString()
-		and: 'calendar date is set'
-			1 * calendar.set(Calendar.DATE, DAY)
-		and: 'calendar hour of day is set'
-			1 * calendar.set(Calendar.HOUR_OF_DAY, 0)
-		and: 'calendar minute is set'
-			1 * calendar.set(Calendar.MINUTE, 0)
-		and: 'calendar second is set'
-			1 * calendar.set(Calendar.SECOND, 0)
-		and: 'calendar millisecond is set'
-			1 * calendar.set(Calendar.MILLISECOND, 0)
-		and: 'JSON object link is retrieved'
-			1 * json.getString(ComicMessageBodyReader.LINK) >> LINK.toString()
-		and: 'JSON object ID is retrieved'
-			1 * json.getInt(ComicMessageBodyReader.ID) >> ID
-		and: 'calendar time is retrieved'
-			1 * calendar.timeInMillis >> TIME
-		and: 'JSON object title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.TITLE) >> TITLE
-		and: 'JSON object safe title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.SAFE_TITLE) >> SAFE_TITLE
-		and: 'JSON object image is retrieved'
-			1 * json.getString(ComicMessageBodyReader.IMAGE) >> MALFORMED_URL
-		and: 'the initial call is concluded'
-			1 * comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
-		and: 'no other interactions happen'
-			0 * _
-		and: 'a malformed URL exception is thrown'
-			thrown(MalformedURLException)
+			Comic result = comicMessageBodyReader.readFrom(null, null, null, MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(json.getBytes(StandardCharsets.ISO_8859_1)))
+		then: 'unknown fields are skipped and optional fields are null'
+			with (result) {
+				id == ID
+				date == DATE
+				alternate == null
+				transcript == null
+				link == null
+				news == null
+			}
 	}
 
-	void 'Error reading a comic with a malformed link URL'() {
-		given: 'a media type'
-			MediaType mediaType = Mock(MediaType)
-		and: 'an input stream'
-			InputStream input = Mock(InputStream)
-		and: 'a charset'
-			Charset charset = Mock(Charset)
-		and: 'a JSON reader'
-			JsonReader jsonReader = Mock(JsonReader)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
-		and: 'a calendar'
-			Calendar calendar = Mock(Calendar)
+	@Unroll('Error reading a comic with malformed #field URL')
+	void 'Error reading a comic with malformed URL'() {
+		given: 'a comic JSON with a malformed URL'
+			InputStream input = new ByteArrayInputStream(json((field): MALFORMED_URL).getBytes(StandardCharsets.ISO_8859_1))
 		when: 'comic is read'
-			comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
-		then: 'media type charset is retrieved'
-			1 * comicMessageBodyReader.getCharset(mediaType) >> charset
-		and: 'a JSON reader is created'
-			1 * comicMessageBodyReader.jsonReaderFactory.createReader(input, charset) >> jsonReader
-		and: 'a JSON object is read'
-			1 * jsonReader.readObject() >> json
-		and: 'a calendar instance is retrieved'
-			1 * comicMessageBodyReader.calendar.get() >> calendar
-		and: 'calendar era is set'
-			1 * calendar.set(Calendar.ERA, GregorianCalendar.AD)
-		and: 'JSON object year is retrieved'
-			1 * json.getString(ComicMessageBodyReader.YEAR) >> YEAR.toString()
-		and: 'calendar year is set'
-			1 * calendar.set(Calendar.YEAR, YEAR)
-		and: 'JSON object month is retrieved'
-			1 * json.getString(ComicMessageBodyReader.MONTH) >> MONTH.toString()
-		and: 'calendar month is set'
-			1 * calendar.set(Calendar.MONTH, MONTH - 1)
-		and: 'JSON object day is retrieved'
-			1 * json.getString(ComicMessageBodyReader.DAY) >> DAY.toString()
-		and: 'calendar date is set'
-			1 * calendar.set(Calendar.DATE, DAY)
-		and: 'calendar hour of day is set'
-			1 * calendar.set(Calendar.HOUR_OF_DAY, 0)
-		and: 'calendar minute is set'
-			1 * calendar.set(Calendar.MINUTE, 0)
-		and: 'calendar second is set'
-			1 * calendar.set(Calendar.SECOND, 0)
-		and: 'calendar millisecond is set'
-			1 * calendar.set(Calendar.MILLISECOND, 0)
-		and: 'JSON object link is retrieved'
-			1 * json.getString(ComicMessageBodyReader.LINK) >> MALFORMED_URL
-		and: 'JSON object ID is retrieved'
-			1 * json.getInt(ComicMessageBodyReader.ID) >> ID
-		and: 'calendar time is retrieved'
-			1 * calendar.timeInMillis >> TIME
-		and: 'JSON object title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.TITLE) >> TITLE
-		and: 'JSON object safe title is retrieved'
-			1 * json.getString(ComicMessageBodyReader.SAFE_TITLE) >> SAFE_TITLE
-		and: 'JSON object image is retrieved'
-			1 * json.getString(ComicMessageBodyReader.IMAGE) >> IMAGE.toString()
-		and: 'JSON object alternate is retrieved'
-			1 * json.getString(ComicMessageBodyReader.ALTERNATE) >> ALTERNATE
-		and: 'JSON object transcript is retrieved'
-			1 * json.getString(ComicMessageBodyReader.TRANSCRIPT) >> TRANSCRIPT
-		and: 'the initial call is concluded'
-			1 * comicMessageBodyReader.readFrom(null, null, null, mediaType, null, input)
-		and: 'no other interactions happen'
-			0 * _
-		and: 'a malformed URL exception is thrown'
+			comicMessageBodyReader.readFrom(null, null, null, MediaType.APPLICATION_JSON_TYPE, null, input)
+		then: 'a malformed URL exception is thrown'
 			thrown(MalformedURLException)
-		}
+		where:
+			field << ['IMAGE', 'LINK']
+	}
+
+	@Unroll('Error reading a comic without #field')
+	void 'Error reading a comic without required field'() {
+		given: 'a comic JSON without a required field'
+			InputStream input = new ByteArrayInputStream(json((field): null).getBytes(StandardCharsets.ISO_8859_1))
+		when: 'comic is read'
+			comicMessageBodyReader.readFrom(null, null, null, MediaType.APPLICATION_JSON_TYPE, null, input)
+		then: 'a JSON exception is thrown'
+			thrown(JsonException)
+		where:
+			field << ['ID', 'YEAR', 'MONTH', 'DAY', 'TITLE', 'SAFE_TITLE', 'IMAGE']
+	}
+
+	void 'Error reading something other than a comic'() {
+		when: 'a JSON array is read as a comic'
+			comicMessageBodyReader.readFrom(null, null, null, MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream('[]'.bytes))
+		then: 'a JSON parsing exception is thrown'
+			thrown(JsonParsingException)
+	}
 
 	void 'Retrieving charset of media type with supported charset'() {
 		given: 'a media type'
@@ -337,4 +195,18 @@ class ComicMessageBodyReaderSpec extends Specification {
 		and: 'ISO-8859-1 is returned'
 			result == StandardCharsets.ISO_8859_1
 	}
+
+	private static String json(final Map<String, Object> overrides) {
+		Map<String, Object> fields = [
+			ID: ID, YEAR: YEAR.toString(), MONTH: MONTH.toString(), DAY: DAY.toString(), TITLE: TITLE, SAFE_TITLE: SAFE_TITLE,
+			IMAGE: IMAGE.toString(), ALTERNATE: ALTERNATE, TRANSCRIPT: TRANSCRIPT, LINK: LINK.toString(), NEWS: NEWS
+		]
+		fields.putAll(overrides)
+		JsonObjectBuilder builder = Json.createObjectBuilder()
+		fields.findAll { it.value != null }.each { String key, Object value ->
+			String name = ComicMessageBodyReader."${key}"
+			(value instanceof Integer) ? builder.add(name, value as int) : builder.add(name, value as String)
+		}
+		builder.build().toString()
+	}
 }
@@ -1,10 +1,14 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs
 
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.Semaphore
 import java.util.logging.Logger
 
+import javax.json.JsonException
 import javax.ws.rs.NotFoundException
+import javax.ws.rs.ProcessingException
 import javax.ws.rs.WebApplicationException
-import javax.ws.rs.client.Client
 import javax.ws.rs.client.Invocation
 import javax.ws.rs.client.WebTarget
 
@@ -12,24 +16,19 @@ import spock.lang.Specification
 
 import com.github.thanospapapetrou.xkcd.api.XkcdException
 import com.github.thanospapapetrou.xkcd.domain.Comic
+import com.github.thanospapapetrou.xkcd.impl.BlockingExecutor
+import com.github.thanospapapetrou.xkcd.impl.Retrieval
 
 class XkcdClientSpec extends Specification {
 	private static final URL BASE_URL = new URL('http://www.example.org/')
 	private static final int ID = 1024
 
+	private Semaphore connections
 	private XkcdClient xkcdClient
 
 	void setup() {
-		xkcdClient = new XkcdClient(Mock(Client), Mock(WebTarget), Mock(Logger))
-	}
-
-	void 'Closing an xkcd client closes the underlying JAX-RS client'() {
-		when: 'xkcd client is closed'
-			xkcdClient.close()
-		then: 'the underlying JAX-RS client is closed'
-			1 * xkcdClient.client.close()
-		and: 'no other interactions happen'
-			0 * _
+		connections = new Semaphore(1)
+		xkcdClient = new XkcdClient(Mock(WebTarget), connections, Mock(BlockingExecutor), Mock(Logger))
 	}
 
 	void 'Retrieving an existing comic'() {
@@ -186,4 +185,111 @@ class XkcdClientSpec extends Specification {
 		and: 'exception cause is the web application exception'
 			e.cause == webApplicationException
 	}
+
+	void 'Timeout retrieving current comic'() {
+		given: 'a JAX-RS target'
+			WebTarget target = Mock(WebTarget)
+		and: 'a JAX-RS invocation builder'
+			Invocation.Builder invocationBuilder = Mock(Invocation.Builder)
+		and: 'a JAX-RS invocation'
+			Invocation invocation = Mock(Invocation)
+		and: 'a processing exception'
+			ProcessingException processingException = new ProcessingException(new SocketTimeoutException())
+		when: 'current comic is retrieved'
+			xkcdClient.currentComic
+		then: 'a new JAX-RS target is created by appending the get comic path to the underlying JAX-RS target'
+			1 * xkcdClient.target.path(XkcdClient.GET_CURRENT_COMIC) >> target
+		and: 'a JAX-RS builder is created with media type \'application/json;charset=UTF-8\''
+			1 * target.request(XkcdClient.APPLICATION_JSON_CHARSET_UTF_8) >> invocationBuilder
+		and: 'a JAX-RS GET invocation is created'
+			1 * invocationBuilder.buildGet() >> invocation
+		and: 'invocation times out while holding a connection'
+			1 * invocation.invoke(Comic) >> {
+				assert connections.availablePermits() == 0
+				throw processingException
+			}
+		and: 'the JAX-RS target URI is retrieved'
+			1 * target.uri >> BASE_URL.toURI()
+		and: 'no other interactions happen'
+			0 * _
+		and: 'an xkcd exception is thrown'
+			XkcdException e = thrown(XkcdException)
+		and: 'exception message is an error retrieving current comic message'
+			e.message == String.format(XkcdClient.ERROR_RETRIEVING_CURRENT_COMIC, BASE_URL.toURI())
+		and: 'exception cause is the processing exception'
+			e.cause == processingException
+		and: 'the connection is released'
+			connections.availablePermits() == 1
+	}
+
+	void 'Malformed current comic'() {
+		given: 'a JAX-RS target'
+			WebTarget target = Mock(WebTarget)
+		and: 'a JAX-RS invocation builder'
+			Invocation.Builder invocationBuilder = Mock(Invocation.Builder)
+		and: 'a JAX-RS invocation'
+			Invocation invocation = Mock(Invocation)
+		and: 'a JSON exception'
+			JsonException jsonException = new JsonException('Missing field num')
+		when: 'current comic is retrieved'
+			xkcdClient.currentComic
+		then: 'a new JAX-RS target is created by appending the get comic path to the underlying JAX-RS target'
+			1 * xkcdClient.target.path(XkcdClient.GET_CURRENT_COMIC) >> target
+		and: 'a JAX-RS builder is created with media type \'application/json;charset=UTF-8\''
+			1 * target.request(XkcdClient.APPLICATION_JSON_CHARSET_UTF_8) >> invocationBuilder
+		and: 'a JAX-RS GET invocation is created'
+			1 * invocationBuilder.buildGet() >> invocation
+		and: 'reading the comic fails'
+			1 * invocation.invoke(Comic) >> { throw jsonException }
+		and: 'the JAX-RS target URI is retrieved'
+			1 * target.uri >> BASE_URL.toURI()
+		and: 'no other interactions happen'
+			0 * _
+		and: 'an xkcd exception is thrown, so that a stale current comic may be served instead'
+			XkcdException e = thrown(XkcdException)
+			e.message == String.format(XkcdClient.ERROR_RETRIEVING_CURRENT_COMIC, BASE_URL.toURI())
+			e.cause == jsonException
+	}
+
+	void 'Interrupted while waiting for a connection'() {
+		given: 'a JAX-RS target'
+			WebTarget target = Mock(WebTarget)
+		and: 'a JAX-RS invocation builder'
+			Invocation.Builder invocationBuilder = Mock(Invocation.Builder)
+		and: 'no connections available'
+			connections.acquire()
+		when: 'comic is retrieved by ID by an interrupted thread'
+			Thread.currentThread().interrupt()
+			xkcdClient.getComic(ID)
+		then: 'a new JAX-RS target is created by appending the get comic path to the underlying JAX-RS target'
+			1 * xkcdClient.target.path(XkcdClient.GET_COMIC) >> target
+		and: 'a new JAX-RS target is created by resolving the ID URI template against the previous JAX-RS target'
+			1 * target.resolveTemplate(XkcdClient.ID, ID) >> target
+		and: 'a JAX-RS builder is created with media type \'application/json;charset=UTF-8\''
+			1 * target.request(XkcdClient.APPLICATION_JSON_CHARSET_UTF_8) >> invocationBuilder
+		and: 'a JAX-RS GET invocation is created but never invoked'
+			1 * invocationBuilder.buildGet() >> Mock(Invocation)
+		and: 'the JAX-RS target URI is retrieved'
+			1 * target.uri >> BASE_URL.toURI()
+		and: 'no other interactions happen'
+			0 * _
+		and: 'an xkcd exception is thrown'
+			XkcdException e = thrown(XkcdException)
+			e.message == String.format(XkcdClient.INTERRUPTED_WAITING_FOR_CONNECTION, BASE_URL.toURI())
+		and: 'the thread remains interrupted'
+			Thread.interrupted()
+	}
+
+	void 'Retrieving a comic asynchronously runs on the blocking executor'() {
+		given: 'a retrieval in flight'
+			CompletionStage<Comic> retrieval = new CompletableFuture<>()
+		when: 'comic is retrieved asynchronously'
+			CompletionStage<Comic> result = xkcdClient.getComicAsync(ID)
+		then: 'retrieval is submitted to the blocking executor'
+			1 * xkcdClient.executor.submit(_ as Retrieval) >> retrieval
+		and: 'no other interactions happen'
+			0 * _
+		and: 'the retrieval in flight is returned'
+			result == retrieval
+	}
 }
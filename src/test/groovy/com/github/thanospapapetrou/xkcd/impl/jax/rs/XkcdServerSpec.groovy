@@ -1,84 +1,208 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs
 
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
 import javax.ws.rs.NotFoundException
+import javax.ws.rs.ServiceUnavailableException
+import javax.ws.rs.container.AsyncResponse
+import javax.ws.rs.core.CacheControl
+import javax.ws.rs.core.Response
 
 import spock.lang.Specification
+import spock.lang.Unroll
 
-import com.github.thanospapapetrou.xkcd.api.Xkcd
+import com.github.thanospapapetrou.xkcd.api.AsyncXkcd
 import com.github.thanospapapetrou.xkcd.api.XkcdException
 import com.github.thanospapapetrou.xkcd.domain.Comic
 
 class XkcdServerSpec extends Specification {
 	private static final int ID = 1024
+	private static final URL IMAGE = new URL('http://www.example.org/image')
+	private static final long TIMEOUT = 60000L
+	private static final String TITLE = 'Title'
 
 	private XkcdServer xkcdServer
+	private AsyncResponse response
 
 	void setup() {
-		xkcdServer = new XkcdServer(Mock(Xkcd))
+		xkcdServer = new XkcdServer(Mock(AsyncXkcd), TIMEOUT)
+		response = Mock(AsyncResponse)
 	}
 
 	void 'Retrieving an existing comic is delegated to the underlying xkcd'() {
 		given: 'a comic'
 			Comic comic = Mock(Comic)
 		when: 'comic is retrieved'
-			Comic result = xkcdServer.getComic(ID)
+			xkcdServer.getComic(ID, response)
 		then: 'retrieval is delegated to the underlying xkcd'
-			1 * xkcdServer.xkcd.getComic(ID) >> comic
+			1 * xkcdServer.xkcd.getComicAsync(ID) >> CompletableFuture.completedFuture(comic)
+		and: 'response is resumed with the comic'
+			1 * response.resume(comic)
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
 		and: 'no other interactions happen'
 			0 * _
-		and: 'comic is returned'
-			result == comic
 	}
 
-	void 'Retrieving a non existing comic is delegated to the underlying xkcd and a not found exception is thrown'() {
+	void 'Retrieving a non existing comic is delegated to the underlying xkcd and response is resumed with a not found exception'() {
 		when: 'comic is retrieved'
-			xkcdServer.getComic(ID)
+			xkcdServer.getComic(ID, response)
 		then: 'underlying xkcd returns no comic'
-			1 * xkcdServer.xkcd.getComic(ID) >> null
+			1 * xkcdServer.xkcd.getComicAsync(ID) >> CompletableFuture.completedFuture(null)
+		and: 'response is resumed with a not found exception'
+			1 * response.resume(_ as NotFoundException)
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
 		and: 'no other interactions happen'
 			0 * _
-		and: 'a not found exception is thrown'
-			thrown(NotFoundException)
 	}
 
 	void 'Error retrieving a comic'() {
 		given: 'an xkcd exception'
 			XkcdException xkcdException = Mock(XkcdException)
 		when: 'comic is retrieved'
-			xkcdServer.getComic(ID)
+			xkcdServer.getComic(ID, response)
 		then: 'underlying xkcd fails to retrieve comic'
-			1 * xkcdServer.xkcd.getComic(ID) >> { throw xkcdException }
+			1 * xkcdServer.xkcd.getComicAsync(ID) >> failed(xkcdException)
+		and: 'response is resumed with the xkcd exception'
+			1 * response.resume(xkcdException)
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+		and: 'no other interactions happen'
+			0 * _
+	}
+
+	void 'Retrieving a comic rejected by a saturated blocking executor'() {
+		when: 'comic is retrieved'
+			xkcdServer.getComic(ID, response)
+		then: 'underlying xkcd rejects retrieving comic'
+			1 * xkcdServer.xkcd.getComicAsync(ID) >> failed(new RejectedExecutionException())
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+		and: 'response is resumed with a service unavailable exception'
+			1 * response.resume(_ as ServiceUnavailableException)
 		and: 'no other interactions happen'
 			0 * _
-		and: 'xkcd exception is thrown'
-			XkcdException e = thrown(XkcdException)
-			e == xkcdException
 	}
 
 	void 'Retrieving current comic is delegated to the underlying xkcd'() {
 		given: 'a comic'
 			Comic comic = Mock(Comic)
 		when: 'current comic is retrieved'
-			Comic result = xkcdServer.currentComic
+			xkcdServer.getCurrentComic(response)
 		then: 'retrieval is delegated to the underlying xkcd'
-			1 * xkcdServer.xkcd.currentComic >> comic
+			1 * xkcdServer.xkcd.currentComicAsync >> CompletableFuture.completedFuture(comic)
+		and: 'response is resumed with the comic'
+			1 * response.resume(comic)
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
 		and: 'no other interactions happen'
 			0 * _
-		and: 'comic is returned'
-			result == comic
 	}
 
 	void 'Error retrieving current comic'() {
 		given: 'an xkcd exception'
 			XkcdException xkcdException = Mock(XkcdException)
 		when: 'current comic is retrieved'
-			xkcdServer.currentComic
+			xkcdServer.getCurrentComic(response)
 		then: 'underlying xkcd fails to retrieve current comic'
-			1 * xkcdServer.xkcd.currentComic >> { throw xkcdException }
+			1 * xkcdServer.xkcd.currentComicAsync >> failed(xkcdException)
+		and: 'response is resumed with the xkcd exception'
+			1 * response.resume(xkcdException)
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
 		and: 'no other interactions happen'
 			0 * _
-		and: 'xkcd exception is thrown'
-			XkcdException e = thrown(XkcdException)
-			e == xkcdException
+	}
+
+	void 'Requests are suspended until comics are retrieved'() {
+		given: 'a retrieval in flight'
+			CompletableFuture<Comic> retrieval = new CompletableFuture<>()
+		and: 'a comic'
+			Comic comic = createComic(ID)
+		when: 'comic is requested'
+			xkcdServer.getComic(ID, response)
+		then: 'retrieval is delegated to the underlying xkcd'
+			1 * xkcdServer.xkcd.getComicAsync(ID) >> retrieval
+		and: 'response is suspended with the timeout configured'
+			1 * response.setTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+		and: 'response is not resumed yet'
+			0 * response._
+		when: 'retrieval completes'
+			retrieval.complete(comic)
+		then: 'response is resumed with the comic'
+			1 * response.resume(comic)
+	}
+
+	void 'Redirecting to the last comic'() {
+		given: 'the response resumed'
+			Response result = null
+			response.resume(_ as Response) >> { Response resumed -> result = resumed; true }
+		when: 'last comic is requested'
+			xkcdServer.getLastComic(response)
+		then: 'current comic is retrieved'
+			1 * xkcdServer.xkcd.currentComicAsync >> CompletableFuture.completedFuture(createComic(ID))
+		and: 'response is resumed with a redirect to the current comic'
+			result.status == Response.Status.SEE_OTHER.statusCode
+			result.location == URI.create(ID.toString())
+			!((CacheControl) result.headers.getFirst('Cache-Control')).noStore
+	}
+
+	@Unroll('Redirecting to the comic following comic #id')
+	void 'Redirecting to the next comic'() {
+		given: 'the response resumed'
+			Response result = null
+			response.resume(_ as Response) >> { Response resumed -> result = resumed; true }
+		when: 'the comic following a comic is requested'
+			xkcdServer.getNextComic(id, response)
+		then: 'current comic is retrieved'
+			1 * xkcdServer.xkcd.currentComicAsync >> CompletableFuture.completedFuture(createComic(ID))
+		and: 'response is resumed with a redirect to the comic following it or to the current comic'
+			result.status == Response.Status.SEE_OTHER.statusCode
+			result.location == URI.create(location.toString())
+			((CacheControl) result.headers.getFirst('Cache-Control')).cacheExtension.containsKey('immutable') == immutable
+		where:
+			id     || location | immutable
+			1      || 2        | true
+			ID - 1 || ID       | true
+			ID     || ID       | false
+	}
+
+	@Unroll('Redirecting to the comic following non existing comic #id')
+	void 'Redirecting to the comic following a non existing comic'() {
+		when: 'the comic following a non existing comic is requested'
+			xkcdServer.getNextComic(id, response)
+		then: 'current comic is retrieved'
+			1 * xkcdServer.xkcd.currentComicAsync >> CompletableFuture.completedFuture(createComic(ID))
+		and: 'response is resumed with a not found exception'
+			1 * response.resume(_ as NotFoundException)
+		where:
+			id << [0, ID + 1]
+	}
+
+	void 'Redirecting to a random comic'() {
+		given: 'the response resumed'
+			Response result = null
+			response.resume(_ as Response) >> { Response resumed -> result = resumed; true }
+		when: 'a random comic is requested'
+			xkcdServer.getRandomComic(response)
+		then: 'current comic is retrieved'
+			1 * xkcdServer.xkcd.currentComicAsync >> CompletableFuture.completedFuture(createComic(ID))
+		and: 'response is resumed with a redirect to an existing comic, not cacheable'
+			result.status == Response.Status.SEE_OTHER.statusCode
+			Integer.parseInt(result.location.toString()) in (1..ID)
+			((CacheControl) result.headers.getFirst('Cache-Control')).noStore
+	}
+
+	private static Comic createComic(final int id) {
+		new Comic(id, new Date(), TITLE, TITLE, IMAGE, null, null, null, null)
+	}
+
+	private static CompletableFuture<Comic> failed(final Throwable failure) {
+		CompletableFuture<Comic> future = new CompletableFuture<>()
+		future.completeExceptionally(failure)
+		future
 	}
 }
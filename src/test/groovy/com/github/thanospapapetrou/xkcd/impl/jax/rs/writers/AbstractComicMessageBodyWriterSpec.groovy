@@ -0,0 +1,101 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers
+
+import java.lang.reflect.Field
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPInputStream
+
+import javax.ws.rs.core.HttpHeaders
+import javax.ws.rs.core.MediaType
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.MultivaluedMap
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import com.github.thanospapapetrou.xkcd.domain.Comic
+
+class AbstractComicMessageBodyWriterSpec extends Specification {
+	private static final String CHUNK = 'Chunk'
+	private static final int CHUNKS = 1024
+
+	@Unroll('Streaming a comic #description')
+	void 'Streaming a comic'() {
+		given: 'a streaming writer encoding comics in chunks'
+			AbstractComicMessageBodyWriter writer = new AbstractComicMessageBodyWriter(MediaType.TEXT_PLAIN_TYPE, null, 0, true) {
+				@Override
+				protected byte[] encode(final Comic comic) {
+					throw new UnsupportedOperationException()
+				}
+
+				@Override
+				protected void encode(final Comic comic, final OutputStream output) {
+					CHUNKS.times { output.write(CHUNK.getBytes(StandardCharsets.UTF_8)) }
+				}
+			}
+		and: 'a request'
+			Field requestHeaders = AbstractComicMessageBodyWriter.getDeclaredField('requestHeaders')
+			requestHeaders.accessible = true
+			requestHeaders.set(writer, Mock(HttpHeaders) {
+				getRequestHeader(HttpHeaders.ACCEPT_ENCODING) >> acceptEncoding
+			})
+		and: 'some HTTP headers'
+			MultivaluedMap<String, Object> httpHeaders = new MultivaluedHashMap<>()
+		and: 'an output stream'
+			OutputStream output = Spy(ByteArrayOutputStream)
+		when: 'comic is written'
+			writer.writeTo(Mock(Comic), null, null, null, null, httpHeaders, output)
+		then: 'its size is not known in advance'
+			writer.getSize(Mock(Comic), null, null, null, null) == -1L
+		and: 'it is written while encoded, without a length'
+			httpHeaders.getFirst(HttpHeaders.CONTENT_TYPE) == MediaType.TEXT_PLAIN_TYPE
+			!httpHeaders.containsKey(HttpHeaders.CONTENT_LENGTH)
+			httpHeaders.getFirst(HttpHeaders.CONTENT_ENCODING) == contentEncoding
+			InputStream input = (contentEncoding == null) ? new ByteArrayInputStream(output.toByteArray()) : new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))
+			new String(input.bytes, StandardCharsets.UTF_8) == CHUNK * CHUNKS
+		and: 'the output stream is not closed'
+			0 * output.close()
+		where:
+			description    | acceptEncoding || contentEncoding
+			'uncompressed' | null           || null
+			'compressed'   | ['gzip']       || 'gzip'
+	}
+
+	void 'Streaming a cacheable comic'() {
+		given: 'a streaming writer using a response cache, counting the comics it encodes'
+			int encoded = 0
+			AbstractComicMessageBodyWriter writer = new AbstractComicMessageBodyWriter(MediaType.TEXT_PLAIN_TYPE, new ResponseCache(CHUNK.length() * CHUNKS * 2), -1, true) {
+				@Override
+				protected byte[] encode(final Comic comic) {
+					throw new UnsupportedOperationException()
+				}
+
+				@Override
+				protected void encode(final Comic comic, final OutputStream output) {
+					encoded++
+					CHUNKS.times { output.write(CHUNK.getBytes(StandardCharsets.UTF_8)) }
+				}
+			}
+		and: 'a comic'
+			Comic comic = Mock(Comic) {
+				getId() >> 1
+			}
+		and: 'some HTTP headers'
+			MultivaluedMap<String, Object> streamedHeaders = new MultivaluedHashMap<>()
+			MultivaluedMap<String, Object> cachedHeaders = new MultivaluedHashMap<>()
+		and: 'some output streams'
+			ByteArrayOutputStream streamed = new ByteArrayOutputStream()
+			ByteArrayOutputStream cached = new ByteArrayOutputStream()
+		when: 'comic is written'
+			writer.writeTo(comic, null, null, null, null, streamedHeaders, streamed)
+		then: 'it is streamed, without a length'
+			!streamedHeaders.containsKey(HttpHeaders.CONTENT_LENGTH)
+			new String(streamed.toByteArray(), StandardCharsets.UTF_8) == CHUNK * CHUNKS
+		when: 'comic is written again'
+			writer.writeTo(comic, null, null, null, null, cachedHeaders, cached)
+		then: 'it is written from the response cache, with a length'
+			cachedHeaders.getFirst(HttpHeaders.CONTENT_LENGTH) == CHUNK.length() * CHUNKS
+			cached.toByteArray() == streamed.toByteArray()
+		and: 'it is encoded only once'
+			encoded == 1
+	}
+}
@@ -0,0 +1,43 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers
+
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPInputStream
+import java.util.zip.InflaterInputStream
+
+import spock.lang.Specification
+
+class ContentCodingSpec extends Specification {
+	private static final String TEXT = 'Text —' * 64
+
+	void 'Negotiating a content coding'() {
+		expect: 'the acceptable content coding with the highest quality is negotiated'
+			ContentCoding.negotiate(acceptEncodings) == contentCoding
+		where:
+			acceptEncodings                    | contentCoding
+			null                               | null
+			[]                                 | null
+			['identity']                       | null
+			['gzip, deflate']                  | ContentCoding.GZIP
+			['deflate, gzip']                  | ContentCoding.GZIP
+			['DEFLATE', 'br']                  | ContentCoding.DEFLATE
+			['gzip;q=0.5, deflate']            | ContentCoding.DEFLATE
+			['x-gzip']                         | ContentCoding.GZIP
+			['*']                              | ContentCoding.GZIP
+			['*;q=0.5, gzip;q=0']              | ContentCoding.DEFLATE
+			['gzip;q=0, deflate; q=0']         | null
+			['gzip;q=invalid']                 | null
+	}
+
+	void 'Encoding bytes'() {
+		when: 'bytes are encoded'
+			byte[] bytes = contentCoding.encode(TEXT.getBytes(StandardCharsets.UTF_8))
+		then: 'they are compressed'
+			bytes.length < TEXT.length()
+		and: 'they are decoded to the original bytes'
+			new String(decoder(new ByteArrayInputStream(bytes)).bytes, StandardCharsets.UTF_8) == TEXT
+		where:
+			contentCoding         | decoder
+			ContentCoding.GZIP    | { InputStream input -> new GZIPInputStream(input) }
+			ContentCoding.DEFLATE | { InputStream input -> new InflaterInputStream(input) }
+	}
+}
@@ -2,11 +2,10 @@ package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers
 
 import java.nio.charset.StandardCharsets
 
-import javax.json.JsonBuilderFactory
+import javax.json.Json
 import javax.json.JsonObject
-import javax.json.JsonObjectBuilder
-import javax.json.JsonWriter
-import javax.json.JsonWriterFactory
+import javax.json.stream.JsonGenerator
+import javax.json.stream.JsonGeneratorFactory
 import javax.ws.rs.core.HttpHeaders
 import javax.ws.rs.core.MultivaluedMap
 
@@ -28,7 +27,7 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 	private JsonComicMessageBodyWriter jsonComicMessageBodyWriter
 
 	void setup() {
-		jsonComicMessageBodyWriter = new JsonComicMessageBodyWriter(Mock(JsonBuilderFactory), Mock(JsonWriterFactory))
+		jsonComicMessageBodyWriter = new JsonComicMessageBodyWriter(Mock(JsonGeneratorFactory), null, -1)
 	}
 
 	void 'Writing a comic'() {
@@ -38,64 +37,64 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'a JSON object builder'
-			JsonObjectBuilder jsonObjectBuilder = Mock(JsonObjectBuilder)
+		and: 'a JSON generator'
+			JsonGenerator jsonGenerator = Mock(JsonGenerator)
 		and: 'a date'
 			Date date = Mock(Date)
-		and: 'a JSON writer'
-			JsonWriter jsonWriter = Mock(JsonWriter)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
 		when: 'comic is written'
 			jsonComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
-		and: 'a JSON object builder is created'
-			1 * jsonComicMessageBodyWriter.jsonBuilderFactory.createObjectBuilder() >> jsonObjectBuilder
+		then: 'a JSON generator is created'
+			1 * jsonComicMessageBodyWriter.jsonGeneratorFactory.createGenerator(_ as ByteArrayOutputStream, StandardCharsets.UTF_8) >> jsonGenerator
+		and: 'a JSON object is started'
+			1 * jsonGenerator.writeStartObject() >> jsonGenerator
 		and: 'comic ID is retrieved'
 			1 * comic.id >> ID
-		and: 'ID is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ID, ID) >> jsonObjectBuilder
+		and: 'ID is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ID, ID) >> jsonGenerator
 		and: 'comic date is retrieved'
 			1 * comic.date >> date
 		and: 'date time is retrieved'
 			1 * date.time >> TIME
-		and: 'time is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.DATE, TIME) >> jsonObjectBuilder
+		and: 'time is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.DATE, TIME) >> jsonGenerator
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
-		and: 'title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonObjectBuilder
+		and: 'title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonGenerator
 		and: 'comic safe title is retrieved'
 			1 * comic.safeTitle >> SAFE_TITLE
-		and: 'safe title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonObjectBuilder
+		and: 'safe title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonGenerator
 		and: 'comic image is retrieved'
 			1 * comic.image >> IMAGE
-		and: 'image is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonObjectBuilder
+		and: 'image is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonGenerator
 		and: 'comic alternate is retrieved'
 			1 * comic.alternate >> ALTERNATE
-		and: 'alternate is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonObjectBuilder
+		and: 'alternate is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonGenerator
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'transcript is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonObjectBuilder
+		and: 'transcript is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonGenerator
 		and: 'comic link is retrieved'
 			1 * comic.link >> LINK
-		and: 'link is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonObjectBuilder
+		and: 'link is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonGenerator
 		and: 'comic news are retrieved'
 			1 * comic.news >> NEWS
-		and: 'news are added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonObjectBuilder
-		and: 'a JSON writer is created'
-			1 * jsonComicMessageBodyWriter.jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8) >> jsonWriter
-		and: 'a JSON object is built'
-			1 * jsonObjectBuilder.build() >> json
-		and: 'JSON object is written to JSON writer'
-			1 * jsonWriter.writeObject(json)
+		and: 'news are written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonGenerator
+		and: 'the JSON object is ended'
+			1 * jsonGenerator.writeEnd() >> jsonGenerator
+		and: 'the JSON generator is closed'
+			1 * jsonGenerator.close()
+		and: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the JSON generated'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, 0)
+		and: 'JSON generated is written to output stream'
+			1 * output.write(new byte[0])
 		and: 'no other interactions happen'
 			0 * _
 	}
@@ -107,64 +106,64 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'a JSON object builder'
-			JsonObjectBuilder jsonObjectBuilder = Mock(JsonObjectBuilder)
+		and: 'a JSON generator'
+			JsonGenerator jsonGenerator = Mock(JsonGenerator)
 		and: 'a date'
 			Date date = Mock(Date)
-		and: 'a JSON writer'
-			JsonWriter jsonWriter = Mock(JsonWriter)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
 		when: 'comic is written'
 			jsonComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
-		and: 'a JSON object builder is created'
-			1 * jsonComicMessageBodyWriter.jsonBuilderFactory.createObjectBuilder() >> jsonObjectBuilder
+		then: 'a JSON generator is created'
+			1 * jsonComicMessageBodyWriter.jsonGeneratorFactory.createGenerator(_ as ByteArrayOutputStream, StandardCharsets.UTF_8) >> jsonGenerator
+		and: 'a JSON object is started'
+			1 * jsonGenerator.writeStartObject() >> jsonGenerator
 		and: 'comic ID is retrieved'
 			1 * comic.id >> ID
-		and: 'ID is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ID, ID) >> jsonObjectBuilder
+		and: 'ID is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ID, ID) >> jsonGenerator
 		and: 'comic date is retrieved'
 			1 * comic.date >> date
 		and: 'date time is retrieved'
 			1 * date.time >> TIME
-		and: 'time is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.DATE, TIME) >> jsonObjectBuilder
+		and: 'time is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.DATE, TIME) >> jsonGenerator
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
-		and: 'title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonObjectBuilder
+		and: 'title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonGenerator
 		and: 'comic safe title is retrieved'
 			1 * comic.safeTitle >> SAFE_TITLE
-		and: 'safe title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonObjectBuilder
+		and: 'safe title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonGenerator
 		and: 'comic image is retrieved'
 			1 * comic.image >> IMAGE
-		and: 'image is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonObjectBuilder
+		and: 'image is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonGenerator
 		and: 'comic alternate is retrieved'
 			1 * comic.alternate >> null
-		and: 'alternate is added to JSON object builder'
-			1 * jsonObjectBuilder.addNull(JsonComicMessageBodyWriter.ALTERNATE) >> jsonObjectBuilder
+		and: 'alternate is written as null'
+			1 * jsonGenerator.writeNull(JsonComicMessageBodyWriter.ALTERNATE) >> jsonGenerator
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'transcript is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonObjectBuilder
+		and: 'transcript is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonGenerator
 		and: 'comic link is retrieved'
 			1 * comic.link >> LINK
-		and: 'link is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonObjectBuilder
+		and: 'link is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonGenerator
 		and: 'comic news are retrieved'
 			1 * comic.news >> NEWS
-		and: 'news are added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonObjectBuilder
-		and: 'a JSON writer is created'
-			1 * jsonComicMessageBodyWriter.jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8) >> jsonWriter
-		and: 'a JSON object is built'
-			1 * jsonObjectBuilder.build() >> json
-		and: 'JSON object is written to JSON writer'
-			1 * jsonWriter.writeObject(json)
+		and: 'news are written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonGenerator
+		and: 'the JSON object is ended'
+			1 * jsonGenerator.writeEnd() >> jsonGenerator
+		and: 'the JSON generator is closed'
+			1 * jsonGenerator.close()
+		and: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the JSON generated'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, 0)
+		and: 'JSON generated is written to output stream'
+			1 * output.write(new byte[0])
 		and: 'no other interactions happen'
 			0 * _
 	}
@@ -176,64 +175,64 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'a JSON object builder'
-			JsonObjectBuilder jsonObjectBuilder = Mock(JsonObjectBuilder)
+		and: 'a JSON generator'
+			JsonGenerator jsonGenerator = Mock(JsonGenerator)
 		and: 'a date'
 			Date date = Mock(Date)
-		and: 'a JSON writer'
-			JsonWriter jsonWriter = Mock(JsonWriter)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
 		when: 'comic is written'
 			jsonComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
-		and: 'a JSON object builder is created'
-			1 * jsonComicMessageBodyWriter.jsonBuilderFactory.createObjectBuilder() >> jsonObjectBuilder
+		then: 'a JSON generator is created'
+			1 * jsonComicMessageBodyWriter.jsonGeneratorFactory.createGenerator(_ as ByteArrayOutputStream, StandardCharsets.UTF_8) >> jsonGenerator
+		and: 'a JSON object is started'
+			1 * jsonGenerator.writeStartObject() >> jsonGenerator
 		and: 'comic ID is retrieved'
 			1 * comic.id >> ID
-		and: 'ID is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ID, ID) >> jsonObjectBuilder
+		and: 'ID is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ID, ID) >> jsonGenerator
 		and: 'comic date is retrieved'
 			1 * comic.date >> date
 		and: 'date time is retrieved'
 			1 * date.time >> TIME
-		and: 'time is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.DATE, TIME) >> jsonObjectBuilder
+		and: 'time is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.DATE, TIME) >> jsonGenerator
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
-		and: 'title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonObjectBuilder
+		and: 'title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonGenerator
 		and: 'comic safe title is retrieved'
 			1 * comic.safeTitle >> SAFE_TITLE
-		and: 'safe title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonObjectBuilder
+		and: 'safe title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonGenerator
 		and: 'comic image is retrieved'
 			1 * comic.image >> IMAGE
-		and: 'image is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonObjectBuilder
+		and: 'image is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonGenerator
 		and: 'comic alternate is retrieved'
 			1 * comic.alternate >> ALTERNATE
-		and: 'alternate is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonObjectBuilder
+		and: 'alternate is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonGenerator
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> null
-		and: 'transcript is added to JSON object builder'
-			1 * jsonObjectBuilder.addNull(JsonComicMessageBodyWriter.TRANSCRIPT) >> jsonObjectBuilder
+		and: 'transcript is written as null'
+			1 * jsonGenerator.writeNull(JsonComicMessageBodyWriter.TRANSCRIPT) >> jsonGenerator
 		and: 'comic link is retrieved'
 			1 * comic.link >> LINK
-		and: 'link is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonObjectBuilder
+		and: 'link is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonGenerator
 		and: 'comic news are retrieved'
 			1 * comic.news >> NEWS
-		and: 'news are added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonObjectBuilder
-		and: 'a JSON writer is created'
-			1 * jsonComicMessageBodyWriter.jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8) >> jsonWriter
-		and: 'a JSON object is built'
-			1 * jsonObjectBuilder.build() >> json
-		and: 'JSON object is written to JSON writer'
-			1 * jsonWriter.writeObject(json)
+		and: 'news are written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonGenerator
+		and: 'the JSON object is ended'
+			1 * jsonGenerator.writeEnd() >> jsonGenerator
+		and: 'the JSON generator is closed'
+			1 * jsonGenerator.close()
+		and: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the JSON generated'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, 0)
+		and: 'JSON generated is written to output stream'
+			1 * output.write(new byte[0])
 		and: 'no other interactions happen'
 			0 * _
 	}
@@ -245,64 +244,64 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'a JSON object builder'
-			JsonObjectBuilder jsonObjectBuilder = Mock(JsonObjectBuilder)
+		and: 'a JSON generator'
+			JsonGenerator jsonGenerator = Mock(JsonGenerator)
 		and: 'a date'
 			Date date = Mock(Date)
-		and: 'a JSON writer'
-			JsonWriter jsonWriter = Mock(JsonWriter)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
 		when: 'comic is written'
 			jsonComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
-		and: 'a JSON object builder is created'
-			1 * jsonComicMessageBodyWriter.jsonBuilderFactory.createObjectBuilder() >> jsonObjectBuilder
+		then: 'a JSON generator is created'
+			1 * jsonComicMessageBodyWriter.jsonGeneratorFactory.createGenerator(_ as ByteArrayOutputStream, StandardCharsets.UTF_8) >> jsonGenerator
+		and: 'a JSON object is started'
+			1 * jsonGenerator.writeStartObject() >> jsonGenerator
 		and: 'comic ID is retrieved'
 			1 * comic.id >> ID
-		and: 'ID is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ID, ID) >> jsonObjectBuilder
+		and: 'ID is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ID, ID) >> jsonGenerator
 		and: 'comic date is retrieved'
 			1 * comic.date >> date
 		and: 'date time is retrieved'
 			1 * date.time >> TIME
-		and: 'time is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.DATE, TIME) >> jsonObjectBuilder
+		and: 'time is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.DATE, TIME) >> jsonGenerator
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
-		and: 'title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonObjectBuilder
+		and: 'title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonGenerator
 		and: 'comic safe title is retrieved'
 			1 * comic.safeTitle >> SAFE_TITLE
-		and: 'safe title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonObjectBuilder
+		and: 'safe title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonGenerator
 		and: 'comic image is retrieved'
 			1 * comic.image >> IMAGE
-		and: 'image is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonObjectBuilder
+		and: 'image is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonGenerator
 		and: 'comic alternate is retrieved'
 			1 * comic.alternate >> ALTERNATE
-		and: 'alternate is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonObjectBuilder
+		and: 'alternate is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonGenerator
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'transcript is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonObjectBuilder
+		and: 'transcript is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonGenerator
 		and: 'comic link is retrieved'
 			1 * comic.link >> null
-		and: 'link is added to JSON object builder'
-			1 * jsonObjectBuilder.addNull(JsonComicMessageBodyWriter.LINK) >> jsonObjectBuilder
+		and: 'link is written as null'
+			1 * jsonGenerator.writeNull(JsonComicMessageBodyWriter.LINK) >> jsonGenerator
 		and: 'comic news are retrieved'
 			1 * comic.news >> NEWS
-		and: 'news are added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonObjectBuilder
-		and: 'a JSON writer is created'
-			1 * jsonComicMessageBodyWriter.jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8) >> jsonWriter
-		and: 'a JSON object is built'
-			1 * jsonObjectBuilder.build() >> json
-		and: 'JSON object is written to JSON writer'
-			1 * jsonWriter.writeObject(json)
+		and: 'news are written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.NEWS, NEWS) >> jsonGenerator
+		and: 'the JSON object is ended'
+			1 * jsonGenerator.writeEnd() >> jsonGenerator
+		and: 'the JSON generator is closed'
+			1 * jsonGenerator.close()
+		and: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the JSON generated'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, 0)
+		and: 'JSON generated is written to output stream'
+			1 * output.write(new byte[0])
 		and: 'no other interactions happen'
 			0 * _
 	}
@@ -314,65 +313,85 @@ class JsonComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'a JSON object builder'
-			JsonObjectBuilder jsonObjectBuilder = Mock(JsonObjectBuilder)
+		and: 'a JSON generator'
+			JsonGenerator jsonGenerator = Mock(JsonGenerator)
 		and: 'a date'
 			Date date = Mock(Date)
-		and: 'a JSON writer'
-			JsonWriter jsonWriter = Mock(JsonWriter)
-		and: 'a JSON object'
-			JsonObject json = Mock(JsonObject)
 		when: 'comic is written'
 			jsonComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
-		and: 'a JSON object builder is created'
-			1 * jsonComicMessageBodyWriter.jsonBuilderFactory.createObjectBuilder() >> jsonObjectBuilder
+		then: 'a JSON generator is created'
+			1 * jsonComicMessageBodyWriter.jsonGeneratorFactory.createGenerator(_ as ByteArrayOutputStream, StandardCharsets.UTF_8) >> jsonGenerator
+		and: 'a JSON object is started'
+			1 * jsonGenerator.writeStartObject() >> jsonGenerator
 		and: 'comic ID is retrieved'
 			1 * comic.id >> ID
-		and: 'ID is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ID, ID) >> jsonObjectBuilder
+		and: 'ID is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ID, ID) >> jsonGenerator
 		and: 'comic date is retrieved'
 			1 * comic.date >> date
 		and: 'date time is retrieved'
 			1 * date.time >> TIME
-		and: 'time is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.DATE, TIME) >> jsonObjectBuilder
+		and: 'time is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.DATE, TIME) >> jsonGenerator
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
-		and: 'title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonObjectBuilder
+		and: 'title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TITLE, TITLE) >> jsonGenerator
 		and: 'comic safe title is retrieved'
 			1 * comic.safeTitle >> SAFE_TITLE
-		and: 'safe title is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonObjectBuilder
+		and: 'safe title is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.SAFE_TITLE, SAFE_TITLE) >> jsonGenerator
 		and: 'comic image is retrieved'
 			1 * comic.image >> IMAGE
-		and: 'image is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonObjectBuilder
+		and: 'image is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.IMAGE, IMAGE.toString()) >> jsonGenerator
 		and: 'comic alternate is retrieved'
 			1 * comic.alternate >> ALTERNATE
-		and: 'alternate is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonObjectBuilder
+		and: 'alternate is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.ALTERNATE, ALTERNATE) >> jsonGenerator
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'transcript is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonObjectBuilder
+		and: 'transcript is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.TRANSCRIPT, TRANSCRIPT) >> jsonGenerator
 		and: 'comic link is retrieved'
 			1 * comic.link >> LINK
-		and: 'link is added to JSON object builder'
-			1 * jsonObjectBuilder.add(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonObjectBuilder
+		and: 'link is written'
+			1 * jsonGenerator.write(JsonComicMessageBodyWriter.LINK, LINK.toString()) >> jsonGenerator
 		and: 'comic news are retrieved'
 			1 * comic.news >> null
-		and: 'news are added to JSON object builder'
-			1 * jsonObjectBuilder.addNull(JsonComicMessageBodyWriter.NEWS) >> jsonObjectBuilder
-		and: 'a JSON writer is created'
-			1 * jsonComicMessageBodyWriter.jsonWriterFactory.createWriter(output, StandardCharsets.UTF_8) >> jsonWriter
-		and: 'a JSON object is built'
-			1 * jsonObjectBuilder.build() >> json
-		and: 'JSON object is written to JSON writer'
-			1 * jsonWriter.writeObject(json)
+		and: 'news are written as null'
+			1 * jsonGenerator.writeNull(JsonComicMessageBodyWriter.NEWS) >> jsonGenerator
+		and: 'the JSON object is ended'
+			1 * jsonGenerator.writeEnd() >> jsonGenerator
+		and: 'the JSON generator is closed'
+			1 * jsonGenerator.close()
+		and: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, JsonComicMessageBodyWriter.APPLICATION_JSON_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the JSON generated'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, 0)
+		and: 'JSON generated is written to output stream'
+			1 * output.write(new byte[0])
 		and: 'no other interactions happen'
 			0 * _
 	}
+
+	void 'Writing a comic using a response cache'() {
+		given: 'a JSON comic message body writer using a response cache'
+			JsonComicMessageBodyWriter writer = new JsonComicMessageBodyWriter(new ResponseCache(1024L), -1)
+		and: 'a comic'
+			Comic comic = new Comic(ID, new Date(TIME), TITLE, SAFE_TITLE, IMAGE, ALTERNATE, null, LINK, NEWS)
+		and: 'an output stream'
+			ByteArrayOutputStream output = new ByteArrayOutputStream()
+		when: 'comic is written'
+			writer.writeTo(comic, null, null, null, null, Mock(MultivaluedMap), output)
+		then: 'its size is the length of the JSON written'
+			writer.getSize(comic, null, null, null, null) == output.size()
+		and: 'the JSON written represents the comic'
+			JsonObject json = Json.createReader(new ByteArrayInputStream(output.toByteArray())).readObject()
+			json.getInt(JsonComicMessageBodyWriter.ID) == ID
+			json.getJsonNumber(JsonComicMessageBodyWriter.DATE).longValue() == TIME
+			json.getString(JsonComicMessageBodyWriter.TITLE) == TITLE
+			json.isNull(JsonComicMessageBodyWriter.TRANSCRIPT)
+			json.getString(JsonComicMessageBodyWriter.LINK) == LINK.toString()
+	}
 }
@@ -0,0 +1,83 @@
+package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers
+
+import javax.ws.rs.core.MediaType
+
+import spock.lang.Specification
+
+class ResponseCacheSpec extends Specification {
+	private static final int SIZE = 128
+
+	private ResponseCache responseCache
+
+	void setup() {
+		responseCache = new ResponseCache(3L * (ResponseCache.OVERHEAD + SIZE))
+	}
+
+	void 'Representations are encoded once per comic and media type'() {
+		given: 'an encoding'
+			ResponseCache.Encoding encoding = Mock(ResponseCache.Encoding)
+		when: 'representations are retrieved repeatedly'
+			byte[] first = responseCache.get(1, MediaType.APPLICATION_JSON_TYPE, encoding)
+			byte[] second = responseCache.get(1, MediaType.APPLICATION_JSON_TYPE, encoding)
+			byte[] third = responseCache.get(1, MediaType.TEXT_PLAIN_TYPE, encoding)
+		then: 'each representation is encoded once'
+			2 * encoding.encode() >> { new byte[SIZE] }
+		and: 'cached representations are reused'
+			second.is(first)
+			!third.is(first)
+			responseCache.hits == 1L
+			responseCache.misses == 2L
+			responseCache.weight == 2L * (ResponseCache.OVERHEAD + SIZE)
+	}
+
+	void 'Representations encoded elsewhere are cached'() {
+		given: 'a representation'
+			byte[] bytes = new byte[SIZE]
+		when: 'it is looked up before being cached'
+			byte[] before = responseCache.get(1, MediaType.TEXT_PLAIN_TYPE)
+		and: 'it is cached'
+			responseCache.put(1, MediaType.TEXT_PLAIN_TYPE, bytes)
+		and: 'it is looked up again'
+			byte[] after = responseCache.get(1, MediaType.TEXT_PLAIN_TYPE)
+		then: 'it is found only once cached'
+			before == null
+			after.is(bytes)
+			responseCache.hits == 1L
+			responseCache.misses == 1L
+			responseCache.weight == ResponseCache.OVERHEAD + SIZE
+	}
+
+	void 'Least recently used representations are evicted when capacity is exceeded'() {
+		given: 'a cache full of representations'
+			(1..3).each { int id -> responseCache.get(id, MediaType.TEXT_PLAIN_TYPE) { new byte[SIZE] } }
+		and: 'the first one used again'
+			responseCache.get(1, MediaType.TEXT_PLAIN_TYPE) { new byte[SIZE] }
+		when: 'another representation is cached'
+			responseCache.get(4, MediaType.TEXT_PLAIN_TYPE) { new byte[SIZE] }
+		then: 'the least recently used one is evicted'
+			responseCache.evictions == 1L
+			responseCache.weight == 3L * (ResponseCache.OVERHEAD + SIZE)
+		when: 'the evicted and the reused representations are retrieved'
+			long misses = responseCache.misses
+			responseCache.get(1, MediaType.TEXT_PLAIN_TYPE) { new byte[SIZE] }
+			responseCache.get(2, MediaType.TEXT_PLAIN_TYPE) { new byte[SIZE] }
+		then: 'only the evicted one is encoded again'
+			responseCache.misses == misses + 1L
+	}
+
+	void 'Representations larger than the capacity are not cached'() {
+		when: 'a large representation is retrieved'
+			byte[] bytes = responseCache.get(1, MediaType.TEXT_PLAIN_TYPE) { new byte[8 * SIZE] }
+		then: 'it is returned but not cached'
+			bytes.length == 8 * SIZE
+			responseCache.weight == 0L
+			responseCache.evictions == 0L
+	}
+
+	void 'Negative capacity is rejected'() {
+		when: 'a cache with negative capacity is constructed'
+			new ResponseCache(-1L)
+		then: 'an exception is thrown'
+			thrown(IllegalArgumentException)
+	}
+}
@@ -1,6 +1,11 @@
 package com.github.thanospapapetrou.xkcd.impl.jax.rs.writers
 
+import java.lang.reflect.Field
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPInputStream
+
 import javax.ws.rs.core.HttpHeaders
+import javax.ws.rs.core.MultivaluedHashMap
 import javax.ws.rs.core.MultivaluedMap
 
 import spock.lang.Specification
@@ -8,13 +13,18 @@ import spock.lang.Specification
 import com.github.thanospapapetrou.xkcd.domain.Comic
 
 class TextComicMessageBodyWriterSpec extends Specification {
+	private static final long CAPACITY = 1024L
+	private static final int ID = 1024
+	private static final URL IMAGE = new URL('http://www.example.org/image')
 	private static final String TITLE = 'Title'
-	private static final String TRANSCRIPT = 'Transcript'
+	private static final String TRANSCRIPT = 'Transcript —'
 
+	private ResponseCache responseCache
 	private TextComicMessageBodyWriter textComicMessageBodyWriter
 
 	void setup() {
-		textComicMessageBodyWriter = Spy(TextComicMessageBodyWriter)
+		responseCache = new ResponseCache(CAPACITY)
+		textComicMessageBodyWriter = new TextComicMessageBodyWriter(responseCache, -1)
 	}
 
 	void 'Writing a comic'() {
@@ -24,26 +34,43 @@ class TextComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'an output stream writer'
-			OutputStreamWriter writer = Mock(OutputStreamWriter)
+		and: 'the expected representation'
+			byte[] bytes = String.format(TextComicMessageBodyWriter.FORMAT, TITLE, TRANSCRIPT).getBytes(StandardCharsets.UTF_8)
 		when: 'comic is written'
 			textComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, TextComicMessageBodyWriter.TEXT_PLAIN_CHARSET_UTF_8)
+		then: 'comic ID is retrieved'
+			1 * comic.id >> ID
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'an output stream writer is created'
-			1 * textComicMessageBodyWriter.createOutputStreamWriter(output) >> writer
-		and: 'comic string representation is written to output stream writer'
-			1 * writer.write(String.format(TextComicMessageBodyWriter.FORMAT, TITLE, TRANSCRIPT))
-		and: 'the initial call is concluded'
-			1 * textComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
+		and: 'HTTP header \'Content-Type\' is set to \'text/plain;charset=UTF-8\''
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, TextComicMessageBodyWriter.TEXT_PLAIN_CHARSET_UTF_8)
+		and: 'HTTP header \'Content-Length\' is set to the length of the representation in bytes'
+			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, bytes.length)
+		and: 'comic string representation is written to output stream'
+			1 * output.write(bytes)
 		and: 'no other interactions happen'
 			0 * _
 	}
 
+	void 'Writing a comic again'() {
+		given: 'a comic'
+			Comic comic = new Comic(ID, new Date(), TITLE, TITLE, IMAGE, null, TRANSCRIPT, null, null)
+		and: 'an output stream'
+			ByteArrayOutputStream output = new ByteArrayOutputStream()
+		and: 'the size of the comic already computed'
+			long size = textComicMessageBodyWriter.getSize(comic, null, null, null, null)
+		when: 'comic is written'
+			textComicMessageBodyWriter.writeTo(comic, null, null, null, null, Mock(MultivaluedMap), output)
+		then: 'the representation encoded when computing the size is written'
+			new String(output.toByteArray(), StandardCharsets.UTF_8) == String.format(TextComicMessageBodyWriter.FORMAT, TITLE, TRANSCRIPT)
+			output.size() == size
+		and: 'comic is encoded only once'
+			responseCache.misses == 1L
+			responseCache.hits == 1L
+	}
+
 	void 'Error writing a comic'() {
 		given: 'a comic'
 			Comic comic = Mock(Comic)
@@ -51,28 +78,56 @@ class TextComicMessageBodyWriterSpec extends Specification {
 			MultivaluedMap<String, Object> httpHeaders = Mock(MultivaluedMap)
 		and: 'an output stream'
 			OutputStream output = Mock(OutputStream)
-		and: 'an output stream writer'
-			OutputStreamWriter writer = Mock(OutputStreamWriter)
 		and: 'an IO exception'
 			IOException ioException = Mock(IOException)
 		when: 'comic is written'
 			textComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
-		then: 'HTTP header \'Content-Type\' is set to \'application/json;charset=UTF-8\''
-			1 * httpHeaders.putSingle(HttpHeaders.CONTENT_TYPE, TextComicMessageBodyWriter.TEXT_PLAIN_CHARSET_UTF_8)
+		then: 'comic ID is retrieved'
+			1 * comic.id >> ID
 		and: 'comic title is retrieved'
 			1 * comic.title >> TITLE
 		and: 'comic transcript is retrieved'
 			1 * comic.transcript >> TRANSCRIPT
-		and: 'an output stream writer is created'
-			1 * textComicMessageBodyWriter.createOutputStreamWriter(output) >> writer
-		and: 'comic string representation is written to output stream writer'
-			1 * writer.write(String.format(TextComicMessageBodyWriter.FORMAT, TITLE, TRANSCRIPT)) >> { throw ioException }
-		and: 'the initial call is concluded'
-			1 * textComicMessageBodyWriter.writeTo(comic, null, null, null, null, httpHeaders, output)
+		and: 'HTTP headers are set'
+			2 * httpHeaders.putSingle(_, _)
+		and: 'comic string representation is written to output stream'
+			1 * output.write(_ as byte[]) >> { throw ioException }
 		and: 'no other interactions happen'
 			0 * _
 		and: 'IO exception is thrown'
 			IOException e = thrown(IOException)
 			e == ioException
 	}
+
+	void 'Writing a comic compressed'() {
+		given: 'a writer compressing representations not smaller than a threshold'
+			TextComicMessageBodyWriter writer = new TextComicMessageBodyWriter(responseCache, threshold)
+		and: 'a request accepting gzip and deflate'
+			Field requestHeaders = AbstractComicMessageBodyWriter.getDeclaredField('requestHeaders')
+			requestHeaders.accessible = true
+			requestHeaders.set(writer, Mock(HttpHeaders) {
+				getRequestHeader(HttpHeaders.ACCEPT_ENCODING) >> ['deflate;q=0.5, gzip']
+			})
+		and: 'a comic'
+			Comic comic = new Comic(ID, new Date(), TITLE, TITLE, IMAGE, null, TRANSCRIPT, null, null)
+		and: 'some HTTP headers'
+			MultivaluedMap<String, Object> httpHeaders = new MultivaluedHashMap<>()
+		and: 'an output stream'
+			ByteArrayOutputStream output = new ByteArrayOutputStream()
+		when: 'comic is written twice'
+			writer.writeTo(comic, null, null, null, null, httpHeaders, new ByteArrayOutputStream())
+			writer.writeTo(comic, null, null, null, null, httpHeaders, output)
+		then: 'it is compressed using the content coding negotiated if it is large enough'
+			httpHeaders.getFirst(HttpHeaders.CONTENT_ENCODING) == contentEncoding
+			httpHeaders.getFirst(HttpHeaders.CONTENT_LENGTH) == output.size()
+			writer.getSize(comic, null, null, null, null) == output.size()
+			InputStream input = (contentEncoding == null) ? new ByteArrayInputStream(output.toByteArray()) : new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))
+			new String(input.bytes, StandardCharsets.UTF_8) == String.format(TextComicMessageBodyWriter.FORMAT, TITLE, TRANSCRIPT)
+		and: 'the representation is encoded and compressed only once'
+			responseCache.misses == misses
+		where:
+			threshold | contentEncoding | misses
+			0         | 'gzip'          | 2L
+			1024      | null            | 1L
+	}
 }